@@ -0,0 +1,81 @@
+package no.nav.bidrag.dokument.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Json til og fra JournalpostDto og JournalpostResponse, med responsene fra src/test/resources/stubrespons og en ObjectMapper satt opp
+ * som den spring boot lager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonMappingBenchmark {
+
+  private static final TypeReference<List<JournalpostDto>> LISTE_MED_JOURNALPOSTER = new TypeReference<>() {
+  };
+
+  private ObjectMapper objectMapper;
+  private byte[] journalJson;
+  private byte[] journalpostResponseJson;
+  private List<JournalpostDto> journal;
+  private JournalpostResponse journalpostResponse;
+
+  @Setup
+  public void lesStubresponser() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    journalJson = lesStubrespons("bdj-respons.json");
+    journalpostResponseJson = lesStubrespons("journalpostInnholdMidlertidig.json");
+    journal = objectMapper.readValue(journalJson, LISTE_MED_JOURNALPOSTER);
+    journalpostResponse = objectMapper.readValue(journalpostResponseJson, JournalpostResponse.class);
+  }
+
+  @Benchmark
+  public List<JournalpostDto> lesJournal() throws IOException {
+    return objectMapper.readValue(journalJson, LISTE_MED_JOURNALPOSTER);
+  }
+
+  @Benchmark
+  public byte[] skrivJournal() throws IOException {
+    return objectMapper.writeValueAsBytes(journal);
+  }
+
+  @Benchmark
+  public JournalpostResponse lesJournalpostResponse() throws IOException {
+    return objectMapper.readValue(journalpostResponseJson, JournalpostResponse.class);
+  }
+
+  @Benchmark
+  public byte[] skrivJournalpostResponse() throws IOException {
+    return objectMapper.writeValueAsBytes(journalpostResponse);
+  }
+
+  private static byte[] lesStubrespons(String navn) {
+    try (var inputStream = JsonMappingBenchmark.class.getResourceAsStream("/stubrespons/" + navn)) {
+      return Objects.requireNonNull(inputStream, "Fant ikke stubrespons " + navn).readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
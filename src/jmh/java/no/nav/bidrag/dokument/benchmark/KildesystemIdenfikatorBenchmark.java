@@ -0,0 +1,48 @@
+package no.nav.bidrag.dokument.benchmark;
+
+import static no.nav.bidrag.commons.KildesystemIdenfikator.Kildesystem.BIDRAG;
+
+import java.util.concurrent.TimeUnit;
+import no.nav.bidrag.commons.KildesystemIdenfikator;
+import no.nav.bidrag.dokument.IdValidering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Tolking av journalpostId med prefix, slik det gjøres for hver request mot /journal/{journalpostIdForKildesystem}. Kjør med -prof gc
+ * for å sammenligne allokering mellom {@link KildesystemIdenfikator} og {@link IdValidering}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KildesystemIdenfikatorBenchmark {
+
+  @Param({"BID-37005196", "JOARK-453743013", "svada-1", "BID-abc"})
+  public String journalpostId;
+
+  @Benchmark
+  public void tolkJournalpostId(Blackhole blackhole) {
+    var kildesystemIdenfikator = new KildesystemIdenfikator(journalpostId);
+
+    blackhole.consume(kildesystemIdenfikator.erUkjentPrefixEllerHarIkkeTallEtterPrefix());
+    blackhole.consume(kildesystemIdenfikator.erFor(BIDRAG));
+  }
+
+  @Benchmark
+  public void validerJournalpostId(Blackhole blackhole) {
+    blackhole.consume(IdValidering.erGyldigJournalpostId(journalpostId));
+    blackhole.consume(IdValidering.erForBidrag(journalpostId));
+  }
+}
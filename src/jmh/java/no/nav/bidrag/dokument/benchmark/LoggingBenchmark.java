@@ -0,0 +1,150 @@
+package no.nav.bidrag.dokument.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.status.Status;
+import ch.qos.logback.core.util.Duration;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.composite.loggingevent.ArgumentsJsonProvider;
+import net.logstash.logback.composite.loggingevent.CallerDataJsonProvider;
+import net.logstash.logback.composite.loggingevent.LogLevelJsonProvider;
+import net.logstash.logback.composite.loggingevent.LoggerNameJsonProvider;
+import net.logstash.logback.composite.loggingevent.LoggingEventFormattedTimestampJsonProvider;
+import net.logstash.logback.composite.loggingevent.MdcJsonProvider;
+import net.logstash.logback.composite.loggingevent.MessageJsonProvider;
+import net.logstash.logback.composite.loggingevent.StackTraceJsonProvider;
+import net.logstash.logback.composite.loggingevent.ThreadNameJsonProvider;
+import net.logstash.logback.encoder.LoggingEventCompositeJsonEncoder;
+import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hva logging koster for requesten ved endring av en journalpost (controller, consumer og status), med de samme meldingene som logges i
+ * applikasjonen og oppsettet i logback-spring.xml:
+ * <ul>
+ *   <li>synkron: json skrives på requestens tråd med callerData</li>
+ *   <li>asynkron: live-profilen, json skrives fra ringbufferen uten callerData, og requesten venter på plass når den er full</li>
+ * </ul>
+ * Json skrives til en OutputStream som ikke gjør noe, slik at det er kostnaden i applikasjonen som måles og ikke stdout. Målingen
+ * feiler hvis eventer er droppet, siden det ellers ville vært tiden for å la være å logge som ble målt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingBenchmark {
+
+  private static final String JOURNALPOST_ID = "BID-37005196";
+
+  @Param({"synkron", "asynkron"})
+  public String oppsett;
+
+  private LoggerContext loggerContext;
+  private Logger controllerLogger;
+  private Logger consumerLogger;
+  private EndreJournalpostCommand endreJournalpostCommand;
+
+  @Setup
+  public void konfigurerLogging() {
+    loggerContext = new LoggerContext();
+    controllerLogger = loggerContext.getLogger("no.nav.bidrag.dokument.controller.JournalpostController");
+    consumerLogger = loggerContext.getLogger("no.nav.bidrag.dokument.consumer.BidragDokumentConsumer");
+
+    var root = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+    root.setLevel(Level.INFO);
+    root.addAppender(erAsynkron() ? asynkronAppender() : jsonAppender(true));
+
+    endreJournalpostCommand = new EndreJournalpostCommand();
+    endreJournalpostCommand.setJournalpostId(JOURNALPOST_ID);
+  }
+
+  @TearDown
+  public void stoppLogging() {
+    loggerContext.stop();
+
+    var droppet = loggerContext.getStatusManager().getCopyOfStatusList().stream()
+        .filter(status -> status.getLevel() == Status.WARN && status.getMessage().startsWith("Dropped"))
+        .toList();
+
+    if (!droppet.isEmpty()) {
+      throw new IllegalStateException("Eventer er droppet, målingen er ikke gyldig: " + droppet.get(droppet.size() - 1).getMessage());
+    }
+  }
+
+  @Benchmark
+  public void loggEndringAvJournalpost() {
+    var path = "/journal/" + JOURNALPOST_ID;
+
+    controllerLogger.info("patch endret: bidrag-dokument/journal/{}", JOURNALPOST_ID);
+    controllerLogger.debug("endreJournalpostCommand: {}", endreJournalpostCommand);
+    consumerLogger.info("Endre journalpost BidragDokument: {}, path {}", endreJournalpostCommand.getJournalpostId(), path);
+    consumerLogger.info("Endre journalpost fikk http status {}", "202 ACCEPTED");
+  }
+
+  private boolean erAsynkron() {
+    return "asynkron".equals(oppsett);
+  }
+
+  private Appender<ILoggingEvent> asynkronAppender() {
+    var appender = new LoggingEventAsyncDisruptorAppender();
+    appender.setContext(loggerContext);
+    appender.setRingBufferSize(8192);
+    appender.setAppendTimeout(Duration.buildBySeconds(1));
+    appender.setDroppedWarnFrequency(1);
+    appender.setIncludeCallerData(false);
+    appender.addAppender(jsonAppender(false));
+    appender.start();
+
+    return appender;
+  }
+
+  private Appender<ILoggingEvent> jsonAppender(boolean medCallerData) {
+    var encoder = new LoggingEventCompositeJsonEncoder();
+    encoder.setContext(loggerContext);
+
+    var providers = encoder.getProviders();
+    providers.addProvider(new MdcJsonProvider());
+    providers.addProvider(new LoggingEventFormattedTimestampJsonProvider());
+    providers.addProvider(new MessageJsonProvider());
+    providers.addProvider(new LoggerNameJsonProvider());
+    providers.addProvider(new ThreadNameJsonProvider());
+    providers.addProvider(new LogLevelJsonProvider());
+
+    if (medCallerData) {
+      providers.addProvider(new CallerDataJsonProvider());
+    }
+
+    providers.addProvider(new ArgumentsJsonProvider());
+    providers.addProvider(new StackTraceJsonProvider());
+    encoder.start();
+
+    var appender = new OutputStreamAppender<ILoggingEvent>();
+    appender.setContext(loggerContext);
+    appender.setEncoder(encoder);
+    appender.setOutputStream(OutputStream.nullOutputStream());
+    appender.start();
+
+    return appender;
+  }
+}
@@ -0,0 +1,42 @@
+package no.nav.bidrag.dokument.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import no.nav.bidrag.dokument.IdValidering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validering av saksnummer i JournalpostController (sak journal).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SaksnummerValideringBenchmark {
+
+  // regulært uttrykk som ble brukt i JournalpostController før IdValidering
+  private static final String NON_DIGITS = "\\D+";
+
+  @Param({"2020001", "xyz"})
+  public String saksnummer;
+
+  @Benchmark
+  public boolean validerSaksnummer() {
+    return saksnummer.matches(NON_DIGITS);
+  }
+
+  @Benchmark
+  public boolean validerSaksnummerUtenRegex() {
+    return IdValidering.erUgyldigSaksnummer(saksnummer);
+  }
+}
@@ -0,0 +1,73 @@
+package no.nav.bidrag.dokument.benchmark;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import no.nav.bidrag.dokument.BidragDokumentConfig;
+import no.nav.bidrag.dokument.BidragDokumentConfig.RestTemplateProvider;
+import no.nav.bidrag.dokument.IssuerCache;
+import no.nav.bidrag.dokument.consumer.ConsumerTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Valg av RestTemplate (azure eller isso) ut fra issuer på tokenet, slik det gjøres for hvert kall mot backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SelectorBenchmark {
+
+  @Param({"https://login.microsoftonline.com/966ac572-f5b7-4bbe-aa88-c76419c0f851/v2.0", "https://isso-q.adeo.no:443/isso/oauth2"})
+  public String issuer;
+
+  private ConsumerTarget consumerTarget;
+  private RestTemplateProvider restTemplateProviderMedIssuerCache;
+  private RestTemplateProvider restTemplateProviderUtenIssuerCache;
+
+  @Setup
+  public void opprett() {
+    var idToken = new PlainJWT(new JWTClaimsSet.Builder()
+        .issuer(issuer)
+        .subject("Z999999")
+        .audience("aud-localhost")
+        .expirationTime(Date.from(Instant.now().plus(1, ChronoUnit.HOURS)))
+        .build()
+    ).serialize();
+
+    // ingen av avhengighetene til konfigurasjonen brukes for å velge RestTemplate
+    var bidragDokumentConfig = new BidragDokumentConfig(null, null, null, null, null, null, null);
+
+    consumerTarget = ConsumerTarget.builder().azureRestTemplate(new RestTemplate()).issoRestTemplate(new RestTemplate()).build();
+    restTemplateProviderMedIssuerCache = bidragDokumentConfig.restTemplateProvider(() -> idToken, new IssuerCache(1000, new SimpleMeterRegistry()));
+    // issuer leses fra tokenet hver gang, som for en ny bruker
+    restTemplateProviderUtenIssuerCache = bidragDokumentConfig.restTemplateProvider(() -> idToken, new IssuerCache(0, new SimpleMeterRegistry()));
+  }
+
+  @Benchmark
+  public RestTemplate velgRestTemplate() {
+    return restTemplateProviderMedIssuerCache.provideRestTemplate(consumerTarget);
+  }
+
+  @Benchmark
+  public RestTemplate velgRestTemplateUtenIssuerCache() {
+    return restTemplateProviderUtenIssuerCache.provideRestTemplate(consumerTarget);
+  }
+}
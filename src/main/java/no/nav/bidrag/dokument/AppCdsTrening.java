@@ -0,0 +1,30 @@
+package no.nav.bidrag.dokument;
+
+import static no.nav.bidrag.dokument.BidragDokumentConfig.APPCDS_PROFILE;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Avslutter applikasjonen så snart den er klar, når den er startet med appcds-profilen for å lage et AppCDS-arkiv med klassene som lastes
+ * under oppstarten (java -XX:ArchiveClassesAtExit, se Dockerfile). Arkivet skrives når jvm-en avsluttes.
+ */
+@Component
+@Profile(APPCDS_PROFILE)
+@ConditionalOnProperty(name = "appcds.trening", havingValue = "true")
+public class AppCdsTrening implements ApplicationListener<ApplicationReadyEvent> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AppCdsTrening.class);
+
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    LOGGER.info("Applikasjonen er klar, avslutter slik at AppCDS-arkivet skrives");
+    System.exit(SpringApplication.exit(event.getApplicationContext()));
+  }
+}
@@ -1,44 +1,72 @@
 package no.nav.bidrag.dokument;
 
-import com.nimbusds.jwt.JWTParser;
-import com.nimbusds.jwt.SignedJWT;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
-import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import no.nav.bidrag.commons.ExceptionLogger;
 import no.nav.bidrag.commons.web.CorrelationIdFilter;
 import no.nav.bidrag.commons.web.EnhetFilter;
 import no.nav.bidrag.commons.web.HttpHeaderRestTemplate;
+import no.nav.bidrag.dokument.concurrent.AdaptivSamtidighetsgrense;
+import no.nav.bidrag.dokument.concurrent.FanOut;
+import no.nav.bidrag.dokument.concurrent.FanOut.DelvisResultat;
+import no.nav.bidrag.dokument.concurrent.Hedging;
+import no.nav.bidrag.dokument.concurrent.ParallellBehandling;
+import no.nav.bidrag.dokument.concurrent.RequestContextTaskDecorator;
+import no.nav.bidrag.dokument.concurrent.SamtidighetsgrenseFilter;
+import no.nav.bidrag.dokument.concurrent.SingleFlight;
+import no.nav.bidrag.dokument.consumer.AvbrytbarHttpRequestFactory;
 import no.nav.bidrag.dokument.consumer.BidragDokumentConsumer;
 import no.nav.bidrag.dokument.consumer.ConsumerTarget;
 import no.nav.bidrag.dokument.consumer.DokumentConsumer;
+import no.nav.bidrag.dokument.consumer.HttpClientPool;
+import no.nav.bidrag.dokument.consumer.HttpClientProperties;
+import no.nav.bidrag.dokument.consumer.OboTokenCache;
+import no.nav.bidrag.dokument.consumer.ReaktivBidragDokumentConsumer;
+import no.nav.bidrag.dokument.consumer.ReaktivConsumerTarget;
+import no.nav.bidrag.dokument.consumer.ReaktivDokumentConsumer;
+import no.nav.bidrag.dokument.consumer.ReaktivHttpClientPool;
+import no.nav.bidrag.dokument.controller.EtagFilter;
+import no.nav.bidrag.dokument.controller.KildesystemIdenfikatorArgumentResolver;
 import no.nav.security.token.support.client.core.ClientProperties;
-import no.nav.security.token.support.client.core.oauth2.OAuth2AccessTokenResponse;
+import no.nav.security.token.support.client.core.OAuth2GrantType;
 import no.nav.security.token.support.client.core.oauth2.OAuth2AccessTokenService;
 import no.nav.security.token.support.client.spring.ClientConfigurationProperties;
 import no.nav.security.token.support.client.spring.oauth2.EnableOAuth2Client;
 import no.nav.security.token.support.core.context.TokenValidationContext;
 import no.nav.security.token.support.core.context.TokenValidationContextHolder;
 import no.nav.security.token.support.core.jwt.JwtToken;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.boot.web.client.RootUriTemplateHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-@Configuration
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(HttpClientProperties.class)
 @EnableOAuth2Client(cacheEnabled = true)
 @OpenAPIDefinition(
     info = @Info(title = "bidrag-dokument", version = "v1"),
@@ -60,33 +88,37 @@ public class BidragDokumentConfig {
   public static final String KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV = "bidrag-dokument-arkiv";
   public static final String KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST = "bidrag-dokument-journalpost";
   static final String LIVE_PROFILE = "live";
+  static final String APPCDS_PROFILE = "appcds";
   private static final Logger LOGGER = LoggerFactory.getLogger(BidragDokumentConfig.class);
   private static final String ISSUER_AZURE_AD_IDENTIFIER = "login.microsoftonline.com";
 
   private final ClientConfigurationProperties clientConfigurationProperties;
+  private final HttpClientProperties httpClientProperties;
+  private final MeterRegistry meterRegistry;
+  private final OboTokenCache oboTokenCache;
   private final OAuth2AccessTokenService oAuth2AccessTokenService;
   private final RestTemplateBuilder restTemplateBuilder;
+  private final CircuitBreakerRegistry circuitBreakerRegistry;
+  private final BulkheadRegistry bulkheadRegistry;
 
   public BidragDokumentConfig(
       ClientConfigurationProperties clientConfigurationProperties,
+      HttpClientProperties httpClientProperties,
+      MeterRegistry meterRegistry,
+      OboTokenCache oboTokenCache,
       OAuth2AccessTokenService oAuth2AccessTokenService,
-      RestTemplateBuilder restTemplateBuilder
+      RestTemplateBuilder restTemplateBuilder,
+      CircuitBreakerRegistry circuitBreakerRegistry,
+      BulkheadRegistry bulkheadRegistry
   ) {
     this.clientConfigurationProperties = clientConfigurationProperties;
+    this.httpClientProperties = httpClientProperties;
+    this.meterRegistry = meterRegistry;
+    this.oboTokenCache = oboTokenCache;
     this.oAuth2AccessTokenService = oAuth2AccessTokenService;
     this.restTemplateBuilder = restTemplateBuilder;
-  }
-
-  private static String henteIssuer(String idToken) {
-    try {
-      return parseIdToken(idToken).getJWTClaimsSet().getIssuer();
-    } catch (ParseException e) {
-      throw new IllegalStateException("Kunne ikke hente informasjon om tokenets issuer", e);
-    }
-  }
-
-  private static SignedJWT parseIdToken(String idToken) throws ParseException {
-    return (SignedJWT) JWTParser.parse(idToken);
+    this.circuitBreakerRegistry = circuitBreakerRegistry;
+    this.bulkheadRegistry = bulkheadRegistry;
   }
 
   @Bean
@@ -94,12 +126,20 @@ public class BidragDokumentConfig {
   public BidragDokumentConsumer bidragJournalpostConsumer(
       @Value("${JOURNALPOST_URL}") String journalpostBaseUrl,
       OidcTokenManager oidcTokenManager,
-      RestTemplateProvider restTemplateProvider
+      RestTemplateProvider restTemplateProvider,
+      SingleFlight singleFlight,
+      Hedging hedging,
+      @Qualifier("journalpostHttpClient") CloseableHttpClient httpClient
   ) {
-    LOGGER.info("BidragJournalpostConsumer med base url: " + journalpostBaseUrl);
-    var consumerTarget = ConsumerTarget.builder().azureRestTemplate(azureRestTemplate(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, journalpostBaseUrl))
-        .issoRestTemplate(issoRestTemplate(journalpostBaseUrl, oidcTokenManager)).restTemplateProvider(restTemplateProvider)
-        .targetApp("bidrag-dokument-journalpost")
+    LOGGER.info("BidragJournalpostConsumer med base url: {}", journalpostBaseUrl);
+    var consumerTarget = ConsumerTarget.builder().azureRestTemplate(azureRestTemplate(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, journalpostBaseUrl, oidcTokenManager, httpClient))
+        .issoRestTemplate(issoRestTemplate(journalpostBaseUrl, oidcTokenManager, httpClient)).restTemplateProvider(restTemplateProvider)
+        .singleFlight(singleFlight)
+        .hedging(hedging)
+        .circuitBreaker(circuitBreakerRegistry.circuitBreaker(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST))
+        .bulkhead(bulkheadRegistry.bulkhead(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST))
+        .meterRegistry(meterRegistry)
+        .targetApp(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST)
         .build();
 
     return new BidragDokumentConsumer(consumerTarget);
@@ -110,12 +150,20 @@ public class BidragDokumentConfig {
   public BidragDokumentConsumer bidragArkivConsumer(
       @Value("${BIDRAG_ARKIV_URL}") String bidragArkivBaseUrl,
       OidcTokenManager oidcTokenManager,
-      RestTemplateProvider restTemplateProvider
+      RestTemplateProvider restTemplateProvider,
+      SingleFlight singleFlight,
+      Hedging hedging,
+      @Qualifier("arkivHttpClient") CloseableHttpClient httpClient
   ) {
-    LOGGER.info("BidragArkivConsumer med base url: " + bidragArkivBaseUrl);
-    var consumerTarget = ConsumerTarget.builder().azureRestTemplate(azureRestTemplate(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, bidragArkivBaseUrl))
-        .issoRestTemplate(issoRestTemplate(bidragArkivBaseUrl, oidcTokenManager)).restTemplateProvider(restTemplateProvider)
-        .targetApp("bidrag-dokument-arkiv")
+    LOGGER.info("BidragArkivConsumer med base url: {}", bidragArkivBaseUrl);
+    var consumerTarget = ConsumerTarget.builder().azureRestTemplate(azureRestTemplate(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, bidragArkivBaseUrl, oidcTokenManager, httpClient))
+        .issoRestTemplate(issoRestTemplate(bidragArkivBaseUrl, oidcTokenManager, httpClient)).restTemplateProvider(restTemplateProvider)
+        .singleFlight(singleFlight)
+        .hedging(hedging)
+        .circuitBreaker(circuitBreakerRegistry.circuitBreaker(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV))
+        .bulkhead(bulkheadRegistry.bulkhead(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV))
+        .meterRegistry(meterRegistry)
+        .targetApp(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV)
         .build();
     return new BidragDokumentConsumer(consumerTarget);
   }
@@ -124,16 +172,174 @@ public class BidragDokumentConfig {
   public DokumentConsumer dokumentConsumer(
       @Value("${JOURNALPOST_URL}") String journalpostBaseUrl,
       OidcTokenManager oidcTokenManager,
-      RestTemplateProvider restTemplateProvider
+      RestTemplateProvider restTemplateProvider,
+      SingleFlight singleFlight,
+      Hedging hedging,
+      @Qualifier("journalpostHttpClient") CloseableHttpClient httpClient
   ) {
-    LOGGER.info("DokumentConsumer med base url: " + journalpostBaseUrl);
-    var consumerTarget = ConsumerTarget.builder().azureRestTemplate(azureRestTemplate(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, journalpostBaseUrl))
-        .issoRestTemplate(issoRestTemplate(journalpostBaseUrl, oidcTokenManager)).restTemplateProvider(restTemplateProvider)
-        .targetApp("bidrag-dokument-journalpost")
+    LOGGER.info("DokumentConsumer med base url: {}", journalpostBaseUrl);
+    var consumerTarget = ConsumerTarget.builder().azureRestTemplate(azureRestTemplate(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, journalpostBaseUrl, oidcTokenManager, httpClient))
+        .issoRestTemplate(issoRestTemplate(journalpostBaseUrl, oidcTokenManager, httpClient)).restTemplateProvider(restTemplateProvider)
+        .singleFlight(singleFlight)
+        .hedging(hedging)
+        .circuitBreaker(circuitBreakerRegistry.circuitBreaker(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST))
+        .bulkhead(bulkheadRegistry.bulkhead(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST))
+        .meterRegistry(meterRegistry)
+        .targetApp(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST)
         .build();
     return new DokumentConsumer(consumerTarget);
   }
 
+  @Bean
+  @Qualifier(MIDL_BREVLAGER_QUALIFIER)
+  public ReaktivBidragDokumentConsumer reaktivBidragJournalpostConsumer(
+      @Value("${JOURNALPOST_URL}") String journalpostBaseUrl,
+      BearerTokenProvider bearerTokenProvider,
+      SingleFlight singleFlight,
+      WebClient.Builder webClientBuilder
+  ) {
+    return new ReaktivBidragDokumentConsumer(
+        reaktivConsumerTarget(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, journalpostBaseUrl, bearerTokenProvider, singleFlight, webClientBuilder)
+    );
+  }
+
+  @Bean
+  @Qualifier(ARKIV_QUALIFIER)
+  public ReaktivBidragDokumentConsumer reaktivBidragArkivConsumer(
+      @Value("${BIDRAG_ARKIV_URL}") String bidragArkivBaseUrl,
+      BearerTokenProvider bearerTokenProvider,
+      SingleFlight singleFlight,
+      WebClient.Builder webClientBuilder
+  ) {
+    return new ReaktivBidragDokumentConsumer(
+        reaktivConsumerTarget(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, bidragArkivBaseUrl, bearerTokenProvider, singleFlight, webClientBuilder)
+    );
+  }
+
+  @Bean
+  public ReaktivDokumentConsumer reaktivDokumentConsumer(
+      @Value("${JOURNALPOST_URL}") String journalpostBaseUrl,
+      BearerTokenProvider bearerTokenProvider,
+      SingleFlight singleFlight,
+      WebClient.Builder webClientBuilder
+  ) {
+    return new ReaktivDokumentConsumer(
+        reaktivConsumerTarget(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, journalpostBaseUrl, bearerTokenProvider, singleFlight, webClientBuilder)
+    );
+  }
+
+  private ReaktivConsumerTarget reaktivConsumerTarget(
+      String targetApp, String baseUrl, BearerTokenProvider bearerTokenProvider, SingleFlight singleFlight, WebClient.Builder webClientBuilder
+  ) {
+    return ReaktivConsumerTarget.builder()
+        .webClient(ReaktivHttpClientPool.opprettWebClient(targetApp, baseUrl, httpClientProperties, webClientBuilder))
+        .azureClientProperties(hentClientProperties(targetApp))
+        .bearerTokenProvider(bearerTokenProvider)
+        .singleFlight(singleFlight)
+        .circuitBreaker(circuitBreakerRegistry.circuitBreaker(targetApp))
+        .bulkhead(bulkheadRegistry.bulkhead(targetApp))
+        .meterRegistry(meterRegistry)
+        .targetApp(targetApp)
+        .build();
+  }
+
+  @Bean
+  public SingleFlight singleFlight(@Value("${single-flight.enabled}") boolean enabled, OidcTokenManager oidcTokenManager) {
+    return new SingleFlight(enabled, meterRegistry, oidcTokenManager);
+  }
+
+  @Bean
+  public Hedging hedging(
+      @Value("${hedging.enabled}") boolean enabled,
+      @Value("${hedging.threads}") int threads,
+      @Value("${hedging.percentile}") double persentil,
+      @Value("${hedging.min-delay-ms}") long minForsinkelseMillis,
+      @Value("${hedging.min-samples}") int minimumAntallMalinger,
+      @Value("${hedging.window-size}") int vindu,
+      @Value("${hedging.budget-ratio}") double budsjett,
+      @Value("${hedging.max-budget}") double maksBudsjett
+  ) {
+    var innstillinger = new Hedging.Innstillinger(persentil, minForsinkelseMillis, minimumAntallMalinger, vindu, budsjett, maksBudsjett);
+
+    if (!enabled) {
+      return new Hedging(false, meterRegistry, Runnable::run, innstillinger);
+    }
+
+    LOGGER.info("Hedging av lesinger etter persentil {} av svartid, budsjett {} av kallene", persentil, budsjett);
+
+    var hedgingTaskExecutor = new ThreadPoolTaskExecutor();
+    hedgingTaskExecutor.setCorePoolSize(threads);
+    hedgingTaskExecutor.setMaxPoolSize(threads);
+    hedgingTaskExecutor.setQueueCapacity(0);
+    hedgingTaskExecutor.setThreadNamePrefix("hedging-");
+    hedgingTaskExecutor.setDaemon(true);
+    hedgingTaskExecutor.setTaskDecorator(new RequestContextTaskDecorator());
+    // ingen ledig tråd: det sendes ikke noe ekstra kall, og request-tråden venter på første kall (se Hedging)
+    hedgingTaskExecutor.initialize();
+
+    return new Hedging(true, meterRegistry, hedgingTaskExecutor, innstillinger);
+  }
+
+  @Bean
+  public CloseableHttpClient journalpostHttpClient() {
+    return HttpClientPool.opprettHttpClient(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, httpClientProperties, meterRegistry);
+  }
+
+  @Bean
+  public CloseableHttpClient arkivHttpClient() {
+    return HttpClientPool.opprettHttpClient(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, httpClientProperties, meterRegistry);
+  }
+
+  @Bean
+  public AsyncTaskExecutor fanOutTaskExecutor(@Value("${fanout.threads}") int threads, @Value("${fanout.queue-capacity}") int queueCapacity) {
+    var fanOutTaskExecutor = new ThreadPoolTaskExecutor();
+    fanOutTaskExecutor.setCorePoolSize(threads);
+    fanOutTaskExecutor.setMaxPoolSize(threads);
+    fanOutTaskExecutor.setQueueCapacity(queueCapacity);
+    fanOutTaskExecutor.setThreadNamePrefix("fanout-");
+    fanOutTaskExecutor.setTaskDecorator(new RequestContextTaskDecorator());
+    // når pool og kø er full avvises kallet (503), se FanOut
+
+    return fanOutTaskExecutor;
+  }
+
+  @Bean
+  public FanOut fanOut(
+      @Qualifier("fanOutTaskExecutor") AsyncTaskExecutor fanOutTaskExecutor,
+      @Value("${fanout.timeout-ms.bidrag-dokument-journalpost}") long timeoutMillisJournalpost,
+      @Value("${fanout.timeout-ms.bidrag-dokument-arkiv}") long timeoutMillisArkiv,
+      @Value("${fanout.delvis-resultat}") DelvisResultat delvisResultat
+  ) {
+    LOGGER.info("FanOut med timeout {} ms mot journalpost, {} ms mot arkiv og delvis resultat: {}", timeoutMillisJournalpost, timeoutMillisArkiv,
+        delvisResultat);
+
+    var timeoutMillisPerTarget = Map.of(
+        KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, timeoutMillisJournalpost,
+        KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, timeoutMillisArkiv
+    );
+
+    return new FanOut(fanOutTaskExecutor, timeoutMillisPerTarget, Math.max(timeoutMillisJournalpost, timeoutMillisArkiv), delvisResultat);
+  }
+
+  @Bean
+  public AsyncTaskExecutor batchTaskExecutor(@Value("${batch.threads}") int threads, @Value("${batch.queue-capacity}") int queueCapacity) {
+    // egen pool, slik at store batcher ikke fortrenger henting av sak journal (fanout)
+    var batchTaskExecutor = new ThreadPoolTaskExecutor();
+    batchTaskExecutor.setCorePoolSize(threads);
+    batchTaskExecutor.setMaxPoolSize(threads);
+    batchTaskExecutor.setQueueCapacity(queueCapacity);
+    batchTaskExecutor.setThreadNamePrefix("batch-");
+    batchTaskExecutor.setTaskDecorator(new RequestContextTaskDecorator());
+    // når pool og kø er full avvises batchen (503), se ParallellBehandling
+
+    return batchTaskExecutor;
+  }
+
+  @Bean
+  public ParallellBehandling parallellBehandling(@Qualifier("batchTaskExecutor") AsyncTaskExecutor batchTaskExecutor) {
+    return new ParallellBehandling(batchTaskExecutor);
+  }
+
   @Bean
   @Order(1)
   public CorrelationIdFilter correlationIdFilter() {
@@ -146,6 +352,47 @@ public class BidragDokumentConfig {
     return new EnhetFilter();
   }
 
+  @Bean
+  @Order(3)
+  @ConditionalOnProperty(name = "concurrency-limit.enabled", havingValue = "true")
+  public SamtidighetsgrenseFilter samtidighetsgrenseFilter(
+      @Value("${concurrency-limit.read.initial}") int startgrenseLesing,
+      @Value("${concurrency-limit.read.min}") int minGrenseLesing,
+      @Value("${concurrency-limit.read.max}") int maksGrenseLesing,
+      @Value("${concurrency-limit.write.initial}") int startgrenseSkriving,
+      @Value("${concurrency-limit.write.min}") int minGrenseSkriving,
+      @Value("${concurrency-limit.write.max}") int maksGrenseSkriving
+  ) {
+    var lesing = new AdaptivSamtidighetsgrense(new AdaptivSamtidighetsgrense.Innstillinger(startgrenseLesing, minGrenseLesing, maksGrenseLesing));
+    var skriving = new AdaptivSamtidighetsgrense(
+        new AdaptivSamtidighetsgrense.Innstillinger(startgrenseSkriving, minGrenseSkriving, maksGrenseSkriving)
+    );
+
+    return new SamtidighetsgrenseFilter(lesing, skriving, meterRegistry);
+  }
+
+  @Bean
+  @Order(4)
+  @ConditionalOnProperty(name = "etag.enabled", havingValue = "true")
+  public EtagFilter etagFilter() {
+    return new EtagFilter();
+  }
+
+  @Bean
+  public WebMvcConfigurer kildesystemIdenfikatorArgumentResolverConfigurer() {
+    return new WebMvcConfigurer() {
+      @Override
+      public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new KildesystemIdenfikatorArgumentResolver());
+      }
+    };
+  }
+
+  @Bean
+  public static UtsattInitialisering utsattInitialisering() {
+    return new UtsattInitialisering();
+  }
+
   @Bean
   public ExceptionLogger exceptionLogger() {
     return new ExceptionLogger(BidragDokument.class.getSimpleName());
@@ -162,41 +409,84 @@ public class BidragDokumentConfig {
   }
 
   @Bean
-  public RestTemplateProvider restTemplateProvider(OidcTokenManager oidcTokenManager) {
-    return (consumerTarget) -> selector(oidcTokenManager.fetchToken(), consumerTarget);
+  public IssuerCache issuerCache(@Value("${issuer-cache.max-size}") long maksAntall) {
+    return new IssuerCache(maksAntall, meterRegistry);
   }
 
-  private RestTemplate selector(String idToken, ConsumerTarget consumerTarget) {
-    var issuer = henteIssuer(idToken);
-    if (issuer.contains(ISSUER_AZURE_AD_IDENTIFIER)) {
+  @Bean
+  public RestTemplateProvider restTemplateProvider(OidcTokenManager oidcTokenManager, IssuerCache issuerCache) {
+    return (consumerTarget) -> selector(issuerCache.hentIssuer(oidcTokenManager.fetchToken()), consumerTarget);
+  }
+
+  @Bean
+  public BearerTokenProvider bearerTokenProvider(OidcTokenManager oidcTokenManager, IssuerCache issuerCache) {
+    return (reaktivConsumerTarget) -> {
+      var idToken = oidcTokenManager.fetchToken();
+
+      if (erAzureIssuer(issuerCache.hentIssuer(idToken))) {
+        return new BearerToken(
+            hentAccessToken(reaktivConsumerTarget.getTargetApp(), reaktivConsumerTarget.getAzureClientProperties(), () -> idToken), true
+        );
+      }
+
+      return new BearerToken(idToken, false);
+    };
+  }
+
+  private RestTemplate selector(String issuer, ConsumerTarget consumerTarget) {
+    if (erAzureIssuer(issuer)) {
       return consumerTarget.getAzureRestTemplate();
     } else {
       return consumerTarget.getIssoRestTemplate();
     }
   }
 
-  private RestTemplate azureRestTemplate(String clientName, String baseUrl) {
-    ClientProperties clientProperties = Optional.ofNullable(clientConfigurationProperties.getRegistration().get(clientName))
+  private static boolean erAzureIssuer(String issuer) {
+    return issuer.contains(ISSUER_AZURE_AD_IDENTIFIER);
+  }
+
+  private ClientProperties hentClientProperties(String clientName) {
+    return Optional.ofNullable(clientConfigurationProperties.getRegistration().get(clientName))
         .orElseThrow(() -> new IllegalStateException("could not find oauth2 client config for " + clientName));
-    return restTemplateBuilder.rootUri(baseUrl).additionalInterceptors(bearerTokenInterceptor(clientProperties, oAuth2AccessTokenService)).build();
   }
 
-  private ClientHttpRequestInterceptor bearerTokenInterceptor(ClientProperties clientProperties, OAuth2AccessTokenService oAuth2AccessTokenService) {
+  private RestTemplate azureRestTemplate(String clientName, String baseUrl, OidcTokenManager oidcTokenManager, HttpClient httpClient) {
+    ClientProperties clientProperties = hentClientProperties(clientName);
+    return restTemplateBuilder.rootUri(baseUrl)
+        .requestFactory(() -> new AvbrytbarHttpRequestFactory(httpClient))
+        .additionalInterceptors(bearerTokenInterceptor(clientName, clientProperties, oidcTokenManager))
+        .build();
+  }
+
+  private ClientHttpRequestInterceptor bearerTokenInterceptor(String clientName, ClientProperties clientProperties, OidcTokenManager oidcTokenManager) {
     return (request, body, execution) -> {
-      OAuth2AccessTokenResponse response = oAuth2AccessTokenService.getAccessToken(clientProperties);
-      request.getHeaders().setBearerAuth(response.getAccessToken());
+      request.getHeaders().setBearerAuth(hentAccessToken(clientName, clientProperties, oidcTokenManager));
       return execution.execute(request, body);
     };
   }
 
-  private RestTemplate issoRestTemplate(String baseUrl, OidcTokenManager oidcTokenManager) {
-    var requestFactory = new HttpComponentsClientHttpRequestFactory();
-    requestFactory.setConnectTimeout(0);
-    requestFactory.setReadTimeout(0);
+  /**
+   * On-behalf-of (jwt-bearer) caches per bruker med fornying i bakgrunnen (se {@link OboTokenCache}). Andre grant types, f.eks.
+   * client_credentials, hentes og caches av token-support.
+   */
+  private String hentAccessToken(String clientName, ClientProperties clientProperties, OidcTokenManager oidcTokenManager) {
+    if (OAuth2GrantType.JWT_BEARER.equals(clientProperties.getGrantType())) {
+      return oboTokenCache.hentToken(clientName, clientProperties, oidcTokenManager.fetchToken());
+    }
+
+    return oAuth2AccessTokenService.getAccessToken(clientProperties).getAccessToken();
+  }
 
+  private RestTemplate issoRestTemplate(String baseUrl, OidcTokenManager oidcTokenManager, HttpClient httpClient) {
+    // timeouts og pool er konfigurert på http-klienten (se HttpClientPool)
+    var requestFactory = new AvbrytbarHttpRequestFactory(httpClient);
     var httpHeaderRestTemplate = new HttpHeaderRestTemplate();
 
-    httpHeaderRestTemplate.addHeaderGenerator(HttpHeaders.AUTHORIZATION, () -> "Bearer " + oidcTokenManager.fetchToken());
+    // interceptor (og ikke header generator) slik at også kall med egen RequestCallback (strømming) får token
+    httpHeaderRestTemplate.getInterceptors().add((request, body, execution) -> {
+      request.getHeaders().setBearerAuth(oidcTokenManager.fetchToken());
+      return execution.execute(request, body);
+    });
     httpHeaderRestTemplate.withDefaultHeaders();
     httpHeaderRestTemplate.setRequestFactory(requestFactory);
     httpHeaderRestTemplate.setUriTemplateHandler(new RootUriTemplateHandler(baseUrl));
@@ -210,6 +500,16 @@ public class BidragDokumentConfig {
     RestTemplate provideRestTemplate(ConsumerTarget consumerTarget);
   }
 
+  @FunctionalInterface
+  public interface BearerTokenProvider {
+
+    BearerToken provideBearerToken(ReaktivConsumerTarget reaktivConsumerTarget);
+  }
+
+  public record BearerToken(String verdi, boolean azure) {
+
+  }
+
   @FunctionalInterface
   public interface OidcTokenManager {
 
@@ -0,0 +1,79 @@
+package no.nav.bidrag.dokument;
+
+import static no.nav.bidrag.dokument.BidragDokumentConfig.DELIMTER;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.PREFIX_BIDRAG;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.PREFIX_JOARK;
+
+/**
+ * Validering av journalpostId med prefix ([BID|JOARK]-&lt;tall&gt;) og saksnummer som gjøres for hver request. Strengen leses tegn for
+ * tegn uten regulære uttrykk, substring eller store bokstaver, slik at valideringen ikke lager nye objekter.
+ */
+public final class IdValidering {
+
+  private static final String BIDRAG = PREFIX_BIDRAG + DELIMTER;
+  private static final String JOARK = PREFIX_JOARK + DELIMTER;
+
+  private IdValidering() {
+  }
+
+  /**
+   * @return true når journalpostId har kjent prefix (uavhengig av store og små bokstaver) og bare siffer etter prefix
+   */
+  public static boolean erGyldigJournalpostId(String journalpostId) {
+    if (journalpostId == null) {
+      return false;
+    }
+
+    if (harPrefix(journalpostId, BIDRAG)) {
+      return erBareSiffer(journalpostId, BIDRAG.length());
+    }
+
+    return harPrefix(journalpostId, JOARK) && erBareSiffer(journalpostId, JOARK.length());
+  }
+
+  /**
+   * @return true når journalpostId er gyldig og tilhører bidrag (ellers joark)
+   */
+  public static boolean erForBidrag(String journalpostId) {
+    return erGyldigJournalpostId(journalpostId) && harPrefix(journalpostId, BIDRAG);
+  }
+
+  /**
+   * Samme regel som saksnummer.matches("\\D+"): saksnummeret er ugyldig når det ikke har et eneste siffer.
+   */
+  public static boolean erUgyldigSaksnummer(String saksnummer) {
+    if (saksnummer.isEmpty()) {
+      return false;
+    }
+
+    for (int i = 0; i < saksnummer.length(); i++) {
+      if (erSiffer(saksnummer.charAt(i))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean harPrefix(String journalpostId, String prefix) {
+    return journalpostId.regionMatches(true, 0, prefix, 0, prefix.length());
+  }
+
+  private static boolean erBareSiffer(String journalpostId, int start) {
+    if (journalpostId.length() == start) {
+      return false;
+    }
+
+    for (int i = start; i < journalpostId.length(); i++) {
+      if (!erSiffer(journalpostId.charAt(i))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean erSiffer(char tegn) {
+    return tegn >= '0' && tegn <= '9';
+  }
+}
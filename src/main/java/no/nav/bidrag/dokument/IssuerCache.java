@@ -0,0 +1,73 @@
+package no.nav.bidrag.dokument;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jwt.JWTParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+public class IssuerCache {
+
+  static final Duration MAKS_LEVETID = Duration.ofHours(1);
+
+  private final Cache<String, TokenIssuer> cache;
+
+  public IssuerCache(long maksAntall, MeterRegistry meterRegistry) {
+    cache = Caffeine.newBuilder()
+        .maximumSize(maksAntall)
+        .expireAfter(new UtloperMedTokenet())
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "issuer");
+  }
+
+  public String hentIssuer(String idToken) {
+    return cache.get(Tokenhash.sha256(idToken), tokenhash -> lesIssuer(idToken)).issuer();
+  }
+
+  private static TokenIssuer lesIssuer(String idToken) {
+    try {
+      var claimsSet = JWTParser.parse(idToken).getJWTClaimsSet();
+      var utloper = Optional.ofNullable(claimsSet.getExpirationTime()).map(Date::toInstant).orElseGet(() -> Instant.now().plus(MAKS_LEVETID));
+
+      return new TokenIssuer(claimsSet.getIssuer(), utloper);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Kunne ikke hente informasjon om tokenets issuer", e);
+    }
+  }
+
+  private record TokenIssuer(String issuer, Instant utloper) {
+
+  }
+
+  private static class UtloperMedTokenet implements Expiry<String, TokenIssuer> {
+
+    @Override
+    public long expireAfterCreate(String tokenhash, TokenIssuer tokenIssuer, long currentTime) {
+      var levetid = Duration.between(Instant.now(), tokenIssuer.utloper());
+
+      if (levetid.isNegative()) {
+        return 0;
+      }
+
+      return levetid.compareTo(MAKS_LEVETID) > 0 ? MAKS_LEVETID.toNanos() : levetid.toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(String tokenhash, TokenIssuer tokenIssuer, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String tokenhash, TokenIssuer tokenIssuer, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package no.nav.bidrag.dokument;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 av et token, som brukes som nøkkel i cacher i stedet for selve tokenet, slik at gyldige token ikke blir liggende i minnet
+ * (og i heap dumps) så lenge de er cachet.
+ */
+public final class Tokenhash {
+
+  private Tokenhash() {
+  }
+
+  public static String sha256(String token) {
+    try {
+      var sha256 = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(sha256);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 er ikke tilgjengelig", e);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package no.nav.bidrag.dokument;
+
+import java.util.Arrays;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+/**
+ * Bønner fra pakkene i <code>startup.lazy-packages</code> (dokumentasjon av api-et med springdoc og swagger-ui) trengs ikke for å ta imot
+ * requester, og opprettes først når de brukes i stedet for under oppstarten. Bønner fra <code>@Bean</code>-metoder hører til pakken til
+ * konfigurasjonen som har metoden. Med native-image (Spring AOT) er bønnene registrert av generert kode uten annoteringsmetadata, og
+ * pakken finnes da fra factory-metoden eller typen som er registrert.
+ */
+public class UtsattInitialisering implements BeanFactoryPostProcessor, EnvironmentAware {
+
+  private String[] pakker = new String[0];
+
+  @Override
+  public void setEnvironment(Environment environment) {
+    pakker = environment.getProperty("startup.lazy-packages", String[].class, new String[0]);
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+    for (var beanName : beanFactory.getBeanDefinitionNames()) {
+      var beanDefinition = beanFactory.getBeanDefinition(beanName);
+
+      if (erIPakkene(hentKlassenavn(beanDefinition))) {
+        beanDefinition.setLazyInit(true);
+      }
+    }
+  }
+
+  private boolean erIPakkene(String klassenavn) {
+    return klassenavn != null && Arrays.stream(pakker).anyMatch(pakke -> !pakke.isBlank() && klassenavn.startsWith(pakke.strip() + "."));
+  }
+
+  private static String hentKlassenavn(BeanDefinition beanDefinition) {
+    if (beanDefinition instanceof AnnotatedBeanDefinition annotatedBeanDefinition && annotatedBeanDefinition.getFactoryMethodMetadata() != null) {
+      return annotatedBeanDefinition.getFactoryMethodMetadata().getDeclaringClassName();
+    }
+
+    // generert av Spring AOT (native-image): factory-metoden er allerede slått opp, og typen kan være registrert uten klassenavn
+    if (beanDefinition instanceof RootBeanDefinition rootBeanDefinition && rootBeanDefinition.getResolvedFactoryMethod() != null) {
+      return rootBeanDefinition.getResolvedFactoryMethod().getDeclaringClass().getName();
+    }
+
+    if (beanDefinition.getBeanClassName() != null) {
+      return beanDefinition.getBeanClassName();
+    }
+
+    var type = beanDefinition.getResolvableType().resolve();
+
+    return type != null ? type.getName() : null;
+  }
+}
@@ -13,8 +13,12 @@ import org.springframework.stereotype.Component;
 public class AspectExceptionLogger {
   private static final Logger LOGGER = LoggerFactory.getLogger(AspectExceptionLogger.class);
 
-  @AfterThrowing(pointcut = "within (no.nav.bidrag.dokument.controller..*)", throwing = "exception")
+  // bare controllerne, filtre i pakken (EtagFilter) har final metoder og kan ikke proxies
+  @AfterThrowing(
+      pointcut = "within (no.nav.bidrag.dokument.controller..*) && @within(org.springframework.web.bind.annotation.RestController)",
+      throwing = "exception"
+  )
   public void logException(JoinPoint joinPoint, Exception exception) {
-    LOGGER.warn("Det skjedde en feil i controller metoden {}", joinPoint.getSignature().toShortString() + "| Args => " + Arrays.asList(joinPoint.getArgs()), exception);
+    LOGGER.warn("Det skjedde en feil i controller metoden {}| Args => {}", joinPoint.getSignature().toShortString(), Arrays.asList(joinPoint.getArgs()), exception);
   }
 }
@@ -2,7 +2,11 @@ package no.nav.bidrag.dokument.aop;
 
 import static no.nav.bidrag.commons.web.WebUtil.initHttpHeadersWith;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import no.nav.bidrag.commons.ExceptionLogger;
+import no.nav.bidrag.dokument.concurrent.IngenLedigKapasitetException;
+import no.nav.bidrag.dokument.controller.UgyldigJournalpostIdException;
 import no.nav.security.token.support.spring.validation.interceptor.JwtTokenUnauthorizedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -31,6 +35,39 @@ public class BidragDokumentRestControllerAdvice extends ResponseEntityExceptionH
         .build();
   }
 
+  @ResponseBody
+  @ExceptionHandler
+  public ResponseEntity<?> handleCallNotPermittedException(CallNotPermittedException callNotPermittedException) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.WARNING, "Kall mot " + callNotPermittedException.getCausingCircuitBreakerName()
+            + " avvises midlertidig etter mange feil (circuit breaker er åpen)")
+        .build();
+  }
+
+  @ResponseBody
+  @ExceptionHandler
+  public ResponseEntity<?> handleBulkheadFullException(BulkheadFullException bulkheadFullException) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.WARNING, "For mange samtidige kall mot backend: " + bulkheadFullException.getMessage())
+        .build();
+  }
+
+  @ResponseBody
+  @ExceptionHandler
+  public ResponseEntity<?> handleIngenLedigKapasitetException(IngenLedigKapasitetException ingenLedigKapasitetException) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.WARNING, ingenLedigKapasitetException.getMessage() + ", prøv igjen senere")
+        .build();
+  }
+
+  @ResponseBody
+  @ExceptionHandler
+  public ResponseEntity<?> handleUgyldigJournalpostIdException(UgyldigJournalpostIdException ugyldigJournalpostIdException) {
+    return ResponseEntity.badRequest()
+        .header(HttpHeaders.WARNING, ugyldigJournalpostIdException.getWarning())
+        .build();
+  }
+
   @ExceptionHandler(value = JwtTokenUnauthorizedException.class)
   protected ResponseEntity<Object> handeUnauthorized(
       final JwtTokenUnauthorizedException ex, final WebRequest request) {
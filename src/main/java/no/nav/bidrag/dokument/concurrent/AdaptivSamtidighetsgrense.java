@@ -0,0 +1,100 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Grense for antall samtidige requester som justeres etter svartid (gradient). Svartiden for de siste requestene sammenlignes med et
+ * langsiktig snitt: når de siste er tregere, senkes grensen slik at overskytende requester avvises med en gang i stedet for å bli
+ * liggende i kø, og når svartiden er normal, økes grensen igjen.
+ */
+public class AdaptivSamtidighetsgrense {
+
+  // hvor mye tregere de siste svarene kan være enn snittet før grensen senkes
+  private static final double TOLERANSE = 1.5;
+  private static final double UTJEVNING = 0.2;
+  private static final int KORT_VINDU = 10;
+  private static final int LANGT_VINDU = 600;
+
+  private final AtomicInteger pagaende = new AtomicInteger();
+  private final int minGrense;
+  private final int maksGrense;
+  private double grense;
+  private double kortSvartid = -1;
+  private double langSvartid = -1;
+
+  public AdaptivSamtidighetsgrense(Innstillinger innstillinger) {
+    this.minGrense = innstillinger.minGrense();
+    this.maksGrense = innstillinger.maksGrense();
+    this.grense = innstillinger.startgrense();
+  }
+
+  /**
+   * @return false når grensen er nådd og requesten skal avvises, ellers true og {@link #frigi(long)} må kalles når requesten er ferdig
+   */
+  public boolean taPlass() {
+    while (true) {
+      var antall = pagaende.get();
+
+      if (antall >= hentGrense()) {
+        return false;
+      }
+
+      if (pagaende.compareAndSet(antall, antall + 1)) {
+        return true;
+      }
+    }
+  }
+
+  public void frigi(long svartidNanos) {
+    var antall = pagaende.getAndDecrement();
+    oppdater(svartidNanos, antall);
+  }
+
+  public synchronized int hentGrense() {
+    return (int) grense;
+  }
+
+  public int hentPagaende() {
+    return pagaende.get();
+  }
+
+  public void registrerMetrikker(MeterRegistry meterRegistry, String type) {
+    meterRegistry.gauge("bidrag.dokument.concurrency.limit", Tags.of("type", type), this, AdaptivSamtidighetsgrense::hentGrense);
+    meterRegistry.gauge("bidrag.dokument.concurrency.inflight", Tags.of("type", type), this, AdaptivSamtidighetsgrense::hentPagaende);
+  }
+
+  private synchronized void oppdater(long svartidNanos, int pagaendeVedSvar) {
+    var svartid = Math.max(1, svartidNanos);
+    kortSvartid = snitt(kortSvartid, svartid, KORT_VINDU);
+    langSvartid = snitt(langSvartid, svartid, LANGT_VINDU);
+
+    // etter en periode med treghet henger det lange snittet etter, og må få lov å falle raskere
+    if (langSvartid / kortSvartid > 2) {
+      langSvartid *= 0.95;
+    }
+
+    // grensen justeres ikke når den ikke er i nærheten av å være brukt, da sier svartiden lite om hvor mye som tåles
+    if (pagaendeVedSvar < grense / 2) {
+      return;
+    }
+
+    var gradient = Math.max(0.5, Math.min(1.0, TOLERANSE * langSvartid / kortSvartid));
+    var nyGrense = grense * gradient + Math.sqrt(grense);
+
+    grense = Math.max(minGrense, Math.min(maksGrense, grense * (1 - UTJEVNING) + nyGrense * UTJEVNING));
+  }
+
+  private static double snitt(double snitt, long maling, int vindu) {
+    if (snitt < 0) {
+      return maling;
+    }
+
+    return snitt + (maling - snitt) * 2 / (vindu + 1);
+  }
+
+  public record Innstillinger(int startgrense, int minGrense, int maksGrense) {
+
+  }
+}
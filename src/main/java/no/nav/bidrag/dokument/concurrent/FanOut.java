@@ -0,0 +1,155 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+public class FanOut {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FanOut.class);
+
+  private final AsyncTaskExecutor asyncTaskExecutor;
+  private final Map<String, Long> timeoutMillisPerTarget;
+  private final long standardTimeoutMillis;
+  private final DelvisResultat delvisResultat;
+
+  public FanOut(AsyncTaskExecutor asyncTaskExecutor, Map<String, Long> timeoutMillisPerTarget, long standardTimeoutMillis,
+      DelvisResultat delvisResultat) {
+    this.asyncTaskExecutor = asyncTaskExecutor;
+    this.timeoutMillisPerTarget = timeoutMillisPerTarget;
+    this.standardTimeoutMillis = standardTimeoutMillis;
+    this.delvisResultat = delvisResultat;
+  }
+
+  @SafeVarargs
+  public final <T> List<T> hentOgSammenstill(Kall<T>... kall) {
+    return hentOgSammenstillMedManglende(kall).resultat();
+  }
+
+  /**
+   * Som {@link #hentOgSammenstill(Kall[])}, men gir også target app-ene som ikke er med i resultatet fordi kallet feilet eller ikke
+   * svarte i tide (bare med delvis resultat TILLAT, ellers feiler hele kallet).
+   */
+  @SafeVarargs
+  public final <T> Sammenstilling<T> hentOgSammenstillMedManglende(Kall<T>... kall) {
+    var start = System.nanoTime();
+    var futures = new ArrayList<Future<List<T>>>(kall.length);
+
+    for (Kall<T> etKall : kall) {
+      var leverandor = etKall.leverandor();
+
+      try {
+        futures.add(asyncTaskExecutor.submit(() -> leverandor.get()));
+      } catch (RejectedExecutionException e) {
+        // kallet utføres ikke på request-tråden, der timeout for backend ikke ville gjelde
+        avbryt(futures);
+        throw new IngenLedigKapasitetException("Ingen ledig kapasitet til kall mot " + etKall.targetApp(), e);
+      }
+    }
+
+    return sammenstill(Arrays.stream(kall).map(Kall::targetApp).toList(), futures, start);
+  }
+
+  /**
+   * Kall som allerede er asynkrone (f.eks. fra en ikke-blokkerende http-klient) startes direkte, uten å bruke en tråd fra executoren.
+   */
+  @SafeVarargs
+  public final <T> List<T> hentOgSammenstill(AsynkrontKall<T>... kall) {
+    var start = System.nanoTime();
+    var futures = new ArrayList<Future<List<T>>>(kall.length);
+
+    for (AsynkrontKall<T> etKall : kall) {
+      futures.add(etKall.leverandor().get());
+    }
+
+    return sammenstill(Arrays.stream(kall).map(AsynkrontKall::targetApp).toList(), futures, start).resultat();
+  }
+
+  private <T> Sammenstilling<T> sammenstill(List<String> targetApps, List<Future<List<T>>> futures, long start) {
+    var sammenstilt = new ArrayList<T>();
+    var manglerFra = new ArrayList<String>();
+
+    for (int i = 0; i < futures.size(); i++) {
+      var targetApp = targetApps.get(i);
+      var future = futures.get(i);
+      var gjenstaendeNanos = TimeUnit.MILLISECONDS.toNanos(hentTimeoutMillis(targetApp)) - (System.nanoTime() - start);
+
+      try {
+        sammenstilt.addAll(future.get(Math.max(gjenstaendeNanos, 0), TimeUnit.NANOSECONDS));
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        handterFeil(targetApp, new IllegalStateException("Fikk ikke svar fra " + targetApp + " innen " + hentTimeoutMillis(targetApp) + " ms"), futures);
+        manglerFra.add(targetApp);
+      } catch (ExecutionException e) {
+        handterFeil(targetApp, e.getCause(), futures);
+        manglerFra.add(targetApp);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        avbryt(futures);
+        throw new IllegalStateException("Ble avbrutt under henting fra " + targetApp, e);
+      }
+    }
+
+    return new Sammenstilling<>(sammenstilt, manglerFra);
+  }
+
+  private long hentTimeoutMillis(String targetApp) {
+    return timeoutMillisPerTarget.getOrDefault(targetApp, standardTimeoutMillis);
+  }
+
+  private void handterFeil(String targetApp, Throwable feil, List<? extends Future<?>> futures) {
+    if (delvisResultat == DelvisResultat.TILLAT) {
+      LOGGER.warn("Returnerer delvis resultat uten data fra {}: {}", targetApp, feil.getMessage());
+      return;
+    }
+
+    avbryt(futures);
+
+    if (feil instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+
+    if (feil instanceof Error error) {
+      throw error;
+    }
+
+    throw new IllegalStateException("Henting fra " + targetApp + " feilet", feil);
+  }
+
+  private static void avbryt(List<? extends Future<?>> futures) {
+    futures.forEach(future -> future.cancel(true));
+  }
+
+  public enum DelvisResultat {
+    FEIL, TILLAT
+  }
+
+  public record Kall<T>(String targetApp, Supplier<List<T>> leverandor) {
+
+  }
+
+  public record AsynkrontKall<T>(String targetApp, Supplier<CompletableFuture<List<T>>> leverandor) {
+
+  }
+
+  /**
+   * @param manglerFra target app-ene som ikke har gitt noe til resultatet, se {@link #hentOgSammenstillMedManglende(Kall[])}
+   */
+  public record Sammenstilling<T>(List<T> resultat, List<String> manglerFra) {
+
+    public boolean erDelvis() {
+      return !manglerFra.isEmpty();
+    }
+  }
+}
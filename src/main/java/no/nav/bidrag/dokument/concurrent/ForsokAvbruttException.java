@@ -0,0 +1,12 @@
+package no.nav.bidrag.dokument.concurrent;
+
+/**
+ * Kallet mot backend ble avbrutt fordi et annet kall for samme lesing svarte først (se {@link Hedging}). Er ikke en feil hos backend, og
+ * telles derfor ikke i circuit breaker (ignore-exceptions i application.yaml).
+ */
+public class ForsokAvbruttException extends RuntimeException {
+
+  public ForsokAvbruttException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,354 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Idempotente lesinger som ikke har fått svar innen en gitt persentil av tidligere svartider for samme target app og operasjon, får et
+ * ekstra kall mot backend. Svaret som kommer først brukes. Antall ekstra kall begrenses av et budsjett (andel av alle kall), slik at en
+ * backend som er treg for alle ikke får dobbel last.
+ *
+ * <p>Første kall utføres på tråden til den som kaller, bare det ekstra kallet bruker en tråd fra executor. Når et av kallene har svart,
+ * avbrytes det andre (se {@link #registrerAvbrudd(Runnable)}), slik at det ikke holder på plassen i bulkhead og koblingen mot backend.
+ */
+public class Hedging {
+
+  private final ConcurrentHashMap<Nokkel, Svartider> svartider = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final MeterRegistry meterRegistry;
+  private final Executor executor;
+  private final Innstillinger innstillinger;
+  private final Budsjett budsjett;
+
+  public Hedging(boolean enabled, MeterRegistry meterRegistry, Executor executor, Innstillinger innstillinger) {
+    this.enabled = enabled;
+    this.meterRegistry = meterRegistry;
+    this.executor = executor;
+    this.innstillinger = innstillinger;
+    this.budsjett = new Budsjett(innstillinger.budsjett(), innstillinger.maksBudsjett());
+  }
+
+  /**
+   * Registrerer hvordan kallet som pågår på denne tråden avbrytes (f.eks. {@code HttpUriRequest::abort}) når det andre kallet har svart
+   * først. Gjør ingenting når tråden ikke utfører et kall med hedging.
+   */
+  public static void registrerAvbrudd(Runnable avbrudd) {
+    var forsok = Forsok.GJELDENDE.get();
+
+    if (forsok != null) {
+      forsok.registrer(avbrudd);
+    }
+  }
+
+  /**
+   * Om kallet som pågår på denne tråden er avbrutt fordi det andre kallet svarte først.
+   */
+  public static boolean erAvbrutt() {
+    var forsok = Forsok.GJELDENDE.get();
+    return forsok != null && forsok.erAvbrutt();
+  }
+
+  public <T> T utfor(String targetApp, String operasjon, Supplier<T> kall) {
+    if (!enabled) {
+      return kall.get();
+    }
+
+    var svartiderForKall = svartider.computeIfAbsent(new Nokkel(targetApp, operasjon), nokkel -> new Svartider(innstillinger.vindu()));
+    var forsinkelseMillis = svartiderForKall.persentil(innstillinger.persentil(), innstillinger.minimumAntallMalinger());
+    budsjett.registrerKall();
+
+    if (forsinkelseMillis < 0) {
+      // for få målinger til å vite hva som er tregt
+      return malt(kall, svartiderForKall).get();
+    }
+
+    var hedgetKall = new HedgetKall<T>();
+    var ekstraKall = CompletableFuture.runAsync(
+        () -> sendEkstraKall(targetApp, operasjon, malt(kall, svartiderForKall), hedgetKall),
+        CompletableFuture.delayedExecutor(Math.max(forsinkelseMillis, innstillinger.minForsinkelseMillis()), TimeUnit.MILLISECONDS, Runnable::run)
+    );
+
+    try {
+      var resultat = hedgetKall.forste.utfor(malt(kall, svartiderForKall));
+      ekstraKall.cancel(false);
+      hedgetKall.lykkes(hedgetKall.forste, resultat);
+    } catch (RuntimeException e) {
+      // også når kallet er avbrutt fordi det ekstra kallet svarte først, svaret er da allerede gitt
+      ekstraKall.cancel(false);
+      hedgetKall.feilet(e);
+    }
+
+    return vent(targetApp, hedgetKall.svar);
+  }
+
+  private <T> void sendEkstraKall(String targetApp, String operasjon, Supplier<T> kall, HedgetKall<T> hedgetKall) {
+    if (!hedgetKall.startEkstraKall()) {
+      return;
+    }
+
+    if (!budsjett.taUt()) {
+      hedgetKall.ekstraKallIkkeSendt();
+      return;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          var resultat = hedgetKall.ekstra.utfor(kall);
+
+          if (hedgetKall.lykkes(hedgetKall.ekstra, resultat)) {
+            meterRegistry.counter("bidrag.dokument.consumer.hedge.won", "targetApp", targetApp, "operation", operasjon).increment();
+          }
+        } catch (RuntimeException | Error e) {
+          hedgetKall.feilet(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      hedgetKall.ekstraKallIkkeSendt();
+      return;
+    }
+
+    meterRegistry.counter("bidrag.dokument.consumer.hedge.sent", "targetApp", targetApp, "operation", operasjon).increment();
+  }
+
+  private static <T> Supplier<T> malt(Supplier<T> kall, Svartider svartiderForKall) {
+    return () -> {
+      var start = System.nanoTime();
+      var resultat = kall.get();
+      svartiderForKall.registrer(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+      return resultat;
+    };
+  }
+
+  private static <T> T vent(String targetApp, CompletableFuture<T> kall) {
+    try {
+      return kall.get();
+    } catch (ExecutionException e) {
+      throw kastbar(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Ble avbrutt under kall mot " + targetApp, e);
+    }
+  }
+
+  private static RuntimeException kastbar(Throwable feil) {
+    var arsak = feil;
+
+    while (arsak instanceof CompletionException && arsak.getCause() != null) {
+      arsak = arsak.getCause();
+    }
+
+    if (arsak instanceof RuntimeException runtimeException) {
+      return runtimeException;
+    }
+
+    if (arsak instanceof Error error) {
+      throw error;
+    }
+
+    return new IllegalStateException(arsak);
+  }
+
+  /**
+   * Første kall og eventuelt ekstra kall. Svaret er det første vellykkede, eller feilen når alle kallene som ble sendt har feilet.
+   */
+  private static class HedgetKall<T> {
+
+    private final CompletableFuture<T> svar = new CompletableFuture<>();
+    private final Forsok forste = new Forsok();
+    private final Forsok ekstra = new Forsok();
+    private int antallSendt = 1;
+    private int antallFeil;
+    private Throwable sisteFeil;
+
+    synchronized boolean startEkstraKall() {
+      if (svar.isDone()) {
+        return false;
+      }
+
+      antallSendt++;
+      return true;
+    }
+
+    synchronized void ekstraKallIkkeSendt() {
+      antallSendt--;
+
+      if (antallFeil == antallSendt) {
+        // første kall feilet mens det ekstra kallet ble forsøkt sendt
+        svar.completeExceptionally(sisteFeil);
+      }
+    }
+
+    boolean lykkes(Forsok forsok, T resultat) {
+      if (!svar.complete(resultat)) {
+        return false;
+      }
+
+      (forsok == forste ? ekstra : forste).avbryt();
+      return true;
+    }
+
+    synchronized void feilet(Throwable feil) {
+      sisteFeil = feil;
+
+      if (++antallFeil == antallSendt) {
+        svar.completeExceptionally(feil);
+      }
+    }
+  }
+
+  /**
+   * Et av kallene, med det som trengs for å avbryte det mens det pågår.
+   */
+  private static class Forsok {
+
+    private static final ThreadLocal<Forsok> GJELDENDE = new ThreadLocal<>();
+
+    private Runnable avbrudd;
+    private boolean avbrutt;
+    private boolean ferdig;
+
+    <T> T utfor(Supplier<T> kall) {
+      var forrige = GJELDENDE.get();
+      GJELDENDE.set(this);
+
+      try {
+        return kall.get();
+      } finally {
+        GJELDENDE.set(forrige);
+
+        synchronized (this) {
+          ferdig = true;
+          avbrudd = null;
+        }
+      }
+    }
+
+    void registrer(Runnable avbrudd) {
+      synchronized (this) {
+        if (!avbrutt) {
+          this.avbrudd = avbrudd;
+          return;
+        }
+      }
+
+      // avbrutt før kallet mot backend ble startet
+      avbrudd.run();
+    }
+
+    void avbryt() {
+      Runnable registrertAvbrudd;
+
+      synchronized (this) {
+        if (avbrutt || ferdig) {
+          return;
+        }
+
+        avbrutt = true;
+        registrertAvbrudd = avbrudd;
+      }
+
+      if (registrertAvbrudd != null) {
+        registrertAvbrudd.run();
+      }
+    }
+
+    synchronized boolean erAvbrutt() {
+      return avbrutt;
+    }
+  }
+
+  /**
+   * @param persentil             svartid (som andel, f.eks. 0.95) som et kall må ha brukt før det sendes et ekstra kall
+   * @param minForsinkelseMillis  ekstra kall sendes aldri tidligere enn dette
+   * @param minimumAntallMalinger antall målte svar som trengs før ekstra kall sendes
+   * @param vindu                 antall siste svartider persentilen regnes ut fra
+   * @param budsjett              ekstra kall som andel av alle kall
+   * @param maksBudsjett          antall ekstra kall som kan spares opp i perioder uten treghet
+   */
+  public record Innstillinger(double persentil, long minForsinkelseMillis, int minimumAntallMalinger, int vindu, double budsjett,
+                              double maksBudsjett) {
+
+  }
+
+  private record Nokkel(String targetApp, String operasjon) {
+
+  }
+
+  /**
+   * De siste svartidene i en ringbuffer. Persentilen regnes ut på nytt etter et antall nye målinger, ikke for hvert kall.
+   */
+  private static class Svartider {
+
+    private final long[] malinger;
+    private final int nyBeregningEtter;
+    private int neste;
+    private int antall;
+    private int siden;
+    private long persentil = -1;
+
+    Svartider(int vindu) {
+      malinger = new long[vindu];
+      nyBeregningEtter = Math.max(1, vindu / 20);
+    }
+
+    synchronized void registrer(long millis) {
+      malinger[neste] = millis;
+      neste = (neste + 1) % malinger.length;
+      antall = Math.min(antall + 1, malinger.length);
+      siden++;
+    }
+
+    synchronized long persentil(double andel, int minimumAntallMalinger) {
+      if (antall < minimumAntallMalinger) {
+        return -1;
+      }
+
+      if (persentil < 0 || siden >= nyBeregningEtter) {
+        var sortert = Arrays.copyOf(malinger, antall);
+        Arrays.sort(sortert);
+        persentil = sortert[Math.max(0, Math.min(antall - 1, (int) Math.ceil(andel * antall) - 1))];
+        siden = 0;
+      }
+
+      return persentil;
+    }
+  }
+
+  /**
+   * Hvert kall gir en andel av et ekstra kall, et ekstra kall bruker én hel.
+   */
+  private static class Budsjett {
+
+    private final double andelPerKall;
+    private final double maks;
+    private double saldo;
+
+    Budsjett(double andelPerKall, double maks) {
+      this.andelPerKall = andelPerKall;
+      this.maks = maks;
+    }
+
+    synchronized void registrerKall() {
+      saldo = Math.min(maks, saldo + andelPerKall);
+    }
+
+    synchronized boolean taUt() {
+      if (saldo < 1) {
+        return false;
+      }
+
+      saldo--;
+      return true;
+    }
+  }
+}
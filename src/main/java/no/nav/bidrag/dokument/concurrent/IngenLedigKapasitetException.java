@@ -0,0 +1,11 @@
+package no.nav.bidrag.dokument.concurrent;
+
+/**
+ * Det er ingen ledig tråd eller plass i køen til å starte kallet mot backend. Gir 503, slik at klienten kan prøve igjen senere.
+ */
+public class IngenLedigKapasitetException extends RuntimeException {
+
+  public IngenLedigKapasitetException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,80 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * Behandler elementer gruppert (f.eks. per backend) med et fast antall samtidige arbeidere per gruppe. Behandlingen skal selv håndtere
+ * feil for et enkelt element og må ikke returnere null. Er det ikke ledig kapasitet til noen arbeider for en gruppe, avvises hele
+ * behandlingen med {@link IngenLedigKapasitetException}.
+ */
+public class ParallellBehandling {
+
+  private final AsyncTaskExecutor asyncTaskExecutor;
+
+  public ParallellBehandling(AsyncTaskExecutor asyncTaskExecutor) {
+    this.asyncTaskExecutor = asyncTaskExecutor;
+  }
+
+  public <I, R> Map<I, R> behandle(Map<String, List<I>> elementerPerGruppe, int parallellitetPerGruppe, Function<I, R> behandling) {
+    var resultater = new ConcurrentHashMap<I, R>();
+    var arbeidere = new ArrayList<Future<?>>();
+
+    elementerPerGruppe.values().forEach(elementer -> {
+      var ko = new ConcurrentLinkedQueue<>(elementer);
+      var antallArbeidere = Math.min(parallellitetPerGruppe, elementer.size());
+
+      for (int i = 0; i < antallArbeidere; i++) {
+        try {
+          arbeidere.add(asyncTaskExecutor.submit(() -> {
+            I element;
+
+            while ((element = ko.poll()) != null) {
+              resultater.put(element, behandling.apply(element));
+            }
+          }));
+        } catch (RejectedExecutionException e) {
+          if (i > 0) {
+            // gruppen behandles med færre samtidige arbeidere
+            break;
+          }
+
+          arbeidere.forEach(future -> future.cancel(true));
+          throw new IngenLedigKapasitetException("Ingen ledig kapasitet til parallell behandling", e);
+        }
+      }
+    });
+
+    for (var arbeider : arbeidere) {
+      vent(arbeider, arbeidere);
+    }
+
+    return resultater;
+  }
+
+  private static void vent(Future<?> arbeider, List<Future<?>> arbeidere) {
+    try {
+      arbeider.get();
+    } catch (ExecutionException e) {
+      arbeidere.forEach(future -> future.cancel(true));
+
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      throw new IllegalStateException("Parallell behandling feilet", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      arbeidere.forEach(future -> future.cancel(true));
+      throw new IllegalStateException("Parallell behandling ble avbrutt", e);
+    }
+  }
+}
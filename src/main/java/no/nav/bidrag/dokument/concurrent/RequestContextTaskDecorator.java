@@ -0,0 +1,42 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import java.util.Map;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Tar med request-konteksten (request attributes med sikkerhetstoken, samt MDC med correlation id) fra tråden som gir oppdraget og inn i
+ * tråden som utfører det. Forrige kontekst på utførende tråd blir gjenopprettet etterpå, slik at dette også virker når oppdraget kjøres av
+ * tråden som ga det.
+ */
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+  @Override
+  public Runnable decorate(Runnable runnable) {
+    var requestAttributes = RequestContextHolder.getRequestAttributes();
+    var mdc = MDC.getCopyOfContextMap();
+
+    return () -> {
+      var forrigeRequestAttributes = RequestContextHolder.getRequestAttributes();
+      var forrigeMdc = MDC.getCopyOfContextMap();
+
+      try {
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        settMdc(mdc);
+        runnable.run();
+      } finally {
+        RequestContextHolder.setRequestAttributes(forrigeRequestAttributes);
+        settMdc(forrigeMdc);
+      }
+    };
+  }
+
+  private static void settMdc(Map<String, String> mdc) {
+    if (mdc == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(mdc);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Avviser requester med 503 når antall samtidige requester er over en {@link AdaptivSamtidighetsgrense}. Endringer av journalposter
+ * (endre, behandle avvik og distribuere) har sin egen grense, slik at lesinger og endringer ikke fortrenger hverandre. Batcher og
+ * strømming av sak journal varer så mye lenger enn andre kall at de ville presset grensen ned for alle, og er derfor ikke med. De er
+ * begrenset av egne tråder (se ParallellBehandling og FanOut) og bulkhead mot backend.
+ */
+public class SamtidighetsgrenseFilter extends OncePerRequestFilter {
+
+  private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+  private static final List<Endepunkt> SKRIVING = List.of(
+      new Endepunkt(HttpMethod.PATCH, "/journal/*"),
+      new Endepunkt(HttpMethod.POST, "/journal/*/avvik"),
+      new Endepunkt(HttpMethod.POST, "/journal/distribuer/*")
+  );
+  private static final List<Endepunkt> LANGVARIGE = List.of(
+      new Endepunkt(HttpMethod.POST, "/journal/batch"),
+      new Endepunkt(HttpMethod.POST, "/journal/distribuer/enabled"),
+      new Endepunkt(HttpMethod.POST, "/journal/distribuer/batch/*")
+  );
+
+  private final AdaptivSamtidighetsgrense lesing;
+  private final AdaptivSamtidighetsgrense skriving;
+  private final MeterRegistry meterRegistry;
+
+  public SamtidighetsgrenseFilter(AdaptivSamtidighetsgrense lesing, AdaptivSamtidighetsgrense skriving, MeterRegistry meterRegistry) {
+    this.lesing = lesing;
+    this.skriving = skriving;
+    this.meterRegistry = meterRegistry;
+
+    lesing.registrerMetrikker(meterRegistry, "read");
+    skriving.registrerMetrikker(meterRegistry, "write");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    var erSkriving = erSkriving(request);
+    var grense = erSkriving ? skriving : lesing;
+
+    if (!grense.taPlass()) {
+      meterRegistry.counter("bidrag.dokument.concurrency.rejected", "type", erSkriving ? "write" : "read").increment();
+      response.setHeader(HttpHeaders.WARNING, "For mange samtidige " + (erSkriving ? "endringer" : "lesinger") + ", prøv igjen senere");
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+
+      return;
+    }
+
+    var start = System.nanoTime();
+    var erAsynkron = false;
+
+    try {
+      filterChain.doFilter(request, response);
+      erAsynkron = request.isAsyncStarted();
+    } finally {
+      if (erAsynkron) {
+        // lesinger med async-request.enabled er ikke ferdige før svaret er skrevet, selv om tråden fra tomcat er gitt tilbake
+        request.getAsyncContext().addListener(new FrigiNarFerdig(grense, start));
+      } else {
+        grense.frigi(System.nanoTime() - start);
+      }
+    }
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    var path = hentPath(request);
+
+    return path.startsWith("/actuator")
+        || erStromming(request)
+        || LANGVARIGE.stream().anyMatch(endepunkt -> endepunkt.matcher(request.getMethod(), path));
+  }
+
+  private static boolean erStromming(HttpServletRequest request) {
+    var accept = request.getHeader(HttpHeaders.ACCEPT);
+
+    return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+  }
+
+  private static boolean erSkriving(HttpServletRequest request) {
+    var path = hentPath(request);
+
+    return SKRIVING.stream().anyMatch(endepunkt -> endepunkt.matcher(request.getMethod(), path));
+  }
+
+  private static String hentPath(HttpServletRequest request) {
+    return request.getRequestURI().substring(request.getContextPath().length());
+  }
+
+  private record FrigiNarFerdig(AdaptivSamtidighetsgrense grense, long start) implements AsyncListener {
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      grense.frigi(System.nanoTime() - start);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // onComplete kalles også etter timeout
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      // onComplete kalles også etter feil
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+  }
+
+  private record Endepunkt(HttpMethod httpMethod, String pathmonster) {
+
+    boolean matcher(String metode, String path) {
+      return httpMethod.matches(metode) && ANT_PATH_MATCHER.match(pathmonster, path);
+    }
+  }
+}
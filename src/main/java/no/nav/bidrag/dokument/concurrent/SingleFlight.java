@@ -0,0 +1,113 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import no.nav.bidrag.dokument.BidragDokumentConfig.OidcTokenManager;
+
+/**
+ * Samtidige og identiske lesinger (samme target app, samme path og samme sikkerhetstoken) deler ett kall mot backend. Den første som
+ * spør utfører kallet, de andre venter på og får samme resultat (eller samme feil).
+ */
+public class SingleFlight {
+
+  private final ConcurrentHashMap<Nokkel, CompletableFuture<Object>> pagaendeKall = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final MeterRegistry meterRegistry;
+  private final OidcTokenManager oidcTokenManager;
+
+  public SingleFlight(boolean enabled, MeterRegistry meterRegistry, OidcTokenManager oidcTokenManager) {
+    this.enabled = enabled;
+    this.meterRegistry = meterRegistry;
+    this.oidcTokenManager = oidcTokenManager;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T utfor(String targetApp, String operasjon, String path, Supplier<T> kall) {
+    if (!enabled) {
+      return kall.get();
+    }
+
+    var nokkel = new Nokkel(targetApp, path, oidcTokenManager.fetchToken());
+    var egetKall = new CompletableFuture<Object>();
+    var pagaendeKall = this.pagaendeKall.putIfAbsent(nokkel, egetKall);
+
+    if (pagaendeKall != null) {
+      meterRegistry.counter("bidrag.dokument.consumer.coalesced", "targetApp", targetApp, "operation", operasjon).increment();
+      return (T) vent(pagaendeKall);
+    }
+
+    try {
+      var resultat = kall.get();
+      egetKall.complete(resultat);
+
+      return resultat;
+    } catch (RuntimeException | Error e) {
+      egetKall.completeExceptionally(e);
+      throw e;
+    } finally {
+      this.pagaendeKall.remove(nokkel, egetKall);
+    }
+  }
+
+  /**
+   * Som {@link #utfor(String, String, String, Supplier)} for kall som ikke blokkerer. Hver som spør får sin egen future, slik at den som
+   * avbryter ikke avbryter kallet for de andre.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> utforAsynkront(String targetApp, String operasjon, String path, Supplier<CompletableFuture<T>> kall) {
+    if (!enabled) {
+      return kall.get();
+    }
+
+    var nokkel = new Nokkel(targetApp, path, oidcTokenManager.fetchToken());
+    var egetKall = new CompletableFuture<Object>();
+    var pagaendeKall = this.pagaendeKall.putIfAbsent(nokkel, egetKall);
+
+    if (pagaendeKall != null) {
+      meterRegistry.counter("bidrag.dokument.consumer.coalesced", "targetApp", targetApp, "operation", operasjon).increment();
+      return (CompletableFuture<T>) pagaendeKall.thenApply(Function.identity());
+    }
+
+    try {
+      kall.get().whenComplete((resultat, feil) -> {
+        this.pagaendeKall.remove(nokkel, egetKall);
+
+        if (feil != null) {
+          egetKall.completeExceptionally(feil instanceof CompletionException && feil.getCause() != null ? feil.getCause() : feil);
+        } else {
+          egetKall.complete(resultat);
+        }
+      });
+    } catch (RuntimeException | Error e) {
+      this.pagaendeKall.remove(nokkel, egetKall);
+      egetKall.completeExceptionally(e);
+      throw e;
+    }
+
+    return (CompletableFuture<T>) egetKall.thenApply(Function.identity());
+  }
+
+  private static Object vent(CompletableFuture<Object> pagaendeKall) {
+    try {
+      return pagaendeKall.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+
+      throw e;
+    }
+  }
+
+  private record Nokkel(String targetApp, String path, String identitet) {
+
+  }
+}
@@ -0,0 +1,22 @@
+package no.nav.bidrag.dokument.consumer;
+
+import no.nav.bidrag.dokument.concurrent.Hedging;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Lar {@link Hedging} avbryte et kall som pågår når et annet kall for samme lesing har svart først. Koblingen lukkes da, og tråden som
+ * venter på svar fra backend får en feil i stedet for å vente på et svar som ikke skal brukes.
+ */
+public class AvbrytbarHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+  public AvbrytbarHttpRequestFactory(HttpClient httpClient) {
+    super(httpClient);
+  }
+
+  @Override
+  protected void postProcessHttpRequest(HttpUriRequest request) {
+    Hedging.registrerAvbrudd(request::abort);
+  }
+}
@@ -2,9 +2,15 @@ package no.nav.bidrag.dokument.consumer;
 
 import static no.nav.bidrag.commons.web.EnhetFilter.X_ENHET_HEADER;
 
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import no.nav.bidrag.commons.web.CorrelationIdFilter;
 import no.nav.bidrag.commons.web.HttpResponse;
 import no.nav.bidrag.dokument.dto.AvvikType;
 import no.nav.bidrag.dokument.dto.Avvikshendelse;
@@ -21,6 +27,9 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 public class BidragDokumentConsumer {
@@ -30,11 +39,11 @@ public class BidragDokumentConsumer {
   public static final String PATH_JOURNALPOST_UTEN_SAK = "/journal/%s";
   public static final String PATH_SAK_JOURNAL = "/sak/%s/journal";
   private static final String PATH_JOURNALPOST = "/journal/%s";
-  private static final String PATH_DISTRIBUER = "/journal/distribuer/%s";
-  private static final String PATH_DISTRIBUER_ENABLED = "/journal/distribuer/%s/enabled";
-  private static final String PATH_JOURNALPOST_MED_SAKPARAM = "/journal/%s?saksnummer=%s";
-  private static final String PARAM_FAGOMRADE = "fagomrade";
-  private static final String PARAM_BATCHID = "batchId";
+  public static final String PATH_DISTRIBUER = "/journal/distribuer/%s";
+  public static final String PATH_DISTRIBUER_ENABLED = "/journal/distribuer/%s/enabled";
+  public static final String PATH_JOURNALPOST_MED_SAKPARAM = "/journal/%s?saksnummer=%s";
+  public static final String PARAM_FAGOMRADE = "fagomrade";
+  public static final String PARAM_BATCHID = "batchId";
   private static final String PARAM_SAKSNUMMER = "saksnummer";
   public static final String PATH_AVVIK_PA_JOURNALPOST_MED_SAK_PARAM = "/journal/%s/avvik?" + PARAM_SAKSNUMMER + "=%s";
   public static final String PATH_AVVIK_PA_JOURNALPOST = "/journal/%s/avvik";
@@ -61,17 +70,19 @@ public class BidragDokumentConsumer {
 
     LOGGER.info("Finner avvik på journalpost fra {}{}", consumerTarget.getTargetApp(), path);
 
-    var avviksResponse = consumerTarget.henteRestTemplateForIssuer().exchange(path, HttpMethod.GET, null, typereferansenErListeMedAvvikstyper());
-    return new HttpResponse<>(avviksResponse);
+    return consumerTarget.utforLesing("finnAvvik", path, restTemplate -> {
+      var avviksResponse = restTemplate.exchange(path, HttpMethod.GET, null, typereferansenErListeMedAvvikstyper());
+      return new HttpResponse<>(avviksResponse);
+    });
   }
 
 
   public HttpResponse<BehandleAvvikshendelseResponse> behandleAvvik(String enhetsnummer, String journalpostId, Avvikshendelse avvikshendelse) {
     var path = String.format(PATH_JOURNALPOST_UTEN_SAK + "/avvik", journalpostId);
-    LOGGER.info("{}{}: {}", consumerTarget.getTargetApp(), path, avvikshendelse);
+    LOGGER.info("{}{}: {}", consumerTarget.getTargetApp(), path, avvikshendelse.getAvvikType());
 
-    var avviksResponse = consumerTarget.henteRestTemplateForIssuer()
-        .exchange(path, HttpMethod.POST, new HttpEntity<>(avvikshendelse, createEnhetHeader(enhetsnummer)), BehandleAvvikshendelseResponse.class);
+    var avviksResponse = consumerTarget.utfor("behandleAvvik", restTemplate -> restTemplate
+        .exchange(path, HttpMethod.POST, new HttpEntity<>(avvikshendelse, createEnhetHeader(enhetsnummer)), BehandleAvvikshendelseResponse.class));
 
     return new HttpResponse<>(avviksResponse);
   }
@@ -85,32 +96,83 @@ public class BidragDokumentConsumer {
       url = String.format(PATH_JOURNALPOST_MED_SAKPARAM, id, saksnummer);
     }
 
-    var journalpostExchange = consumerTarget.henteRestTemplateForIssuer().exchange(url, HttpMethod.GET, null, JournalpostResponse.class);
+    return consumerTarget.utforLesing("hentJournalpost", url, restTemplate -> {
+      var journalpostExchange = restTemplate.exchange(url, HttpMethod.GET, null, JournalpostResponse.class);
 
-    LOGGER.info("Hent journalpost fikk http status {} fra {}", journalpostExchange.getStatusCode(), consumerTarget.getTargetApp());
+      LOGGER.info("Hent journalpost fikk http status {} fra {}", journalpostExchange.getStatusCode(), consumerTarget.getTargetApp());
 
-    return new HttpResponse<>(journalpostExchange);
+      return new HttpResponse<>(journalpostExchange);
+    });
   }
 
   public List<JournalpostDto> finnJournalposter(String saksnummer, String fagomrade) {
     var uri = UriComponentsBuilder.fromPath(String.format(PATH_JOURNAL, saksnummer)).queryParam(PARAM_FAGOMRADE, fagomrade).toUriString();
 
-    var journalposterFraArkiv = consumerTarget.henteRestTemplateForIssuer()
-        .exchange(uri, HttpMethod.GET, null, typereferansenErListeMedJournalposter());
-    var httpStatus = journalposterFraArkiv.getStatusCode();
+    return consumerTarget.utforLesing("finnJournalposter", uri, restTemplate -> {
+      var journalposterFraArkiv = restTemplate
+          .exchange(uri, HttpMethod.GET, null, typereferansenErListeMedJournalposter());
+      var httpStatus = journalposterFraArkiv.getStatusCode();
 
-    LOGGER.info("Fikk http status {} fra journalposter i bidragssak med saksnummer {} på fagområde {} fra {}", httpStatus,
-        saksnummer, fagomrade, consumerTarget.getTargetApp());
+      LOGGER.info("Fikk http status {} fra journalposter i bidragssak med saksnummer {} på fagområde {} fra {}", httpStatus,
+          saksnummer, fagomrade, consumerTarget.getTargetApp());
 
-    return Optional.ofNullable(journalposterFraArkiv.getBody()).orElse(Collections.emptyList());
+      return Optional.ofNullable(journalposterFraArkiv.getBody()).orElse(Collections.emptyList());
+    });
+  }
+
+  /**
+   * Leser journalpostene fortløpende fra responsen og gir dem til mottakeren etter hvert som de er lest, uten å holde hele
+   * journalen i minnet.
+   */
+  public void finnJournalposter(String saksnummer, String fagomrade, Consumer<JournalpostDto> mottaker) {
+    var uri = UriComponentsBuilder.fromPath(String.format(PATH_JOURNAL, saksnummer)).queryParam(PARAM_FAGOMRADE, fagomrade).toUriString();
+    var antall = consumerTarget.utforStrommende("finnJournalposter", uri, request -> {
+      request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+
+      var correlationId = CorrelationIdFilter.fetchCorrelationIdForThread();
+
+      if (correlationId != null) {
+        request.getHeaders().set(CorrelationIdFilter.CORRELATION_ID_HEADER, correlationId);
+      }
+    }, restTemplate -> response -> lesJournalposter(hentObjectMapper(restTemplate), response.getBody(), mottaker));
+
+    LOGGER.info("Strømmet {} journalposter i bidragssak med saksnummer {} på fagområde {} fra {}", antall, saksnummer, fagomrade,
+        consumerTarget.getTargetApp());
+  }
+
+  private static int lesJournalposter(ObjectMapper objectMapper, InputStream body, Consumer<JournalpostDto> mottaker) throws IOException {
+    var antall = 0;
+
+    try (var jsonParser = objectMapper.getFactory().createParser(body)) {
+      if (jsonParser.nextToken() != JsonToken.START_ARRAY) {
+        return antall;
+      }
+
+      var journalpostReader = objectMapper.readerFor(JournalpostDto.class);
+
+      while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+        mottaker.accept(journalpostReader.readValue(jsonParser));
+        antall++;
+      }
+    }
+
+    return antall;
+  }
+
+  private static ObjectMapper hentObjectMapper(RestTemplate restTemplate) {
+    return restTemplate.getMessageConverters().stream()
+        .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+        .map(messageConverter -> ((MappingJackson2HttpMessageConverter) messageConverter).getObjectMapper())
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException("RestTemplate mangler json-konvertering"));
   }
 
   public HttpResponse<Void> endre(String enhet, EndreJournalpostCommand endreJournalpostCommand) {
     var path = String.format(PATH_JOURNALPOST_UTEN_SAK, endreJournalpostCommand.getJournalpostId());
-    LOGGER.info("Endre journalpost BidragDokument: {}, path {}", endreJournalpostCommand, path);
+    LOGGER.info("Endre journalpost BidragDokument: {}, path {}", endreJournalpostCommand.getJournalpostId(), path);
 
-    var endretJournalpostResponse = consumerTarget.henteRestTemplateForIssuer()
-        .exchange(path, HttpMethod.PATCH, new HttpEntity<>(endreJournalpostCommand, createEnhetHeader(enhet)), Void.class);
+    var endretJournalpostResponse = consumerTarget.utfor("endre", restTemplate -> restTemplate
+        .exchange(path, HttpMethod.PATCH, new HttpEntity<>(endreJournalpostCommand, createEnhetHeader(enhet)), Void.class));
 
     LOGGER.info("Endre journalpost fikk http status {}", endretJournalpostResponse.getStatusCode());
 
@@ -125,8 +187,8 @@ public class BidragDokumentConsumer {
 
     var uri = uriBuilder.toUriString();
 
-    var distribuerJournalpostResponse = consumerTarget.henteRestTemplateForIssuer()
-        .exchange(uri, HttpMethod.POST, new HttpEntity<>(distribuerJournalpostRequest), DistribuerJournalpostResponse.class);
+    var distribuerJournalpostResponse = consumerTarget.utfor("distribuerJournalpost", restTemplate -> restTemplate
+        .exchange(uri, HttpMethod.POST, new HttpEntity<>(distribuerJournalpostRequest), DistribuerJournalpostResponse.class));
 
     LOGGER.info("Distribuer journalpost fikk http status {}", distribuerJournalpostResponse.getStatusCode());
 
@@ -136,11 +198,13 @@ public class BidragDokumentConsumer {
   public HttpResponse<Void> kanDistribuereJournalpost(String journalpostId) {
     var path = String.format(PATH_DISTRIBUER_ENABLED, journalpostId);
 
-    var distribuerJournalpostResponse = consumerTarget.henteRestTemplateForIssuer().exchange(path, HttpMethod.GET, null, Void.class);
+    return consumerTarget.utforLesing("kanDistribuereJournalpost", path, restTemplate -> {
+      var distribuerJournalpostResponse = restTemplate.exchange(path, HttpMethod.GET, null, Void.class);
 
-    LOGGER.info("Sjekk distribuer journalpost fikk http status {}", distribuerJournalpostResponse.getStatusCode());
+      LOGGER.info("Sjekk distribuer journalpost fikk http status {}", distribuerJournalpostResponse.getStatusCode());
 
-    return new HttpResponse<>(distribuerJournalpostResponse);
+      return new HttpResponse<>(distribuerJournalpostResponse);
+    });
   }
 
 
@@ -1,20 +1,167 @@
 package no.nav.bidrag.dokument.consumer;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.decorators.Decorators;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.function.Function;
 import lombok.Builder;
 import lombok.Getter;
+import no.nav.bidrag.commons.web.HttpResponse;
 import no.nav.bidrag.dokument.BidragDokumentConfig.RestTemplateProvider;
+import no.nav.bidrag.dokument.concurrent.ForsokAvbruttException;
+import no.nav.bidrag.dokument.concurrent.Hedging;
+import no.nav.bidrag.dokument.concurrent.SingleFlight;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
 @Getter
 @Builder
 public class ConsumerTarget {
 
+  static final String TIMER = "bidrag.dokument.consumer.requests";
+
   private RestTemplate azureRestTemplate;
   private RestTemplate issoRestTemplate;
   private RestTemplateProvider restTemplateProvider;
+  private SingleFlight singleFlight;
+  private Hedging hedging;
+  private CircuitBreaker circuitBreaker;
+  private Bulkhead bulkhead;
+  private MeterRegistry meterRegistry;
   private String targetApp;
 
   public RestTemplate henteRestTemplateForIssuer() {
     return restTemplateProvider.provideRestTemplate(this);
   }
+
+  /**
+   * Lesingen er en idempotent GET, og kan derfor deles med identiske kall (single flight) og sendes på nytt når den er treg (hedging).
+   */
+  public <T> T utforLesing(String operasjon, String path, Function<RestTemplate, T> lesing) {
+    return singleFlight.utfor(targetApp, operasjon, path, () -> hedging.utfor(targetApp, operasjon, () -> utfor(operasjon, lesing)));
+  }
+
+  /**
+   * Kallet avvises uten å gå til backend når bulkhead for targetApp er full eller circuit breaker er åpen, slik at en treg backend
+   * ikke binder opp tråder som trengs for kall mot de andre. Kall som går til backend måles med timeren
+   * bidrag.dokument.consumer.requests.
+   */
+  public <T> T utfor(String operasjon, Function<RestTemplate, T> kall) {
+    var restTemplate = henteRestTemplateForIssuer();
+
+    return Decorators.ofSupplier(() -> mal(operasjon, restTemplate, kall))
+        .withCircuitBreaker(circuitBreaker)
+        .withBulkhead(bulkhead)
+        .get();
+  }
+
+  /**
+   * For en GET der responsen leses fortløpende og gis videre til klienten. Bulkhead, circuit breaker og timeren gjelder bare til
+   * backend har svart med status og headere, slik at en treg klient verken holder av plassen i bulkhead, blir regnet som en treg
+   * backend eller blir målt som svartid fra backend. En feil mens resten av responsen leses telles derfor ikke i circuit breaker.
+   */
+  public <T> T utforStrommende(
+      String operasjon, String uri, RequestCallback requestCallback, Function<RestTemplate, ResponseExtractor<T>> responsleser
+  ) {
+    var restTemplate = henteRestTemplateForIssuer();
+    var lesing = responsleser.apply(restTemplate);
+
+    bulkhead.acquirePermission();
+
+    try {
+      circuitBreaker.acquirePermission();
+    } catch (CallNotPermittedException e) {
+      bulkhead.onComplete();
+      throw e;
+    }
+
+    var sample = Timer.start(meterRegistry);
+    var start = circuitBreaker.getCurrentTimestamp();
+    var backendHarSvart = new boolean[1];
+
+    try {
+      return restTemplate.execute(uri, HttpMethod.GET, requestCallback, response -> {
+        // feilstatus er allerede kastet som exception av RestTemplate, så backend har svart uten feil
+        backendHarSvart[0] = true;
+        sample.stop(timer(operasjon, restTemplate, response.getRawStatusCode()));
+        circuitBreaker.onSuccess(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit());
+        bulkhead.onComplete();
+
+        return lesing.extractData(response);
+      });
+    } catch (RuntimeException | Error e) {
+      if (!backendHarSvart[0]) {
+        sample.stop(timer(operasjon, restTemplate, e instanceof RestClientResponseException feilstatus ? feilstatus.getRawStatusCode() : null));
+        circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), e);
+        bulkhead.onComplete();
+      }
+
+      throw e;
+    }
+  }
+
+  private <T> T mal(String operasjon, RestTemplate restTemplate, Function<RestTemplate, T> kall) {
+    var sample = Timer.start(meterRegistry);
+    Integer status = null;
+
+    try {
+      var resultat = kall.apply(restTemplate);
+      status = hentStatus(resultat);
+
+      return resultat;
+    } catch (RestClientResponseException e) {
+      status = e.getRawStatusCode();
+
+      throw e;
+    } catch (ResourceAccessException e) {
+      if (Hedging.erAvbrutt()) {
+        throw new ForsokAvbruttException("Kall mot " + targetApp + " ble avbrutt fordi et annet kall svarte først", e);
+      }
+
+      throw e;
+    } finally {
+      sample.stop(timer(operasjon, restTemplate, status));
+    }
+  }
+
+  private Timer timer(String operasjon, RestTemplate restTemplate, Integer status) {
+    return meterRegistry.timer(TIMER, tags(targetApp, operasjon, restTemplate == azureRestTemplate, status));
+  }
+
+  private static int hentStatus(Object resultat) {
+    if (resultat instanceof HttpResponse<?> httpResponse) {
+      return httpResponse.getResponseEntity().getStatusCodeValue();
+    }
+
+    if (resultat instanceof ResponseEntity<?> responseEntity) {
+      return responseEntity.getStatusCodeValue();
+    }
+
+    // andre resultat (journalposter som er lest fra responsen) betyr at backend svarte uten feil
+    return HttpStatus.OK.value();
+  }
+
+  /**
+   * Tags for timeren, felles med {@link ReaktivConsumerTarget}.
+   */
+  static Tags tags(String targetApp, String operasjon, boolean azure, Integer status) {
+    return Tags.of(
+        "targetApp", targetApp,
+        "operation", operasjon,
+        "issuer", azure ? "azure" : "isso",
+        "status", status != null ? (status / 100) + "xx" : "IO_ERROR",
+        "outcome", status != null ? Outcome.forStatus(status).name() : Outcome.UNKNOWN.name()
+    );
+  }
 }
@@ -14,10 +14,11 @@ public class DokumentConsumer {
     this.consumerTarget = consumerTarget;
   }
   public HttpResponse<DokumentTilgangResponse> hentTilgangUrl(String journalpostId, String dokumentreferanse) {
+    var path = String.format(PATH_DOKUMENT_TILGANG, journalpostId, dokumentreferanse);
 
-    var response = consumerTarget.henteRestTemplateForIssuer()
-        .exchange(String.format(PATH_DOKUMENT_TILGANG, journalpostId, dokumentreferanse), HttpMethod.GET, null, DokumentTilgangResponse.class);
-
-    return new HttpResponse<>(response);
+    return consumerTarget.utforLesing("hentTilgangUrl", path, restTemplate -> {
+      var response = restTemplate.exchange(path, HttpMethod.GET, null, DokumentTilgangResponse.class);
+      return new HttpResponse<>(response);
+    });
   }
 }
@@ -0,0 +1,122 @@
+package no.nav.bidrag.dokument.consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class HttpClientPool {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientPool.class);
+  private static final String TAG_TARGET_APP = "targetApp";
+
+  private HttpClientPool() {
+  }
+
+  public static CloseableHttpClient opprettHttpClient(String targetApp, HttpClientProperties httpClientProperties, MeterRegistry meterRegistry) {
+    var pool = httpClientProperties.hentPool(targetApp);
+
+    LOGGER.info("Http-klient for {} med maks {} forbindelser ({} per rute)", targetApp, pool.getMaxTotal(), pool.getMaxPerRoute());
+
+    var connectionManager = new MaltConnectionManager(
+        Timer.builder("httpcomponents.httpclient.pool.lease")
+            .description("Tid brukt på å få en forbindelse fra poolen")
+            .tag(TAG_TARGET_APP, targetApp)
+            .register(meterRegistry)
+    );
+
+    connectionManager.setMaxTotal(pool.getMaxTotal());
+    connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+    connectionManager.setValidateAfterInactivity(httpClientProperties.getValidateAfterInactivityMs());
+
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, targetApp).bindTo(meterRegistry);
+    Gauge.builder("httpcomponents.httpclient.pool.saturation", connectionManager, HttpClientPool::beregnMetning)
+        .description("Andel av poolen som er leid ut")
+        .tag(TAG_TARGET_APP, targetApp)
+        .register(meterRegistry);
+
+    var requestConfig = RequestConfig.custom()
+        .setConnectTimeout(httpClientProperties.getConnectTimeoutMs())
+        .setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeoutMs())
+        .setSocketTimeout(httpClientProperties.getSocketTimeoutMs())
+        .build();
+
+    var httpClientBuilder = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(keepAliveStrategy(httpClientProperties.getKeepAliveMs()))
+        .evictExpiredConnections()
+        .evictIdleConnections(httpClientProperties.getIdleEvictionMs(), TimeUnit.MILLISECONDS);
+
+    if (httpClientProperties.isCompression()) {
+      // http-klienten sender Accept-Encoding: gzip,deflate og dekomprimerer svaret mens det leses
+      var komprimeringsmaling = new Komprimeringsmaling(targetApp, meterRegistry);
+
+      httpClientBuilder
+          .addInterceptorFirst(komprimeringsmaling.forDekomprimering())
+          .addInterceptorLast(komprimeringsmaling.etterDekomprimering());
+    } else {
+      httpClientBuilder.disableContentCompression();
+    }
+
+    return httpClientBuilder.build();
+  }
+
+  private static double beregnMetning(PoolingHttpClientConnectionManager connectionManager) {
+    return (double) connectionManager.getTotalStats().getLeased() / connectionManager.getMaxTotal();
+  }
+
+  private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMs) {
+    return (response, context) -> {
+      var keepAliveFraServer = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      return keepAliveFraServer > 0 ? Math.min(keepAliveFraServer, keepAliveMs) : keepAliveMs;
+    };
+  }
+
+  private static class MaltConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final Timer leaseTimer;
+
+    MaltConnectionManager(Timer leaseTimer) {
+      this.leaseTimer = leaseTimer;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      var connectionRequest = super.requestConnection(route, state);
+
+      return new ConnectionRequest() {
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+            throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+          var start = System.nanoTime();
+
+          try {
+            return connectionRequest.get(timeout, timeUnit);
+          } finally {
+            leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          }
+        }
+
+        @Override
+        public boolean cancel() {
+          return connectionRequest.cancel();
+        }
+      };
+    }
+  }
+}
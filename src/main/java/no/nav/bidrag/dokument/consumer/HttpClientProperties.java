@@ -0,0 +1,34 @@
+package no.nav.bidrag.dokument.consumer;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+
+  private int connectTimeoutMs = 2000;
+  private int connectionRequestTimeoutMs = 2000;
+  private int socketTimeoutMs = 30000;
+  private long keepAliveMs = 30000;
+  private long idleEvictionMs = 30000;
+  private int validateAfterInactivityMs = 2000;
+  private boolean compression = true;
+  private Map<String, Pool> pool = new HashMap<>();
+
+  public Pool hentPool(String targetApp) {
+    return pool.getOrDefault(targetApp, new Pool());
+  }
+
+  @Getter
+  @Setter
+  public static class Pool {
+
+    private int maxTotal = 50;
+    private int maxPerRoute = 50;
+  }
+}
@@ -0,0 +1,164 @@
+package no.nav.bidrag.dokument.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Måler hvor mange bytes komprimering av svar fra backend sparer. Komprimerte bytes telles før http-klienten dekomprimerer svaret, og
+ * dekomprimerte bytes telles etter, mens svaret strømmes til den som leser det. Målingen registreres når svaret lukkes.
+ */
+final class Komprimeringsmaling {
+
+  private static final String KOMPRIMERT = Komprimeringsmaling.class.getName() + ".komprimert";
+
+  private final Counter mottatt;
+  private final Counter spart;
+
+  Komprimeringsmaling(String targetApp, MeterRegistry meterRegistry) {
+    mottatt = Counter.builder("bidrag.dokument.consumer.compression.received")
+        .description("Komprimerte bytes mottatt fra backend")
+        .baseUnit(BaseUnits.BYTES)
+        .tag("targetApp", targetApp)
+        .register(meterRegistry);
+    spart = Counter.builder("bidrag.dokument.consumer.compression.saved")
+        .description("Bytes spart ved at svar fra backend er komprimert")
+        .baseUnit(BaseUnits.BYTES)
+        .tag("targetApp", targetApp)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Må legges først, før http-klienten legger på dekomprimering av svaret.
+   */
+  HttpResponseInterceptor forDekomprimering() {
+    return (response, context) -> {
+      var entity = response.getEntity();
+
+      if (entity != null && entity.getContentEncoding() != null) {
+        var komprimert = new TellendeEntity(entity, antall -> {
+        });
+
+        context.setAttribute(KOMPRIMERT, komprimert);
+        response.setEntity(komprimert);
+      }
+    };
+  }
+
+  /**
+   * Må legges sist, etter at http-klienten har lagt på dekomprimering av svaret.
+   */
+  HttpResponseInterceptor etterDekomprimering() {
+    return (response, context) -> {
+      var komprimert = (TellendeEntity) context.getAttribute(KOMPRIMERT);
+      context.removeAttribute(KOMPRIMERT);
+
+      if (komprimert != null && response.getEntity() != null) {
+        response.setEntity(new TellendeEntity(response.getEntity(), antall -> registrer(komprimert.hentAntallLest(), antall)));
+      }
+    };
+  }
+
+  private void registrer(long komprimert, long dekomprimert) {
+    mottatt.increment(komprimert);
+    spart.increment(Math.max(0, dekomprimert - komprimert));
+  }
+
+  private static class TellendeEntity extends HttpEntityWrapper {
+
+    private final LongConsumer vedLukking;
+    private TellendeInputStream content;
+
+    TellendeEntity(HttpEntity wrappedEntity, LongConsumer vedLukking) {
+      super(wrappedEntity);
+      this.vedLukking = vedLukking;
+    }
+
+    @Override
+    public synchronized InputStream getContent() throws IOException {
+      if (content == null) {
+        content = new TellendeInputStream(super.getContent(), vedLukking);
+      }
+
+      return content;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+      try (var inputStream = getContent()) {
+        inputStream.transferTo(outputStream);
+      }
+    }
+
+    synchronized long hentAntallLest() {
+      return content != null ? content.antallLest : 0;
+    }
+  }
+
+  private static class TellendeInputStream extends FilterInputStream {
+
+    private final LongConsumer vedLukking;
+    private long antallLest;
+    private boolean lukket;
+
+    TellendeInputStream(InputStream inputStream, LongConsumer vedLukking) {
+      super(inputStream);
+      this.vedLukking = vedLukking;
+    }
+
+    @Override
+    public int read() throws IOException {
+      var lest = super.read();
+
+      if (lest >= 0) {
+        antallLest++;
+      }
+
+      return lest;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int lengde) throws IOException {
+      var lest = super.read(buffer, offset, lengde);
+
+      if (lest > 0) {
+        antallLest += lest;
+      }
+
+      return lest;
+    }
+
+    @Override
+    public long skip(long antall) throws IOException {
+      var hoppetOver = super.skip(antall);
+      antallLest += hoppetOver;
+
+      return hoppetOver;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (!lukket) {
+          lukket = true;
+          vedLukking.accept(antallLest);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package no.nav.bidrag.dokument.consumer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import no.nav.bidrag.dokument.Tokenhash;
+import no.nav.security.token.support.client.core.ClientProperties;
+import no.nav.security.token.support.client.core.http.OAuth2HttpClient;
+import no.nav.security.token.support.client.core.oauth2.OnBehalfOfGrantRequest;
+import no.nav.security.token.support.client.core.oauth2.OnBehalfOfTokenClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Azure on-behalf-of token per klientregistrering og brukertoken. Et token som brukes når det nærmer seg utløp, fornyes i bakgrunnen
+ * mens requesten får det gjeldende tokenet, slik at bare første kall for en bruker venter på token-endepunktet.
+ */
+@Component
+public class OboTokenCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OboTokenCache.class);
+  // tokenet brukes ikke de siste sekundene før det utløper pga. klokkeforskjeller og tiden kallet bruker til backend
+  private static final Duration SIKKERHETSMARGIN = Duration.ofSeconds(10);
+  // fornyinger som ikke får plass avvises, og tokenet fornyes ved neste bruk (eller hentes når det er utløpt)
+  private static final int FORNYING_TRADER = 4;
+  private static final int FORNYING_KO = 100;
+
+  private final Cache<Nokkel, Token> cache;
+  private final OnBehalfOfTokenClient onBehalfOfTokenClient;
+  private final MeterRegistry meterRegistry;
+  private final Duration fornyFor;
+  private final Executor fornyingExecutor;
+
+  @Autowired
+  public OboTokenCache(
+      OAuth2HttpClient oAuth2HttpClient,
+      MeterRegistry meterRegistry,
+      @Value("${obo-token-cache.max-size}") long maksAntall,
+      @Value("${obo-token-cache.refresh-before-expiry-ms}") long fornyForMillis
+  ) {
+    this(new OnBehalfOfTokenClient(oAuth2HttpClient), meterRegistry, maksAntall, Duration.ofMillis(fornyForMillis), opprettFornyingExecutor());
+  }
+
+  OboTokenCache(OnBehalfOfTokenClient onBehalfOfTokenClient, MeterRegistry meterRegistry, long maksAntall, Duration fornyFor,
+      Executor fornyingExecutor) {
+    this.onBehalfOfTokenClient = onBehalfOfTokenClient;
+    this.meterRegistry = meterRegistry;
+    this.fornyFor = fornyFor;
+    this.fornyingExecutor = fornyingExecutor;
+
+    cache = Caffeine.newBuilder()
+        .maximumSize(maksAntall)
+        .expireAfter(new UtloperMedTokenet())
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "obo-token");
+  }
+
+  public String hentToken(String registrering, ClientProperties clientProperties, String brukertoken) {
+    var nokkel = new Nokkel(registrering, Tokenhash.sha256(brukertoken));
+    var token = cache.getIfPresent(nokkel);
+
+    if (token == null) {
+      tellOppslag(registrering, "miss");
+      return cache.get(nokkel, ny -> hent(registrering, clientProperties, brukertoken, "miss")).accessToken();
+    }
+
+    tellOppslag(registrering, "hit");
+
+    if (Instant.now().isAfter(token.fornyes())) {
+      fornyIBakgrunnen(nokkel, token, clientProperties, brukertoken);
+    }
+
+    return token.accessToken();
+  }
+
+  private void fornyIBakgrunnen(Nokkel nokkel, Token token, ClientProperties clientProperties, String brukertoken) {
+    if (!token.fornyingStartet().compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      fornyingExecutor.execute(() -> {
+        try {
+          cache.put(nokkel, hent(nokkel.registrering(), clientProperties, brukertoken, "refresh-ahead"));
+        } catch (RuntimeException e) {
+          // neste bruk av tokenet prøver å fornye det på nytt
+          token.fornyingStartet().set(false);
+          LOGGER.warn("Kunne ikke fornye token for {} i bakgrunnen: {}", nokkel.registrering(), e.getMessage());
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      token.fornyingStartet().set(false);
+    }
+  }
+
+  private Token hent(String registrering, ClientProperties clientProperties, String brukertoken, String modus) {
+    var sample = Timer.start(meterRegistry);
+
+    try {
+      var tokenResponse = onBehalfOfTokenClient.getTokenResponse(new OnBehalfOfGrantRequest(clientProperties, brukertoken));
+      var naa = Instant.now();
+      var utloper = naa.plusSeconds(tokenResponse.getExpiresIn());
+      var fornyes = utloper.minus(fornyFor);
+
+      return new Token(tokenResponse.getAccessToken(), utloper, fornyes.isBefore(naa) ? naa : fornyes, new AtomicBoolean());
+    } finally {
+      sample.stop(meterRegistry.timer("bidrag.dokument.obo.token.fetch", "registration", registrering, "mode", modus));
+    }
+  }
+
+  private void tellOppslag(String registrering, String resultat) {
+    meterRegistry.counter("bidrag.dokument.obo.token.cache", "registration", registrering, "result", resultat).increment();
+  }
+
+  private static Executor opprettFornyingExecutor() {
+    var threadFactory = new CustomizableThreadFactory("obo-token-");
+    threadFactory.setDaemon(true);
+
+    // like mange tråder som kjerne og maks, ellers startes ikke flere tråder før køen er full og et tregt kall holder igjen resten
+    var fornyingExecutor = new ThreadPoolExecutor(
+        FORNYING_TRADER, FORNYING_TRADER, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(FORNYING_KO), threadFactory
+    );
+    fornyingExecutor.allowCoreThreadTimeOut(true);
+
+    return fornyingExecutor;
+  }
+
+  private record Nokkel(String registrering, String brukertokenHash) {
+
+  }
+
+  private record Token(String accessToken, Instant utloper, Instant fornyes, AtomicBoolean fornyingStartet) {
+
+  }
+
+  private static class UtloperMedTokenet implements Expiry<Nokkel, Token> {
+
+    @Override
+    public long expireAfterCreate(Nokkel nokkel, Token token, long currentTime) {
+      var levetid = Duration.between(Instant.now(), token.utloper().minus(SIKKERHETSMARGIN));
+
+      return levetid.isNegative() ? 0 : levetid.toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(Nokkel nokkel, Token token, long currentTime, long currentDuration) {
+      return expireAfterCreate(nokkel, token, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Nokkel nokkel, Token token, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
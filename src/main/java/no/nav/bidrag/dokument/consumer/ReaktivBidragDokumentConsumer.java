@@ -0,0 +1,144 @@
+package no.nav.bidrag.dokument.consumer;
+
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PARAM_BATCHID;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PARAM_FAGOMRADE;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_AVVIK_PA_JOURNALPOST;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_AVVIK_PA_JOURNALPOST_MED_SAK_PARAM;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_DISTRIBUER;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_DISTRIBUER_ENABLED;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_JOURNALPOST_MED_SAKPARAM;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_JOURNALPOST_UTEN_SAK;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_SAK_JOURNAL;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.createEnhetHeader;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.dto.AvvikType;
+import no.nav.bidrag.dokument.dto.Avvikshendelse;
+import no.nav.bidrag.dokument.dto.BehandleAvvikshendelseResponse;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostRequest;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostResponse;
+import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import org.apache.logging.log4j.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Samme kall som {@link BidragDokumentConsumer}, men med en ikke-blokkerende http-klient. Lesingene deles med identiske kall (single
+ * flight) som for {@link BidragDokumentConsumer}, men sendes ikke på nytt når de er trege (hedging).
+ */
+public class ReaktivBidragDokumentConsumer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReaktivBidragDokumentConsumer.class);
+
+  private final ReaktivConsumerTarget consumerTarget;
+
+  public ReaktivBidragDokumentConsumer(ReaktivConsumerTarget consumerTarget) {
+    this.consumerTarget = consumerTarget;
+  }
+
+  public Mono<HttpResponse<List<AvvikType>>> finnAvvik(String saksnummer, String journalpostId) {
+    String path;
+
+    if (saksnummer != null) {
+      path = String.format(PATH_AVVIK_PA_JOURNALPOST_MED_SAK_PARAM, journalpostId, saksnummer);
+    } else {
+      path = String.format(PATH_AVVIK_PA_JOURNALPOST, journalpostId);
+    }
+
+    LOGGER.info("Finner avvik på journalpost fra {}{}", consumerTarget.getTargetApp(), path);
+
+    var avvikstyper = new ParameterizedTypeReference<List<AvvikType>>() {
+    };
+
+    return consumerTarget.utforLesing(
+        "finnAvvik", path, () -> consumerTarget.utfor("finnAvvik", consumerTarget.get(path), avvikstyper).map(HttpResponse::new)
+    );
+  }
+
+  public Mono<HttpResponse<BehandleAvvikshendelseResponse>> behandleAvvik(String enhetsnummer, String journalpostId, Avvikshendelse avvikshendelse) {
+    var path = String.format(PATH_JOURNALPOST_UTEN_SAK + "/avvik", journalpostId);
+    LOGGER.info("{}{}: {}", consumerTarget.getTargetApp(), path, avvikshendelse.getAvvikType());
+
+    var request = consumerTarget.medBody(HttpMethod.POST, path)
+        .headers(httpHeaders -> httpHeaders.addAll(createEnhetHeader(enhetsnummer)))
+        .bodyValue(avvikshendelse);
+
+    return consumerTarget.utfor("behandleAvvik", request, BehandleAvvikshendelseResponse.class).map(HttpResponse::new);
+  }
+
+  public Mono<HttpResponse<JournalpostResponse>> hentJournalpost(String saksnummer, String id) {
+    String url;
+
+    if (saksnummer == null) {
+      url = String.format(PATH_JOURNALPOST_UTEN_SAK, id);
+    } else {
+      url = String.format(PATH_JOURNALPOST_MED_SAKPARAM, id, saksnummer);
+    }
+
+    return consumerTarget.utforLesing("hentJournalpost", url, () -> consumerTarget
+        .utfor("hentJournalpost", consumerTarget.get(url), JournalpostResponse.class)
+        .doOnNext(response -> LOGGER.info("Hent journalpost fikk http status {} fra {}", response.getStatusCode(), consumerTarget.getTargetApp()))
+        .map(HttpResponse::new));
+  }
+
+  public Mono<List<JournalpostDto>> finnJournalposter(String saksnummer, String fagomrade) {
+    var uri = UriComponentsBuilder.fromPath(String.format(PATH_SAK_JOURNAL, saksnummer)).queryParam(PARAM_FAGOMRADE, fagomrade).toUriString();
+    var journalposttyper = new ParameterizedTypeReference<List<JournalpostDto>>() {
+    };
+
+    return consumerTarget.utforLesing("finnJournalposter", uri, () -> consumerTarget
+        .utfor("finnJournalposter", consumerTarget.get(uri), journalposttyper)
+        .map(journalposter -> {
+          LOGGER.info("Fikk http status {} fra journalposter i bidragssak med saksnummer {} på fagområde {} fra {}", journalposter.getStatusCode(),
+              saksnummer, fagomrade, consumerTarget.getTargetApp());
+
+          return Optional.ofNullable(journalposter.getBody()).orElse(Collections.emptyList());
+        }));
+  }
+
+  public Mono<HttpResponse<Void>> endre(String enhet, EndreJournalpostCommand endreJournalpostCommand) {
+    var path = String.format(PATH_JOURNALPOST_UTEN_SAK, endreJournalpostCommand.getJournalpostId());
+    LOGGER.info("Endre journalpost BidragDokument: {}, path {}", endreJournalpostCommand.getJournalpostId(), path);
+
+    var request = consumerTarget.medBody(HttpMethod.PATCH, path)
+        .headers(httpHeaders -> httpHeaders.addAll(createEnhetHeader(enhet)))
+        .bodyValue(endreJournalpostCommand);
+
+    return consumerTarget.utfor("endre", request, Void.class)
+        .doOnNext(response -> LOGGER.info("Endre journalpost fikk http status {}", response.getStatusCode()))
+        .map(HttpResponse::new);
+  }
+
+  public Mono<HttpResponse<DistribuerJournalpostResponse>> distribuerJournalpost(
+      String journalpostId, String batchId, DistribuerJournalpostRequest distribuerJournalpostRequest
+  ) {
+    var uriBuilder = UriComponentsBuilder.fromPath(String.format(PATH_DISTRIBUER, journalpostId));
+    if (Strings.isNotEmpty(batchId)) {
+      uriBuilder = uriBuilder.queryParam(PARAM_BATCHID, batchId);
+    }
+
+    var request = consumerTarget.medBody(HttpMethod.POST, uriBuilder.toUriString()).bodyValue(distribuerJournalpostRequest);
+
+    return consumerTarget.utfor("distribuerJournalpost", request, DistribuerJournalpostResponse.class)
+        .doOnNext(response -> LOGGER.info("Distribuer journalpost fikk http status {}", response.getStatusCode()))
+        .map(HttpResponse::new);
+  }
+
+  public Mono<HttpResponse<Void>> kanDistribuereJournalpost(String journalpostId) {
+    var path = String.format(PATH_DISTRIBUER_ENABLED, journalpostId);
+
+    return consumerTarget.utforLesing("kanDistribuereJournalpost", path, () -> consumerTarget
+        .utfor("kanDistribuereJournalpost", consumerTarget.get(path), Void.class)
+        .doOnNext(response -> LOGGER.info("Sjekk distribuer journalpost fikk http status {}", response.getStatusCode()))
+        .map(HttpResponse::new));
+  }
+}
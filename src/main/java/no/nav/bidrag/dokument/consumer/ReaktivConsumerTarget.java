@@ -0,0 +1,176 @@
+package no.nav.bidrag.dokument.consumer;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.Getter;
+import no.nav.bidrag.commons.web.CorrelationIdFilter;
+import no.nav.bidrag.dokument.BidragDokumentConfig.BearerToken;
+import no.nav.bidrag.dokument.BidragDokumentConfig.BearerTokenProvider;
+import no.nav.bidrag.dokument.concurrent.SingleFlight;
+import no.nav.security.token.support.client.core.ClientProperties;
+import org.slf4j.MDC;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ikke-blokkerende motstykke til {@link ConsumerTarget}. Token og correlation id hentes når requesten lages (på tråden til den
+ * innkommende requesten), siden selve kallet kan bli utført på en annen tråd, og MDC derfra er satt når svaret behandles. Feilstatus
+ * gir samme exception som fra RestTemplate, og kallet deler circuit breaker og bulkhead med {@link ConsumerTarget} for samme targetApp.
+ * Kall som går til backend måles med samme timer og tags som fra {@link ConsumerTarget}.
+ */
+@Getter
+@Builder
+public class ReaktivConsumerTarget {
+
+  // om tokenet mot backend er fra azure, til issuer-tag på timeren
+  private static final String AZURE_ATTRIBUTT = ReaktivConsumerTarget.class.getName() + ".azure";
+
+  private WebClient webClient;
+  private ClientProperties azureClientProperties;
+  private BearerTokenProvider bearerTokenProvider;
+  private SingleFlight singleFlight;
+  private CircuitBreaker circuitBreaker;
+  private Bulkhead bulkhead;
+  private MeterRegistry meterRegistry;
+  private String targetApp;
+
+  public WebClient.RequestHeadersSpec<?> get(String uri) {
+    var bearerToken = bearerTokenProvider.provideBearerToken(this);
+
+    return webClient.get().uri(uri).headers(henteHeadere(bearerToken)).attribute(AZURE_ATTRIBUTT, bearerToken.azure());
+  }
+
+  public WebClient.RequestBodySpec medBody(HttpMethod httpMethod, String uri) {
+    var bearerToken = bearerTokenProvider.provideBearerToken(this);
+
+    return webClient.method(httpMethod).uri(uri).headers(henteHeadere(bearerToken)).attribute(AZURE_ATTRIBUTT, bearerToken.azure());
+  }
+
+  /**
+   * Lesingen deles med identiske kall som pågår (single flight), og starter derfor med en gang i stedet for når den blir abonnert på.
+   */
+  public <T> Mono<T> utforLesing(String operasjon, String path, Supplier<Mono<T>> lesing) {
+    return Mono.fromFuture(singleFlight.utforAsynkront(targetApp, operasjon, path, () -> lesing.get().toFuture()));
+  }
+
+  public <T> Mono<ResponseEntity<T>> utfor(String operasjon, WebClient.RequestHeadersSpec<?> request, Class<T> responstype) {
+    return mal(operasjon, request, request.exchangeToMono(response -> {
+      if (response.statusCode().isError()) {
+        return tilFeil(response);
+      }
+
+      return response.toEntity(responstype);
+    })).transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+        .transformDeferred(BulkheadOperator.of(bulkhead))
+        .transform(ReaktivConsumerTarget::medMdc);
+  }
+
+  public <T> Mono<ResponseEntity<T>> utfor(String operasjon, WebClient.RequestHeadersSpec<?> request, ParameterizedTypeReference<T> responstype) {
+    return mal(operasjon, request, request.exchangeToMono(response -> {
+      if (response.statusCode().isError()) {
+        return tilFeil(response);
+      }
+
+      return response.toEntity(responstype);
+    })).transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+        .transformDeferred(BulkheadOperator.of(bulkhead))
+        .transform(ReaktivConsumerTarget::medMdc);
+  }
+
+  private <T> Mono<ResponseEntity<T>> mal(String operasjon, WebClient.RequestHeadersSpec<?> request, Mono<ResponseEntity<T>> kall) {
+    var azure = new boolean[1];
+    request.attributes(attributter -> azure[0] = Boolean.TRUE.equals(attributter.get(AZURE_ATTRIBUTT)));
+
+    return Mono.defer(() -> {
+      var sample = Timer.start(meterRegistry);
+
+      return kall
+          .doOnSuccess(responseEntity -> sample.stop(timer(operasjon, azure[0], responseEntity.getStatusCodeValue())))
+          .doOnError(e -> sample.stop(timer(operasjon, azure[0], hentStatus(e))));
+    });
+  }
+
+  /**
+   * MDC (correlation id) fra tråden som lager kallet er satt mens svaret behandles, også når det er på en tråd i http-klienten. MDC som
+   * var på tråden settes tilbake når kallet er ferdig.
+   */
+  private static <T> Mono<T> medMdc(Mono<T> kall) {
+    var mdc = MDC.getCopyOfContextMap();
+
+    return Mono.defer(() -> {
+      var forrigeMdc = new AtomicReference<Map<String, String>>();
+      var erSatt = new AtomicBoolean();
+
+      return kall
+          .doOnEach(signal -> {
+            if (erSatt.compareAndSet(false, true)) {
+              forrigeMdc.set(MDC.getCopyOfContextMap());
+              settMdc(mdc);
+            }
+          })
+          .doFinally(signalType -> {
+            if (erSatt.get()) {
+              settMdc(forrigeMdc.get());
+            }
+          });
+    });
+  }
+
+  private static void settMdc(Map<String, String> mdc) {
+    if (mdc == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(mdc);
+    }
+  }
+
+  // uten status fra backend (io-feil eller timeout) gir IO_ERROR
+  private static Integer hentStatus(Throwable feil) {
+    return feil instanceof RestClientResponseException feilstatus ? feilstatus.getRawStatusCode() : null;
+  }
+
+  private Timer timer(String operasjon, boolean azure, Integer status) {
+    return meterRegistry.timer(ConsumerTarget.TIMER, ConsumerTarget.tags(targetApp, operasjon, azure, status));
+  }
+
+  private static Consumer<HttpHeaders> henteHeadere(BearerToken bearerToken) {
+    var correlationId = CorrelationIdFilter.fetchCorrelationIdForThread();
+
+    return httpHeaders -> {
+      httpHeaders.setBearerAuth(bearerToken.verdi());
+
+      if (correlationId != null) {
+        httpHeaders.set(CorrelationIdFilter.CORRELATION_ID_HEADER, correlationId);
+      }
+    };
+  }
+
+  private static <T> Mono<T> tilFeil(ClientResponse response) {
+    var httpStatus = response.statusCode();
+    var httpHeaders = response.headers().asHttpHeaders();
+
+    return response.bodyToMono(byte[].class).defaultIfEmpty(new byte[0]).flatMap(body -> Mono.error(
+        httpStatus.is4xxClientError()
+            ? HttpClientErrorException.create(httpStatus, httpStatus.getReasonPhrase(), httpHeaders, body, null)
+            : HttpServerErrorException.create(httpStatus, httpStatus.getReasonPhrase(), httpHeaders, body, null)
+    ));
+  }
+}
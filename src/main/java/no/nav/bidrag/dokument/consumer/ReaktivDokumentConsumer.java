@@ -0,0 +1,25 @@
+package no.nav.bidrag.dokument.consumer;
+
+import static no.nav.bidrag.dokument.consumer.DokumentConsumer.PATH_DOKUMENT_TILGANG;
+
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.dto.DokumentTilgangResponse;
+import reactor.core.publisher.Mono;
+
+public class ReaktivDokumentConsumer {
+
+  private final ReaktivConsumerTarget consumerTarget;
+
+  public ReaktivDokumentConsumer(ReaktivConsumerTarget consumerTarget) {
+    this.consumerTarget = consumerTarget;
+  }
+
+  public Mono<HttpResponse<DokumentTilgangResponse>> hentTilgangUrl(String journalpostId, String dokumentreferanse) {
+    var path = String.format(PATH_DOKUMENT_TILGANG, journalpostId, dokumentreferanse);
+
+    return consumerTarget.utforLesing(
+        "hentTilgangUrl", path,
+        () -> consumerTarget.utfor("hentTilgangUrl", consumerTarget.get(path), DokumentTilgangResponse.class).map(HttpResponse::new)
+    );
+  }
+}
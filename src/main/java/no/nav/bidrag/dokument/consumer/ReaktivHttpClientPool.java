@@ -0,0 +1,41 @@
+package no.nav.bidrag.dokument.consumer;
+
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * WebClient med samme timeouts og poolstørrelse som den blokkerende http-klienten (se {@link HttpClientPool}).
+ */
+public final class ReaktivHttpClientPool {
+
+  private ReaktivHttpClientPool() {
+  }
+
+  public static WebClient opprettWebClient(String targetApp, String baseUrl, HttpClientProperties httpClientProperties,
+      WebClient.Builder webClientBuilder) {
+    var pool = httpClientProperties.hentPool(targetApp);
+
+    var connectionProvider = ConnectionProvider.builder(targetApp)
+        .maxConnections(pool.getMaxTotal())
+        // kall som venter på en forbindelse begrenses av tiden de kan vente, ikke av antallet
+        .pendingAcquireMaxCount(-1)
+        .pendingAcquireTimeout(Duration.ofMillis(httpClientProperties.getConnectionRequestTimeoutMs()))
+        .maxIdleTime(Duration.ofMillis(httpClientProperties.getIdleEvictionMs()))
+        .evictInBackground(Duration.ofMillis(httpClientProperties.getIdleEvictionMs()))
+        .build();
+
+    var httpClient = HttpClient.create(connectionProvider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, httpClientProperties.getConnectTimeoutMs())
+        .responseTimeout(Duration.ofMillis(httpClientProperties.getSocketTimeoutMs()))
+        .compress(httpClientProperties.isCompression());
+
+    return webClientBuilder.clone()
+        .baseUrl(baseUrl)
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .build();
+  }
+}
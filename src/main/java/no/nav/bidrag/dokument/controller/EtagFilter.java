@@ -0,0 +1,55 @@
+package no.nav.bidrag.dokument.controller;
+
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * Gir lesing av journalpost, avvik og sak journal en sterk ETag, og svarer 304 uten body når klienten sender samme ETag i
+ * If-None-Match. ETag fra backend brukes når den er gitt videre i responsen, ellers lages den av en hash av responsen. If-None-Match
+ * fra klienten sendes ikke til backend, siden ETag-en kan være laget her. Svarene gjelder for saksbehandleren som spør, og skal ikke
+ * caches av andre enn klienten, som må validere dem på nytt for hver bruk.
+ *
+ * <p>En sterk ETag gjelder bare for akkurat de bytene som sendes, så tomcat komprimerer ikke svar med sterk ETag (server.compression).
+ */
+public class EtagFilter extends ShallowEtagHeaderFilter {
+
+  static final String CACHE_CONTROL = "private, no-cache";
+
+  private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+  private static final List<String> LESINGER = List.of("/journal/*", "/journal/*/avvik", "/sak/*/journal");
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+
+    super.doFilterInternal(request, response, filterChain);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+      return true;
+    }
+
+    // journalen som strømmes (ndjson) skal ikke holdes i minnet for å lage ETag
+    var accept = request.getHeader(HttpHeaders.ACCEPT);
+
+    if (accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE)) {
+      return true;
+    }
+
+    var path = request.getRequestURI().substring(request.getContextPath().length());
+
+    return LESINGER.stream().noneMatch(lesing -> ANT_PATH_MATCHER.match(lesing, path));
+  }
+}
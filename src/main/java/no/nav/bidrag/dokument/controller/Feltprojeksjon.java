@@ -0,0 +1,57 @@
+package no.nav.bidrag.dokument.controller;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+
+/**
+ * Journalposter med bare de oppgitte feltene. Feltene filtreres når journalposten skrives til responsen, uten å lage et json-tre av
+ * hele journalposten først.
+ */
+class Feltprojeksjon {
+
+  private static final String FELTFILTER = "felter";
+
+  private final ObjectWriter objectWriter;
+
+  Feltprojeksjon(ObjectMapper objectMapper) {
+    objectWriter = objectMapper.copy().addMixIn(JournalpostDto.class, MedFeltfilter.class).writer();
+  }
+
+  List<?> projiser(List<JournalpostDto> journalposter, List<String> felter) {
+    var filtrertWriter = objectWriter.with(
+        new SimpleFilterProvider().addFilter(FELTFILTER, SimpleBeanPropertyFilter.filterOutAllExcept(Set.copyOf(felter)))
+    );
+
+    return journalposter.stream().map(journalpostDto -> new ProjisertJournalpost(filtrertWriter, journalpostDto)).toList();
+  }
+
+  @JsonFilter(FELTFILTER)
+  private interface MedFeltfilter {
+
+  }
+
+  private record ProjisertJournalpost(ObjectWriter objectWriter, JournalpostDto journalpostDto) implements JsonSerializable {
+
+    @Override
+    public void serialize(JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
+      objectWriter.writeValue(jsonGenerator, journalpostDto);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator jsonGenerator, SerializerProvider serializerProvider, TypeSerializer typeSerializer)
+        throws IOException {
+      serialize(jsonGenerator, serializerProvider);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package no.nav.bidrag.dokument.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * En {@link no.nav.bidrag.commons.KildesystemIdenfikator} fra en path-variabel, som er validert av
+ * {@link KildesystemIdenfikatorArgumentResolver} før controller-metoden kalles.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface GyldigJournalpostId {
+
+  /**
+   * navnet på path-variabelen med journalpostId
+   */
+  String value();
+
+  /**
+   * Warning-header når journalpostId er ugyldig, %s blir erstattet med journalpostId
+   */
+  String warning() default UgyldigJournalpostIdException.UGYLDIG_PREFIX;
+}
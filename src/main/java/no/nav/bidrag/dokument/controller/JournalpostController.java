@@ -6,16 +6,25 @@ import static no.nav.bidrag.dokument.BidragDokumentConfig.DELIMTER;
 import static no.nav.bidrag.dokument.BidragDokumentConfig.PREFIX_BIDRAG;
 import static no.nav.bidrag.dokument.BidragDokumentConfig.PREFIX_JOARK;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.servlet.http.HttpServletResponse;
 import no.nav.bidrag.commons.KildesystemIdenfikator;
 import no.nav.bidrag.commons.web.EnhetFilter;
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.IdValidering;
 import no.nav.bidrag.dokument.dto.AvvikType;
 import no.nav.bidrag.dokument.dto.Avvikshendelse;
 import no.nav.bidrag.dokument.dto.BehandleAvvikshendelseResponse;
@@ -24,10 +33,16 @@ import no.nav.bidrag.dokument.dto.DistribuerJournalpostResponse;
 import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
 import no.nav.bidrag.dokument.dto.JournalpostDto;
 import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import no.nav.bidrag.dokument.service.BatchResultat;
+import no.nav.bidrag.dokument.service.BatchService;
+import no.nav.bidrag.dokument.service.DistribusjonIBatch;
+import no.nav.bidrag.dokument.service.JournalSide;
 import no.nav.bidrag.dokument.service.JournalpostService;
+import no.nav.bidrag.dokument.service.KanDistribuere;
 import no.nav.security.token.support.core.api.Protected;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -42,41 +57,150 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
+/**
+ * Lesing av journalpost og avvik gir en {@link CompletableFuture}. Med async-request.enabled blir den ferdig når backend har svart, og
+ * tråden fra tomcat er ledig for andre requester mens kallet pågår. Ellers er den ferdig når metoden returnerer.
+ */
 @RestController
 @Protected
 public class JournalpostController {
 
+  public static final String X_NESTE_CURSOR_HEADER = "X-Neste-Cursor";
+  private static final String UGYLDIG_ID_FOR_DISTRIBUSJON = "Id har ikke riktig prefix: %s";
+
   private static final Logger LOGGER = LoggerFactory.getLogger(JournalpostController.class);
-  private static final String NON_DIGITS = "\\D+";
 
+  private final BatchService batchService;
   private final JournalpostService journalpostService;
+  private final ObjectMapper objectMapper;
+  private final Feltprojeksjon feltprojeksjon;
+  private final int maksAntallIBatch;
+  private final boolean asynkroneLesinger;
+
+  public JournalpostController(
+      BatchService batchService,
+      JournalpostService journalpostService,
+      ObjectMapper objectMapper,
+      @Value("${batch.max-size}") int maksAntallIBatch,
+      @Value("${async-request.enabled}") boolean asynkroneLesinger,
+      @Value("${reactive-consumer.enabled}") boolean reaktiv
+  ) {
+    // med blokkerende consumere ville tråden som utfører kallet vente i stedet for tråden fra tomcat, og da er ingenting spart
+    if (asynkroneLesinger && !reaktiv) {
+      throw new IllegalStateException("async-request.enabled krever reactive-consumer.enabled");
+    }
 
-  public JournalpostController(JournalpostService journalpostService) {
+    this.batchService = batchService;
     this.journalpostService = journalpostService;
+    this.objectMapper = objectMapper;
+    this.feltprojeksjon = new Feltprojeksjon(objectMapper);
+    this.maksAntallIBatch = maksAntallIBatch;
+    this.asynkroneLesinger = asynkroneLesinger;
   }
 
   @GetMapping("/sak/{saksnummer}/journal")
   @Operation(
       security = {@SecurityRequirement(name = "bearer-key")},
-      description = "Finn saksjournal for et saksnummer, samt parameter 'fagomrade' (FAR - farskapsjournal) og (BID - bidragsjournal)"
+      description = "Finn saksjournal for et saksnummer, samt parameter 'fagomrade' (FAR - farskapsjournal) og (BID - bidragsjournal). "
+          + "Med 'limit' hentes en side av journalen sortert på journalpostId, og neste side hentes med cursor fra headeren " + X_NESTE_CURSOR_HEADER
+          + ". Med 'fields' returneres bare de oppgitte feltene for hver journalpost"
   )
   @ApiResponses(value = {
-      @ApiResponse(responseCode = "200", description = "Fant journalposter for saksnummer"),
+      @ApiResponse(responseCode = "200", description = "Fant journalposter for saksnummer",
+          content = @Content(array = @ArraySchema(schema = @Schema(implementation = JournalpostDto.class)))),
+      @ApiResponse(responseCode = "304", description = "Journalen er ikke endret siden den ble hentet med ETag i If-None-Match",
+          content = @Content(schema = @Schema(hidden = true))),
+      @ApiResponse(responseCode = "400", description = "Ugyldig saksnummer, limit eller cursor", content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "401", description = "Sikkerhetstoken mangler, er utløpt, eller av andre årsaker ugyldig", content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "403", description = "Saksbehandler har ikke tilgang til aktuell journalpost", content = @Content(schema = @Schema(hidden = true)))
   })
-  public ResponseEntity<List<JournalpostDto>> hentJournal(@PathVariable String saksnummer, @RequestParam String fagomrade) {
+  public ResponseEntity<List<?>> hentJournal(
+      @PathVariable String saksnummer,
+      @RequestParam String fagomrade,
+      @Parameter(name = "limit", description = "maks antall journalposter som returneres") @RequestParam(required = false) Integer limit,
+      @Parameter(name = "cursor", description = "hvor neste side starter, hentes fra headeren " + X_NESTE_CURSOR_HEADER + " i forrige respons")
+      @RequestParam(required = false) String cursor,
+      @Parameter(name = "fields", description = "kommaseparert liste med feltene som skal returneres for hver journalpost")
+      @RequestParam(required = false) List<String> fields
+  ) {
 
     LOGGER.info("request: bidrag-dokument/sak/{}?fagomrade={}", saksnummer, fagomrade);
 
-    if (saksnummer.matches(NON_DIGITS)) {
+    if (IdValidering.erUgyldigSaksnummer(saksnummer)) {
       LOGGER.warn("Ugyldig saksnummer: {}", saksnummer);
       return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, "Ugyldig saksnummer"), HttpStatus.BAD_REQUEST);
     }
 
-    var journalposter = journalpostService.finnJournalposter(saksnummer, fagomrade);
+    if (limit != null && limit < 1) {
+      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, "Ugyldig limit: " + limit), HttpStatus.BAD_REQUEST);
+    }
+
+    String etterJournalpostId;
+
+    try {
+      etterJournalpostId = JournalSide.lesCursor(cursor);
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Ugyldig cursor: {}", cursor);
+      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, "Ugyldig cursor"), HttpStatus.BAD_REQUEST);
+    }
+
+    var journalSide = journalpostService.finnJournalposter(saksnummer, fagomrade, etterJournalpostId, limit);
+    var httpHeaders = journalSide.nesteCursor() != null ? initHttpHeadersWith(X_NESTE_CURSOR_HEADER, journalSide.nesteCursor()) : null;
+
+    return new ResponseEntity<>(projiser(journalSide.journalposter(), fields), httpHeaders, HttpStatus.OK);
+  }
+
+  private List<?> projiser(List<JournalpostDto> journalposter, List<String> felter) {
+    if (felter == null || felter.isEmpty()) {
+      return journalposter;
+    }
+
+    return feltprojeksjon.projiser(journalposter, felter);
+  }
+
+  @GetMapping(value = "/sak/{saksnummer}/journal", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(
+      security = {@SecurityRequirement(name = "bearer-key")},
+      description = "Finn saksjournal for et saksnummer som en strøm med én journalpost per linje (Accept: application/x-ndjson), samt "
+          + "parameter 'fagomrade' (FAR - farskapsjournal) og (BID - bidragsjournal)"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Journalposter for saksnummer strømmes etter hvert som de hentes. Feiler en backend "
+          + "etter at strømmen har startet, er siste linje {\"feil\": \"<melding>\"}. Mangler journalpostene fra en backend (delvis "
+          + "resultat tillatt), er siste linje {\"delvis\": true}"),
+      @ApiResponse(responseCode = "400", description = "Ugyldig saksnummer", content = @Content(schema = @Schema(hidden = true))),
+      @ApiResponse(responseCode = "401", description = "Sikkerhetstoken mangler, er utløpt, eller av andre årsaker ugyldig", content = @Content(schema = @Schema(hidden = true))),
+      @ApiResponse(responseCode = "403", description = "Saksbehandler har ikke tilgang til aktuell journalpost", content = @Content(schema = @Schema(hidden = true)))
+  })
+  public void hentJournalSomStrom(@PathVariable String saksnummer, @RequestParam String fagomrade, HttpServletResponse response)
+      throws IOException {
+
+    LOGGER.info("request: bidrag-dokument/sak/{}?fagomrade={} (ndjson)", saksnummer, fagomrade);
 
-    return new ResponseEntity<>(journalposter, HttpStatus.OK);
+    if (IdValidering.erUgyldigSaksnummer(saksnummer)) {
+      LOGGER.warn("Ugyldig saksnummer: {}", saksnummer);
+      response.setHeader(HttpHeaders.WARNING, "Ugyldig saksnummer");
+      response.setStatus(HttpStatus.BAD_REQUEST.value());
+      return;
+    }
+
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+
+    try (var ndjsonSkriver = new NdjsonSkriver<JournalpostDto>(objectMapper, response.getOutputStream())) {
+      try {
+        if (journalpostService.finnJournalposter(saksnummer, fagomrade, ndjsonSkriver)) {
+          ndjsonSkriver.avsluttSomDelvis();
+        }
+      } catch (RuntimeException e) {
+        // før første journalpost er skrevet gir feilen vanlig http status (se BidragDokumentRestControllerAdvice)
+        if (!ndjsonSkriver.harSkrevet()) {
+          throw e;
+        }
+
+        LOGGER.warn("Strømming av journal for sak {} feilet etter at journalposter var skrevet: {}", saksnummer, e.getMessage());
+        ndjsonSkriver.avsluttMedFeil(e.getMessage());
+      }
+    }
   }
 
   @GetMapping("/journal/{journalpostIdForKildesystem}")
@@ -86,22 +210,65 @@ public class JournalpostController {
   )
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Journalpost er hentet"),
+      @ApiResponse(responseCode = "304", description = "Journalposten er ikke endret siden den ble hentet med ETag i If-None-Match",
+          content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "400", description = "Ukjent/ugyldig journalpostId som har/mangler prefix", content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "401", description = "Sikkerhetstoken mangler, er utløpt, eller av andre årsaker ugyldig", content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "403", description = "Saksbehandler har ikke tilgang til aktuell journalpost", content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "404", description = "Journalposten som skal hentes eksisterer ikke eller det er feil prefix/id på journalposten", content = @Content(schema = @Schema(hidden = true)))
   })
-  public ResponseEntity<JournalpostResponse> hentJournalpost(@PathVariable String journalpostIdForKildesystem,
+  public CompletableFuture<ResponseEntity<JournalpostResponse>> hentJournalpost(
+      @Parameter(in = ParameterIn.PATH, name = "journalpostIdForKildesystem", schema = @Schema(type = "string"))
+      @GyldigJournalpostId("journalpostIdForKildesystem") KildesystemIdenfikator kildesystemIdenfikator,
       @Parameter(name = "saksnummer", description = "journalposten tilhører sak") @RequestParam(required = false) String saksnummer) {
-    KildesystemIdenfikator kildesystemIdenfikator = new KildesystemIdenfikator(journalpostIdForKildesystem);
-    if (kildesystemIdenfikator.erUkjentPrefixEllerHarIkkeTallEtterPrefix()) {
-      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, "Ugyldig prefix på journalpostId"), HttpStatus.BAD_REQUEST);
+    LOGGER.info("request: bidrag-dokument/journal/{}?saksnummer={}", kildesystemIdenfikator.getPrefiksetJournalpostId(), saksnummer);
+
+    if (asynkroneLesinger) {
+      return journalpostService.hentJournalpostAsynkront(saksnummer, kildesystemIdenfikator)
+          .thenApply(response -> utenInnholdsheadere(response.getResponseEntity()));
     }
 
-    LOGGER.info("request: bidrag-dokument/journal/{}?saksnummer={}", journalpostIdForKildesystem, saksnummer);
+    var response = journalpostService.hentJournalpost(saksnummer, kildesystemIdenfikator).getResponseEntity();
+
+    return CompletableFuture.completedFuture(utenInnholdsheadere(response));
+  }
+
+  /**
+   * Headere som beskriver body fra backend (lengde, type og komprimering) gjelder ikke body som skrives herfra. Det lages en ny
+   * ResponseEntity uten disse, siden responsen fra tjenesten kan være delt (f.eks. fra cache).
+   */
+  private static <T> ResponseEntity<T> utenInnholdsheadere(ResponseEntity<T> responseEntity) {
+    var httpHeaders = new HttpHeaders();
+    httpHeaders.putAll(responseEntity.getHeaders());
+    List.of(HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.TRANSFER_ENCODING)
+        .forEach(httpHeaders::remove);
+
+    return ResponseEntity.status(responseEntity.getStatusCodeValue()).headers(httpHeaders).body(responseEntity.getBody());
+  }
+
+  @PostMapping(value = "/journal/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(
+      security = {@SecurityRequirement(name = "bearer-key")},
+      description = "Hent flere journalposter i ett kall, id-ene er på formatet [" + PREFIX_BIDRAG + '|' + PREFIX_JOARK + ']' + DELIMTER
+          + "<journalpostId>. Resultatet har status (og evt. melding) for hver journalpost"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Journalpostene er forsøkt hentet, se status på hver journalpost"),
+      @ApiResponse(responseCode = "400", description = "Ingen journalpostId-er, eller flere enn tillatt i en batch", content = @Content(schema = @Schema(hidden = true))),
+      @ApiResponse(responseCode = "401", description = "Sikkerhetstoken mangler, er utløpt, eller av andre årsaker ugyldig", content = @Content(schema = @Schema(hidden = true)))
+  })
+  public ResponseEntity<List<BatchResultat<JournalpostResponse>>> hentJournalposter(
+      @RequestBody List<String> journalpostIder,
+      @Parameter(name = "saksnummer", description = "journalpostene tilhører sak") @RequestParam(required = false) String saksnummer
+  ) {
+    LOGGER.info("request: bidrag-dokument/journal/batch?saksnummer={} med {} journalposter", saksnummer, journalpostIder.size());
+
+    if (journalpostIder.isEmpty() || journalpostIder.size() > maksAntallIBatch) {
+      var message = String.format("En batch må ha mellom 1 og %d journalposter", maksAntallIBatch);
+      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, message), HttpStatus.BAD_REQUEST);
+    }
 
-    var response =  journalpostService.hentJournalpost(saksnummer, kildesystemIdenfikator);
-    return response.clearContentHeaders().getResponseEntity();
+    return new ResponseEntity<>(batchService.hentJournalposter(saksnummer, journalpostIder), HttpStatus.OK);
   }
 
   @GetMapping("/journal/{journalpostIdForKildesystem}/avvik")
@@ -112,20 +279,23 @@ public class JournalpostController {
   )
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Tilgjengelig avvik for journalpost er hentet"),
+      @ApiResponse(responseCode = "304", description = "Avvikene er ikke endret siden de ble hentet med ETag i If-None-Match",
+          content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "401", description = "Du mangler sikkerhetstoken", content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "403", description = "Sikkerhetstoken er ikke gyldig", content = @Content(schema = @Schema(hidden = true))),
       @ApiResponse(responseCode = "404", description = "Fant ikke journalpost som det skal hentes avvik på", content = @Content(schema = @Schema(hidden = true)))
   })
-  public ResponseEntity<List<AvvikType>> hentAvvik(@PathVariable String journalpostIdForKildesystem,
+  public CompletableFuture<ResponseEntity<List<AvvikType>>> hentAvvik(
+      @Parameter(in = ParameterIn.PATH, name = "journalpostIdForKildesystem", schema = @Schema(type = "string"))
+      @GyldigJournalpostId("journalpostIdForKildesystem") KildesystemIdenfikator kildesystemIdenfikator,
       @Parameter(name = "saksnummer", description = "journalposten tilhører sak") @RequestParam(required = false) String saksnummer) {
-    LOGGER.info("request: bidrag-dokument/journal/{}/avvik", journalpostIdForKildesystem);
+    LOGGER.info("request: bidrag-dokument/journal/{}/avvik", kildesystemIdenfikator.getPrefiksetJournalpostId());
 
-    KildesystemIdenfikator kildesystemIdenfikator = new KildesystemIdenfikator(journalpostIdForKildesystem);
-    if (kildesystemIdenfikator.erUkjentPrefixEllerHarIkkeTallEtterPrefix()) {
-      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, "Ugyldig prefix på journalpostId"), HttpStatus.BAD_REQUEST);
+    if (asynkroneLesinger) {
+      return journalpostService.finnAvvikAsynkront(saksnummer, kildesystemIdenfikator).thenApply(HttpResponse::getResponseEntity);
     }
 
-    return journalpostService.finnAvvik(saksnummer, kildesystemIdenfikator).getResponseEntity();
+    return CompletableFuture.completedFuture(journalpostService.finnAvvik(saksnummer, kildesystemIdenfikator).getResponseEntity());
   }
 
   @PostMapping(value = "/journal/{journalpostIdForKildesystem}/avvik", consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -151,10 +321,12 @@ public class JournalpostController {
   })
   public ResponseEntity<BehandleAvvikshendelseResponse> behandleAvvik(
       @RequestHeader(X_ENHET_HEADER) String enhet,
-      @PathVariable String journalpostIdForKildesystem,
+      @Parameter(in = ParameterIn.PATH, name = "journalpostIdForKildesystem", schema = @Schema(type = "string"))
+      @GyldigJournalpostId("journalpostIdForKildesystem") KildesystemIdenfikator kildesystemIdenfikator,
       @RequestBody Avvikshendelse avvikshendelse
   ) {
-    LOGGER.info("opprett: bidrag-dokument/journal/{}/avvik - {}", journalpostIdForKildesystem, avvikshendelse);
+    LOGGER.info("opprett: bidrag-dokument/journal/{}/avvik - {}", kildesystemIdenfikator.getPrefiksetJournalpostId(), avvikshendelse.getAvvikType());
+    LOGGER.debug("avvikshendelse: {}", avvikshendelse);
 
     try {
       AvvikType.valueOf(avvikshendelse.getAvvikType());
@@ -166,11 +338,6 @@ public class JournalpostController {
       return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, message), HttpStatus.BAD_REQUEST);
     }
 
-    KildesystemIdenfikator kildesystemIdenfikator = new KildesystemIdenfikator(journalpostIdForKildesystem);
-    if (kildesystemIdenfikator.erUkjentPrefixEllerHarIkkeTallEtterPrefix()) {
-      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, "Ugyldig prefix på journalpostId"), HttpStatus.BAD_REQUEST);
-    }
-
     return journalpostService.behandleAvvik(enhet, kildesystemIdenfikator, avvikshendelse).getResponseEntity();
   }
 
@@ -194,17 +361,14 @@ public class JournalpostController {
   })
   public ResponseEntity<Void> patchJournalpost(
       @RequestBody EndreJournalpostCommand endreJournalpostCommand,
-      @PathVariable String journalpostIdForKildesystem,
+      @Parameter(in = ParameterIn.PATH, name = "journalpostIdForKildesystem", schema = @Schema(type = "string"))
+      @GyldigJournalpostId("journalpostIdForKildesystem") KildesystemIdenfikator kildesystemIdenfikator,
       @RequestHeader(EnhetFilter.X_ENHET_HEADER) String enhet
   ) {
-    LOGGER.info("patch endret: bidrag-dokument/journal/{}\n \\-> {}", journalpostIdForKildesystem, endreJournalpostCommand);
-
-    KildesystemIdenfikator kildesystemIdenfikator = new KildesystemIdenfikator(journalpostIdForKildesystem);
-    if (kildesystemIdenfikator.erUkjentPrefixEllerHarIkkeTallEtterPrefix()) {
-      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, "Ugyldig prefix på journalpostId"), HttpStatus.BAD_REQUEST);
-    }
+    LOGGER.info("patch endret: bidrag-dokument/journal/{}", kildesystemIdenfikator.getPrefiksetJournalpostId());
+    LOGGER.debug("endreJournalpostCommand: {}", endreJournalpostCommand);
 
-    endreJournalpostCommand.setJournalpostId(journalpostIdForKildesystem);
+    endreJournalpostCommand.setJournalpostId(kildesystemIdenfikator.getPrefiksetJournalpostId());
 
     return journalpostService.endre(enhet, kildesystemIdenfikator, endreJournalpostCommand).getResponseEntity();
   }
@@ -221,24 +385,85 @@ public class JournalpostController {
   @ResponseBody
   public ResponseEntity<DistribuerJournalpostResponse> distribuerJournalpost(
       @RequestBody(required = false) DistribuerJournalpostRequest distribuerJournalpostRequest,
-      @PathVariable String joarkJournalpostId,
+      @Parameter(in = ParameterIn.PATH, name = "joarkJournalpostId", schema = @Schema(type = "string"))
+      @GyldigJournalpostId(value = "joarkJournalpostId", warning = UGYLDIG_ID_FOR_DISTRIBUSJON) KildesystemIdenfikator kildesystemIdenfikator,
       @RequestParam(required = false) String batchId
   ) {
-    LOGGER.info("Distribuerer journalpost {}", joarkJournalpostId);
-    KildesystemIdenfikator kildesystemIdenfikator = new KildesystemIdenfikator(joarkJournalpostId);
+    LOGGER.info("Distribuerer journalpost {}", kildesystemIdenfikator.getPrefiksetJournalpostId());
+
+    return journalpostService.distribuerJournalpost(batchId, kildesystemIdenfikator, distribuerJournalpostRequest).getResponseEntity();
+  }
+
+  @PostMapping(
+      value = "/journal/distribuer/batch/{batchId}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE
+  )
+  @Operation(
+      description = "Bestill distribusjon av flere journalposter i en batch. Resultatet for hver journalpost strømmes (én per linje) etter "
+          + "hvert som de er ferdige. Batchen kan sendes på nytt etter et brudd, journalposter som allerede er distribuert i batchen blir "
+          + "da ikke distribuert på nytt av samme pod. Mot en annen pod, eller etter omstart, er det backend som avviser en ny distribusjon "
+          + "med samme batchId"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Journalpostene er forsøkt distribuert, se status på hver journalpost"),
+      @ApiResponse(responseCode = "400", description = "Ingen journalposter, flere enn tillatt i en batch, eller samme journalpost flere ganger"),
+      @ApiResponse(responseCode = "401", description = "Sikkerhetstoken er ikke gyldig")
+  })
+  public void distribuerJournalposter(
+      @PathVariable String batchId,
+      @RequestBody List<DistribusjonIBatch> distribusjoner,
+      HttpServletResponse response
+  ) throws IOException {
+    LOGGER.info("Distribuerer {} journalposter i batch {}", distribusjoner.size(), batchId);
+
+    if (distribusjoner.isEmpty() || distribusjoner.size() > maksAntallIBatch) {
+      response.setHeader(HttpHeaders.WARNING, String.format("En batch må ha mellom 1 og %d journalposter", maksAntallIBatch));
+      response.setStatus(HttpStatus.BAD_REQUEST.value());
+      return;
+    }
+
+    var duplikat = BatchService.finnDuplikat(distribusjoner);
 
-    if (kildesystemIdenfikator.erUkjentPrefixEllerHarIkkeTallEtterPrefix()) {
-      var msgBadRequest = String.format("Id har ikke riktig prefix: %s", joarkJournalpostId);
+    if (duplikat.isPresent()) {
+      response.setHeader(HttpHeaders.WARNING, String.format(BatchService.DUPLIKAT_I_BATCH, duplikat.get()));
+      response.setStatus(HttpStatus.BAD_REQUEST.value());
+      return;
+    }
 
-      LOGGER.warn(msgBadRequest);
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
 
-      return ResponseEntity
-          .badRequest()
-          .header(HttpHeaders.WARNING, msgBadRequest)
-          .build();
+    try (var ndjsonSkriver = new NdjsonSkriver<BatchResultat<DistribuerJournalpostResponse>>(objectMapper, response.getOutputStream())) {
+      try {
+        batchService.distribuer(batchId, distribusjoner, ndjsonSkriver);
+      } catch (RuntimeException e) {
+        if (!ndjsonSkriver.harSkrevet()) {
+          throw e;
+        }
+
+        LOGGER.warn("Distribusjon av batch {} feilet etter at resultater var skrevet: {}", batchId, e.getMessage());
+        ndjsonSkriver.avsluttMedFeil(e.getMessage());
+      }
     }
+  }
 
-    return journalpostService.distribuerJournalpost(batchId, kildesystemIdenfikator, distribuerJournalpostRequest).getResponseEntity();
+  @PostMapping(value = "/journal/distribuer/enabled", consumes = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(
+      description = "Sjekk om flere journalposter kan distribueres i ett kall. Resultatet har enabled og status (og evt. melding) per "
+          + "journalpostId, status 406 betyr at journalposten ikke kan distribueres"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Journalpostene er sjekket, se enabled og status på hver journalpost"),
+      @ApiResponse(responseCode = "400", description = "Ingen journalpostId-er, eller flere enn tillatt i en batch"),
+      @ApiResponse(responseCode = "401", description = "Sikkerhetstoken er ikke gyldig")
+  })
+  public ResponseEntity<Map<String, KanDistribuere>> kanDistribuereJournalposter(@RequestBody List<String> journalpostIder) {
+    LOGGER.info("Sjekker om {} journalposter kan distribueres", journalpostIder.size());
+
+    if (journalpostIder.isEmpty() || journalpostIder.size() > maksAntallIBatch) {
+      var message = String.format("En batch må ha mellom 1 og %d journalposter", maksAntallIBatch);
+      return new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, message), HttpStatus.BAD_REQUEST);
+    }
+
+    return new ResponseEntity<>(batchService.kanDistribuere(journalpostIder), HttpStatus.OK);
   }
 
   @GetMapping("/journal/distribuer/{journalpostId}/enabled")
@@ -251,20 +476,11 @@ public class JournalpostController {
       @ApiResponse(responseCode = "404", description = "Fant ikke journalpost som skal distribueres")
   })
   @ResponseBody
-  public ResponseEntity<Void> kanDistribuerJournalpost(@PathVariable String journalpostId) {
-    LOGGER.info("Sjekker om journalpost {} kan distribueres", journalpostId);
-    KildesystemIdenfikator kildesystemIdenfikator = new KildesystemIdenfikator(journalpostId);
-
-    if (kildesystemIdenfikator.erUkjentPrefixEllerHarIkkeTallEtterPrefix()) {
-      var msgBadRequest = String.format("Id har ikke riktig prefix: %s", journalpostId);
-
-      LOGGER.warn(msgBadRequest);
-
-      return ResponseEntity
-          .badRequest()
-          .header(HttpHeaders.WARNING, msgBadRequest)
-          .build();
-    }
+  public ResponseEntity<Void> kanDistribuerJournalpost(
+      @Parameter(in = ParameterIn.PATH, name = "journalpostId", schema = @Schema(type = "string"))
+      @GyldigJournalpostId(value = "journalpostId", warning = UGYLDIG_ID_FOR_DISTRIBUSJON) KildesystemIdenfikator kildesystemIdenfikator
+  ) {
+    LOGGER.info("Sjekker om journalpost {} kan distribueres", kildesystemIdenfikator.getPrefiksetJournalpostId());
 
     return journalpostService.kanDistribuereJournalpost(kildesystemIdenfikator).getResponseEntity();
   }
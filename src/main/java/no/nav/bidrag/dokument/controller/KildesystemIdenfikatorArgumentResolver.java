@@ -0,0 +1,42 @@
+package no.nav.bidrag.dokument.controller;
+
+import java.util.Map;
+import no.nav.bidrag.commons.KildesystemIdenfikator;
+import no.nav.bidrag.dokument.IdValidering;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Gir {@link KildesystemIdenfikator} for parametre med {@link GyldigJournalpostId}, etter at journalpostId i path er validert med
+ * {@link IdValidering}. Ugyldig journalpostId gir {@link UgyldigJournalpostIdException} (400 med Warning-header for endepunktet).
+ */
+public class KildesystemIdenfikatorArgumentResolver implements HandlerMethodArgumentResolver {
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.hasParameterAnnotation(GyldigJournalpostId.class) && parameter.getParameterType() == KildesystemIdenfikator.class;
+  }
+
+  @Override
+  public KildesystemIdenfikator resolveArgument(
+      MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory
+  ) {
+    var gyldigJournalpostId = parameter.getParameterAnnotation(GyldigJournalpostId.class);
+    var pathVariabel = gyldigJournalpostId.value();
+    @SuppressWarnings("unchecked") var uriVariabler = (Map<String, String>) webRequest.getAttribute(
+        HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST
+    );
+    var journalpostId = uriVariabler != null ? uriVariabler.get(pathVariabel) : null;
+
+    if (!IdValidering.erGyldigJournalpostId(journalpostId)) {
+      throw new UgyldigJournalpostIdException(journalpostId, gyldigJournalpostId.warning());
+    }
+
+    return new KildesystemIdenfikator(journalpostId);
+  }
+}
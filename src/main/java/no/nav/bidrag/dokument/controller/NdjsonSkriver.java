@@ -0,0 +1,84 @@
+package no.nav.bidrag.dokument.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Skriver ett json-objekt per linje (application/x-ndjson). Kan brukes fra flere tråder, og ignorerer det som skrives etter at den er
+ * lukket (f.eks. fra en backend som svarer etter at tidsfristen for requesten er passert). En feil etter at første linje er skrevet
+ * kan ikke lenger gi annen http status enn 200, og skrives derfor som siste linje ({"feil": "..."}), se {@link #avsluttMedFeil(String)}.
+ */
+class NdjsonSkriver<T> implements Consumer<T>, Closeable {
+
+  private final ObjectMapper objectMapper;
+  private final OutputStream outputStream;
+  private int antall;
+  private boolean lukket;
+
+  NdjsonSkriver(ObjectMapper objectMapper, OutputStream outputStream) {
+    this.objectMapper = objectMapper;
+    this.outputStream = outputStream;
+  }
+
+  @Override
+  public synchronized void accept(T verdi) {
+    if (lukket) {
+      return;
+    }
+
+    try {
+      outputStream.write(objectMapper.writeValueAsBytes(verdi));
+      outputStream.write('\n');
+      // hver linje sendes med en gang, slik at klienten ser resultatet (f.eks. av en distribusjon) selv om strømmen brytes etterpå
+      outputStream.flush();
+      antall++;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  synchronized boolean harSkrevet() {
+    return antall > 0;
+  }
+
+  /**
+   * Skriver feilen som siste linje, slik at klienten kan skille en avbrutt strøm fra en komplett journal. Det som skrives etterpå
+   * ignoreres.
+   */
+  synchronized void avsluttMedFeil(String melding) throws IOException {
+    if (lukket) {
+      return;
+    }
+
+    lukket = true;
+    outputStream.write(objectMapper.writeValueAsBytes(Map.of("feil", String.valueOf(melding))));
+    outputStream.write('\n');
+    outputStream.flush();
+  }
+
+  /**
+   * Skriver {"delvis": true} som siste linje når en backend ikke har gitt noe til strømmen (fanout.delvis-resultat TILLAT), slik at
+   * klienten kan skille en delvis journal fra en komplett. Det som skrives etterpå ignoreres.
+   */
+  synchronized void avsluttSomDelvis() throws IOException {
+    if (lukket) {
+      return;
+    }
+
+    lukket = true;
+    outputStream.write(objectMapper.writeValueAsBytes(Map.of("delvis", true)));
+    outputStream.write('\n');
+    outputStream.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    lukket = true;
+    outputStream.flush();
+  }
+}
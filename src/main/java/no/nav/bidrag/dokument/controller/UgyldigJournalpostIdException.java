@@ -0,0 +1,20 @@
+package no.nav.bidrag.dokument.controller;
+
+/**
+ * Ugyldig input fra klienten og ikke en feil i applikasjonen, og har derfor ikke stacktrace.
+ */
+public class UgyldigJournalpostIdException extends RuntimeException {
+
+  public static final String UGYLDIG_PREFIX = "Ugyldig prefix på journalpostId";
+
+  public UgyldigJournalpostIdException(String journalpostId, String warning) {
+    super(String.format(warning, journalpostId), null, false, false);
+  }
+
+  /**
+   * Warning-header i svaret, som for endepunktet (se {@link GyldigJournalpostId#warning()})
+   */
+  public String getWarning() {
+    return getMessage();
+  }
+}
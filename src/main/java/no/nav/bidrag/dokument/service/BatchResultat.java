@@ -0,0 +1,9 @@
+package no.nav.bidrag.dokument.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+@JsonInclude(Include.NON_NULL)
+public record BatchResultat<T>(String journalpostId, int status, String melding, T resultat) {
+
+}
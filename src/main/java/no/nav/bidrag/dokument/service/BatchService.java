@@ -0,0 +1,245 @@
+package no.nav.bidrag.dokument.service;
+
+import static no.nav.bidrag.commons.web.WebUtil.initHttpHeadersWith;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import no.nav.bidrag.commons.KildesystemIdenfikator;
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.IdValidering;
+import no.nav.bidrag.dokument.concurrent.ParallellBehandling;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostRequest;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostResponse;
+import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+
+@Service
+public class BatchService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchService.class);
+  static final String UGYLDIG_PREFIX = "Ugyldig prefix på journalpostId";
+  static final String DISTRIBUERT_TIDLIGERE = "Distribuert tidligere i batch";
+  static final String DISTRIBUSJON_PAGAR = "Distribusjon pågår allerede i batch, prøv igjen senere";
+  public static final String DUPLIKAT_I_BATCH = "Journalpost %s finnes flere ganger i batchen";
+
+  private final JournalpostService journalpostService;
+  private final ParallellBehandling parallellBehandling;
+  private final int parallellitetPerBackend;
+  private final int parallellitetPerBackendForKanDistribuere;
+  private final Cache<Distribusjon, DistribuerJournalpostResponse> distribuert;
+  private final Set<Distribusjon> pagaendeDistribusjoner = ConcurrentHashMap.newKeySet();
+
+  public BatchService(
+      JournalpostService journalpostService,
+      ParallellBehandling parallellBehandling,
+      @Value("${batch.parallelism-per-backend}") int parallellitetPerBackend,
+      @Value("${batch.precheck-parallelism-per-backend}") int parallellitetPerBackendForKanDistribuere,
+      @Value("${batch.distributed-ttl-ms}") long distribuertTtlMillis,
+      @Value("${batch.distributed-max-size}") long distribuertMaksAntall
+  ) {
+    this.journalpostService = journalpostService;
+    this.parallellBehandling = parallellBehandling;
+    this.parallellitetPerBackend = parallellitetPerBackend;
+    this.parallellitetPerBackendForKanDistribuere = parallellitetPerBackendForKanDistribuere;
+    this.distribuert = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(distribuertTtlMillis))
+        .maximumSize(distribuertMaksAntall)
+        .build();
+  }
+
+  public List<BatchResultat<JournalpostResponse>> hentJournalposter(String saksnummer, List<String> journalpostIder) {
+    return behandle(
+        journalpostIder, parallellitetPerBackend, kildesystemIdenfikator -> journalpostService.hentJournalpost(saksnummer, kildesystemIdenfikator),
+        ingenMottaker()
+    );
+  }
+
+  /**
+   * Sjekker om journalpostene kan distribueres. Sjekken er enkel og rask for backend, så den utføres med flere samtidige kall per backend
+   * enn de andre batchene.
+   */
+  public Map<String, KanDistribuere> kanDistribuere(List<String> journalpostIder) {
+    var resultater = behandle(journalpostIder, parallellitetPerBackendForKanDistribuere, journalpostService::kanDistribuereJournalpost, ingenMottaker());
+
+    var kanDistribuere = new LinkedHashMap<String, KanDistribuere>();
+    resultater.forEach(resultat -> kanDistribuere.put(resultat.journalpostId(), KanDistribuere.fra(resultat)));
+
+    return kanDistribuere;
+  }
+
+  /**
+   * Distribuerer journalpostene og gir resultatet for hver journalpost til mottakeren etter hvert som de er ferdige. Journalposter som
+   * allerede er distribuert i samme batch (f.eks. når klienten prøver en batch på nytt etter et brudd), blir ikke distribuert på nytt
+   * av denne poden. Hvilke journalposter som er distribuert huskes bare i minnet, så etter en omstart eller når batchen sendes til en
+   * annen pod, er det backend som må avvise en ny distribusjon (batchId sendes med hver distribusjon).
+   *
+   * @throws IllegalArgumentException når samme journalpost finnes flere ganger i batchen, se {@link #finnDuplikat(List)}
+   */
+  public void distribuer(String batchId, List<DistribusjonIBatch> distribusjoner, Consumer<BatchResultat<DistribuerJournalpostResponse>> mottaker) {
+    finnDuplikat(distribusjoner).ifPresent(journalpostId -> {
+      throw new IllegalArgumentException(String.format(DUPLIKAT_I_BATCH, journalpostId));
+    });
+
+    var requestPerJournalpost = new LinkedHashMap<String, DistribuerJournalpostRequest>();
+    distribusjoner.forEach(distribusjon -> requestPerJournalpost.put(distribusjon.journalpostId(), distribusjon.distribuerJournalpostRequest()));
+
+    var journalpostIder = new ArrayList<String>();
+
+    for (String journalpostId : requestPerJournalpost.keySet()) {
+      var tidligereDistribuert = distribuert.getIfPresent(new Distribusjon(batchId, journalpostId));
+
+      if (tidligereDistribuert != null) {
+        mottaker.accept(new BatchResultat<>(journalpostId, HttpStatus.OK.value(), DISTRIBUERT_TIDLIGERE, tidligereDistribuert));
+      } else {
+        journalpostIder.add(journalpostId);
+      }
+    }
+
+    LOGGER.info("Distribuerer {} journalposter i batch {}, {} er distribuert tidligere", journalpostIder.size(), batchId,
+        requestPerJournalpost.size() - journalpostIder.size());
+
+    behandle(
+        journalpostIder, parallellitetPerBackend, kildesystemIdenfikator -> distribuer(batchId, kildesystemIdenfikator, requestPerJournalpost), mottaker
+    );
+  }
+
+  /**
+   * Gir første journalpost som finnes flere ganger i batchen. Det er ikke gitt hvilken av distribusjonene klienten mener skal gjelde, så en
+   * slik batch avvises i sin helhet i stedet for at en av dem blir distribuert uten at klienten får vite det.
+   */
+  public static Optional<String> finnDuplikat(List<DistribusjonIBatch> distribusjoner) {
+    var journalpostIder = new LinkedHashSet<String>();
+
+    return distribusjoner.stream()
+        .map(DistribusjonIBatch::journalpostId)
+        .filter(journalpostId -> !journalpostIder.add(journalpostId))
+        .findFirst();
+  }
+
+  private HttpResponse<DistribuerJournalpostResponse> distribuer(
+      String batchId, KildesystemIdenfikator kildesystemIdenfikator, Map<String, DistribuerJournalpostRequest> requestPerJournalpost
+  ) {
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
+    var distribusjon = new Distribusjon(batchId, journalpostId);
+
+    if (!pagaendeDistribusjoner.add(distribusjon)) {
+      return new HttpResponse<>(new ResponseEntity<>(initHttpHeadersWith(HttpHeaders.WARNING, DISTRIBUSJON_PAGAR), HttpStatus.CONFLICT));
+    }
+
+    try {
+      // en distribusjon av samme journalpost kan ha blitt ferdig etter sjekken i distribuer(...), og før denne fikk plassen
+      var tidligereDistribuert = distribuert.getIfPresent(distribusjon);
+
+      if (tidligereDistribuert != null) {
+        return new HttpResponse<>(
+            new ResponseEntity<>(tidligereDistribuert, initHttpHeadersWith(HttpHeaders.WARNING, DISTRIBUERT_TIDLIGERE), HttpStatus.OK)
+        );
+      }
+
+      var response = journalpostService.distribuerJournalpost(batchId, kildesystemIdenfikator, requestPerJournalpost.get(journalpostId));
+      var responseEntity = response.getResponseEntity();
+
+      if (responseEntity.getStatusCode().is2xxSuccessful() && responseEntity.getBody() != null) {
+        distribuert.put(distribusjon, responseEntity.getBody());
+      }
+
+      return response;
+    } finally {
+      pagaendeDistribusjoner.remove(distribusjon);
+    }
+  }
+
+  private <T> List<BatchResultat<T>> behandle(
+      List<String> journalpostIder, int parallellitet, Function<KildesystemIdenfikator, HttpResponse<T>> kall, Consumer<BatchResultat<T>> mottaker
+  ) {
+    var unikeJournalpostIder = new LinkedHashSet<>(journalpostIder);
+    var journalpostIderPerBackend = new LinkedHashMap<String, List<String>>();
+    var ugyldigeJournalpostIder = new ArrayList<String>();
+
+    for (String journalpostId : unikeJournalpostIder) {
+      if (!IdValidering.erGyldigJournalpostId(journalpostId)) {
+        ugyldigeJournalpostIder.add(journalpostId);
+      } else {
+        var backend = IdValidering.erForBidrag(journalpostId) ? KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST : KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV;
+        journalpostIderPerBackend.computeIfAbsent(backend, ignored -> new ArrayList<>()).add(journalpostId);
+      }
+    }
+
+    LOGGER.info("Behandler {} journalposter i batch, {} med ugyldig id", unikeJournalpostIder.size(), ugyldigeJournalpostIder.size());
+
+    ugyldigeJournalpostIder.forEach(journalpostId -> mottaker.accept(ugyldig(journalpostId)));
+
+    Map<String, BatchResultat<T>> resultater = parallellBehandling.behandle(
+        journalpostIderPerBackend, parallellitet, journalpostId -> {
+          var resultat = utfor(journalpostId, kall);
+          mottaker.accept(resultat);
+
+          return resultat;
+        }
+    );
+
+    return unikeJournalpostIder.stream()
+        .map(journalpostId -> resultater.getOrDefault(journalpostId, ugyldig(journalpostId)))
+        .toList();
+  }
+
+  private static <T> Consumer<BatchResultat<T>> ingenMottaker() {
+    return resultat -> {
+    };
+  }
+
+  private static <T> BatchResultat<T> ugyldig(String journalpostId) {
+    return new BatchResultat<>(journalpostId, HttpStatus.BAD_REQUEST.value(), UGYLDIG_PREFIX, null);
+  }
+
+  private static <T> BatchResultat<T> utfor(String journalpostId, Function<KildesystemIdenfikator, HttpResponse<T>> kall) {
+    try {
+      var responseEntity = kall.apply(new KildesystemIdenfikator(journalpostId)).getResponseEntity();
+
+      return new BatchResultat<>(
+          journalpostId, responseEntity.getStatusCodeValue(), responseEntity.getHeaders().getFirst(HttpHeaders.WARNING), responseEntity.getBody()
+      );
+    } catch (HttpStatusCodeException e) {
+      return new BatchResultat<>(journalpostId, e.getRawStatusCode(), hentMelding(e), null);
+    } catch (BulkheadFullException | CallNotPermittedException e) {
+      // backend er overbelastet eller utilgjengelig, journalposten kan prøves igjen senere
+      return new BatchResultat<>(journalpostId, HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage(), null);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Behandling av journalpost {} i batch feilet", journalpostId, e);
+      return new BatchResultat<>(journalpostId, HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage(), null);
+    }
+  }
+
+  private static String hentMelding(HttpStatusCodeException httpStatusCodeException) {
+    var responseHeaders = httpStatusCodeException.getResponseHeaders();
+    var warning = responseHeaders != null ? responseHeaders.getFirst(HttpHeaders.WARNING) : null;
+
+    return warning != null ? warning : httpStatusCodeException.getMessage();
+  }
+
+  private record Distribusjon(String batchId, String journalpostId) {
+
+  }
+}
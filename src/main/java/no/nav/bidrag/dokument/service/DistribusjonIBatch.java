@@ -0,0 +1,7 @@
+package no.nav.bidrag.dokument.service;
+
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostRequest;
+
+public record DistribusjonIBatch(String journalpostId, DistribuerJournalpostRequest distribuerJournalpostRequest) {
+
+}
@@ -2,19 +2,34 @@ package no.nav.bidrag.dokument.service;
 
 import no.nav.bidrag.commons.web.HttpResponse;
 import no.nav.bidrag.dokument.consumer.DokumentConsumer;
+import no.nav.bidrag.dokument.consumer.ReaktivDokumentConsumer;
 import no.nav.bidrag.dokument.dto.DokumentTilgangResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DokumentService {
 
   private final DokumentConsumer dokumentConsumer;
+  private final ReaktivDokumentConsumer reaktivDokumentConsumer;
+  private final boolean reaktiv;
 
-  public DokumentService(DokumentConsumer dokumentConsumer) {
+  public DokumentService(
+      DokumentConsumer dokumentConsumer,
+      ReaktivDokumentConsumer reaktivDokumentConsumer,
+      @Value("${reactive-consumer.enabled}") boolean reaktiv
+  ) {
     this.dokumentConsumer = dokumentConsumer;
+    this.reaktivDokumentConsumer = reaktivDokumentConsumer;
+    this.reaktiv = reaktiv;
   }
 
   public HttpResponse<DokumentTilgangResponse> hentTilgangUrl(String journalpostId, String dokumentreferanse) {
+    if (reaktiv) {
+      // controlleren er synkron, så request-tråden venter på svaret (se JournalpostService)
+      return reaktivDokumentConsumer.hentTilgangUrl(journalpostId, dokumentreferanse).block();
+    }
+
     return dokumentConsumer.hentTilgangUrl(journalpostId, dokumentreferanse);
   }
 }
@@ -0,0 +1,63 @@
+package no.nav.bidrag.dokument.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import no.nav.bidrag.dokument.BidragDokumentConfig.OidcTokenManager;
+import no.nav.bidrag.dokument.Tokenhash;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backendene har ikke paging, så sidene lages av hele journalen. Første side henter journalen og tar vare på den en kort stund per
+ * saksnummer, fagområde og bruker (SHA-256 av tokenet), og de neste sidene lages av den samme journalen i stedet for å hente hele
+ * journalen fra begge backender på nytt for hver side.
+ */
+@Component
+public class JournalForSider {
+
+  private final Cache<Nokkel, List<JournalpostDto>> cache;
+  private final OidcTokenManager oidcTokenManager;
+
+  public JournalForSider(
+      @Value("${journal-paging.ttl-ms}") long levetidMillis,
+      @Value("${journal-paging.max-size}") long maksAntall,
+      OidcTokenManager oidcTokenManager,
+      MeterRegistry meterRegistry
+  ) {
+    this.oidcTokenManager = oidcTokenManager;
+
+    cache = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(levetidMillis))
+        .maximumSize(maksAntall)
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "journal-paging");
+  }
+
+  /**
+   * @param forsteSide journalen hentes alltid på nytt for første side, slik at en ny gjennomgang av journalen ser endringer
+   */
+  public List<JournalpostDto> hentJournal(String saksnummer, String fagomrade, boolean forsteSide, Supplier<List<JournalpostDto>> journalHenter) {
+    var nokkel = new Nokkel(saksnummer, fagomrade, Tokenhash.sha256(oidcTokenManager.fetchToken()));
+
+    if (forsteSide) {
+      var journalposter = journalHenter.get();
+      cache.put(nokkel, journalposter);
+
+      return journalposter;
+    }
+
+    return cache.get(nokkel, ikkeCachet -> journalHenter.get());
+  }
+
+  private record Nokkel(String saksnummer, String fagomrade, String tokenhash) {
+
+  }
+}
@@ -0,0 +1,65 @@
+package no.nav.bidrag.dokument.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+
+/**
+ * En side av en saksjournal. Sidene er sortert på journalpostId, og cursoren er journalpostId til siste journalpost på siden, slik at
+ * neste side starter etter den selv om journalposter er lagt til eller fjernet mellom sidene. Cursoren er null når det ikke finnes
+ * flere journalposter. Uten limit og cursor er siden hele journalen, i rekkefølgen fra backend (journalpost før arkiv).
+ */
+public record JournalSide(List<JournalpostDto> journalposter, String nesteCursor) {
+
+  // kildesystem (prefiks) først, deretter numerisk på id-en uten å tolke den som tall
+  private static final Comparator<String> REKKEFOLGE = Comparator.<String, String>comparing(JournalSide::prefiks)
+      .thenComparingInt(String::length)
+      .thenComparing(Comparator.naturalOrder());
+
+  static JournalSide fra(List<JournalpostDto> journalposter, String etterJournalpostId, Integer limit) {
+    if (etterJournalpostId == null && limit == null) {
+      return new JournalSide(journalposter, null);
+    }
+
+    // en journalpost uten id kan ikke ha en stabil plass i sidene, og samme journalpost fra begge backender gis bare én gang
+    var sortert = new TreeMap<String, JournalpostDto>(REKKEFOLGE);
+    journalposter.stream()
+        .filter(journalpostDto -> journalpostDto.getJournalpostId() != null)
+        .forEach(journalpostDto -> sortert.putIfAbsent(journalpostDto.getJournalpostId(), journalpostDto));
+
+    var gjenstaende = etterJournalpostId == null ? sortert : sortert.tailMap(etterJournalpostId, false);
+    var side = gjenstaende.values().stream().limit(limit == null ? Long.MAX_VALUE : limit).toList();
+    var nesteCursor = side.size() < gjenstaende.size() ? tilCursor(side.get(side.size() - 1).getJournalpostId()) : null;
+
+    return new JournalSide(side, nesteCursor);
+  }
+
+  /**
+   * @return journalpostId som neste side starter etter, eller null for første side
+   * @throws IllegalArgumentException når cursoren ikke er laget av denne tjenesten
+   */
+  public static String lesCursor(String cursor) {
+    if (cursor == null) {
+      return null;
+    }
+
+    var journalpostId = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+    if (journalpostId.isBlank()) {
+      throw new IllegalArgumentException("Mangler journalpostId i cursor: " + cursor);
+    }
+
+    return journalpostId;
+  }
+
+  private static String tilCursor(String journalpostId) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(journalpostId.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String prefiks(String journalpostId) {
+    return journalpostId.substring(0, journalpostId.indexOf('-') + 1);
+  }
+}
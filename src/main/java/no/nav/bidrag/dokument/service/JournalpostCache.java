@@ -0,0 +1,271 @@
+package no.nav.bidrag.dokument.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import no.nav.bidrag.commons.KildesystemIdenfikator;
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.BidragDokumentConfig.OidcTokenManager;
+import no.nav.bidrag.dokument.Tokenhash;
+import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Journalposter per journalpostId, saksnummer og bruker (SHA-256 av tokenet). Hver journalpostId har en versjon som økes ved endring,
+ * slik at en henting som startet før endringen ikke legger utdatert journalpost i cachen, uten at hentinger av andre journalposter
+ * påvirkes. Cachen lagrer status, headere og body som json, og hver henting får en ny {@link HttpResponse} med en ny
+ * {@link JournalpostResponse}, slik at den som bruker eller endrer svaret ikke endrer det som ligger i cachen.
+ */
+@Component
+public class JournalpostCache {
+
+  private final Cache<Nokkel, CachetJournalpost> cache;
+  private final OidcTokenManager oidcTokenManager;
+  private final ObjectMapper objectMapper;
+  // endres bare med compute per journalpostId, se Journalpostversjon
+  private final ConcurrentHashMap<String, Journalpostversjon> versjoner = new ConcurrentHashMap<>();
+  // versjonene tas herfra, slik at en journalpostId aldri får samme versjon igjen etter at den er fjernet fra versjoner
+  private final AtomicLong nesteVersjon = new AtomicLong();
+
+  public JournalpostCache(
+      @Value("${journalpost-cache.ttl-ms}") long levetidMillis,
+      @Value("${journalpost-cache.max-size}") long maksAntall,
+      OidcTokenManager oidcTokenManager,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry
+  ) {
+    this.oidcTokenManager = oidcTokenManager;
+    this.objectMapper = objectMapper;
+
+    cache = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(levetidMillis))
+        .maximumSize(maksAntall)
+        .evictionListener((Nokkel nokkel, CachetJournalpost cachetJournalpost, RemovalCause cause) -> fjernNokkel(nokkel))
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "journalpost");
+  }
+
+  public HttpResponse<JournalpostResponse> hentJournalpost(
+      String saksnummer, KildesystemIdenfikator kildesystemIdenfikator, Supplier<HttpResponse<JournalpostResponse>> journalpostHenter
+  ) {
+    var journalpostId = tilJournalpostId(kildesystemIdenfikator);
+    var nokkel = new Nokkel(journalpostId, saksnummer, Tokenhash.sha256(oidcTokenManager.fetchToken()));
+    var cachetJournalpost = cache.getIfPresent(nokkel);
+
+    if (cachetJournalpost != null) {
+      return cachetJournalpost.tilHttpResponse(objectMapper);
+    }
+
+    var versjonForHenting = startHenting(journalpostId);
+    HttpResponse<JournalpostResponse> journalpostResponse;
+
+    try {
+      journalpostResponse = journalpostHenter.get();
+    } catch (RuntimeException e) {
+      avsluttHenting(journalpostId, nokkel, versjonForHenting, false);
+      throw e;
+    }
+
+    leggICache(journalpostId, nokkel, versjonForHenting, journalpostResponse);
+
+    return journalpostResponse;
+  }
+
+  /**
+   * Som {@link #hentJournalpost(String, KildesystemIdenfikator, Supplier)} for hentinger som ikke blokkerer. Nøkkelen (med tokenet) lages
+   * på tråden som spør, og journalposten legges i cachen av tråden som fullfører hentingen.
+   */
+  public CompletableFuture<HttpResponse<JournalpostResponse>> hentJournalpostAsynkront(
+      String saksnummer,
+      KildesystemIdenfikator kildesystemIdenfikator,
+      Supplier<CompletableFuture<HttpResponse<JournalpostResponse>>> journalpostHenter
+  ) {
+    var journalpostId = tilJournalpostId(kildesystemIdenfikator);
+    var nokkel = new Nokkel(journalpostId, saksnummer, Tokenhash.sha256(oidcTokenManager.fetchToken()));
+    var cachetJournalpost = cache.getIfPresent(nokkel);
+
+    if (cachetJournalpost != null) {
+      return CompletableFuture.completedFuture(cachetJournalpost.tilHttpResponse(objectMapper));
+    }
+
+    var versjonForHenting = startHenting(journalpostId);
+    CompletableFuture<HttpResponse<JournalpostResponse>> henting;
+
+    try {
+      henting = journalpostHenter.get();
+    } catch (RuntimeException e) {
+      avsluttHenting(journalpostId, nokkel, versjonForHenting, false);
+      throw e;
+    }
+
+    return henting.whenComplete((journalpostResponse, feil) -> {
+      if (feil != null) {
+        avsluttHenting(journalpostId, nokkel, versjonForHenting, false);
+      } else {
+        leggICache(journalpostId, nokkel, versjonForHenting, journalpostResponse);
+      }
+    });
+  }
+
+  private void leggICache(String journalpostId, Nokkel nokkel, long versjonForHenting, HttpResponse<JournalpostResponse> journalpostResponse) {
+    var skalCaches = journalpostResponse.is2xxSuccessful() && journalpostResponse.fetchBody().isPresent();
+
+    if (avsluttHenting(journalpostId, nokkel, versjonForHenting, skalCaches)) {
+      cache.put(nokkel, CachetJournalpost.fra(journalpostResponse, objectMapper));
+
+      // journalposten kan være endret mens den ble lagt i cachen, og da er den ikke fjernet av fjern(...)
+      if (hentVersjon(journalpostId) != versjonForHenting) {
+        cache.invalidate(nokkel);
+        fjernNokkel(nokkel);
+      }
+    }
+  }
+
+  public void fjern(KildesystemIdenfikator kildesystemIdenfikator) {
+    var journalpostId = tilJournalpostId(kildesystemIdenfikator);
+    var nokler = new HashSet<Nokkel>();
+
+    versjoner.compute(journalpostId, (id, versjon) -> {
+      if (versjon == null) {
+        return null;
+      }
+
+      versjon.versjon = nesteVersjon.incrementAndGet();
+      nokler.addAll(versjon.nokler);
+      versjon.nokler.clear();
+
+      return versjon.erUbrukt() ? null : versjon;
+    });
+
+    cache.invalidateAll(nokler);
+  }
+
+  private long startHenting(String journalpostId) {
+    var versjonForHenting = new long[1];
+
+    versjoner.compute(journalpostId, (id, versjon) -> {
+      var journalpostversjon = versjon != null ? versjon : new Journalpostversjon(nesteVersjon.incrementAndGet());
+      journalpostversjon.hentinger++;
+      versjonForHenting[0] = journalpostversjon.versjon;
+
+      return journalpostversjon;
+    });
+
+    return versjonForHenting[0];
+  }
+
+  /**
+   * @return true når journalposten skal legges i cachen, dvs. den er ikke endret siden hentingen startet
+   */
+  private boolean avsluttHenting(String journalpostId, Nokkel nokkel, long versjonForHenting, boolean skalCaches) {
+    var leggICache = new boolean[1];
+
+    versjoner.computeIfPresent(journalpostId, (id, versjon) -> {
+      versjon.hentinger--;
+
+      if (skalCaches && versjon.versjon == versjonForHenting) {
+        versjon.nokler.add(nokkel);
+        leggICache[0] = true;
+      }
+
+      return versjon.erUbrukt() ? null : versjon;
+    });
+
+    return leggICache[0];
+  }
+
+  private long hentVersjon(String journalpostId) {
+    var versjon = versjoner.get(journalpostId);
+
+    // fjernet fra versjoner betyr at journalposten er endret (og nøkkelen fjernet) etter at den ble lagt i cachen
+    return versjon != null ? versjon.versjon : -1;
+  }
+
+  private void fjernNokkel(Nokkel nokkel) {
+    versjoner.computeIfPresent(nokkel.journalpostId(), (id, versjon) -> {
+      versjon.nokler.remove(nokkel);
+
+      return versjon.erUbrukt() ? null : versjon;
+    });
+  }
+
+  private static String tilJournalpostId(KildesystemIdenfikator kildesystemIdenfikator) {
+    return kildesystemIdenfikator.getPrefiksetJournalpostId().toUpperCase(Locale.ROOT);
+  }
+
+  private record Nokkel(String journalpostId, String saksnummer, String tokenhash) {
+
+  }
+
+  /**
+   * Versjonen til en journalpostId, nøklene den ligger i cachen med og antall hentinger som pågår. Fjernes når ingen av delene er i
+   * bruk, slik at det ikke blir liggende en versjon for hver journalpost som er endret.
+   */
+  private static class Journalpostversjon {
+
+    private final Set<Nokkel> nokler = new HashSet<>();
+    private long versjon;
+    private int hentinger;
+
+    Journalpostversjon(long versjon) {
+      this.versjon = versjon;
+    }
+
+    boolean erUbrukt() {
+      return nokler.isEmpty() && hentinger == 0;
+    }
+  }
+
+  /**
+   * JournalpostResponse er muterbar, så body lagres som json og leses til en ny JournalpostResponse for hver henting.
+   */
+  private record CachetJournalpost(HttpStatus status, HttpHeaders headers, byte[] journalpostJson) {
+
+    static CachetJournalpost fra(HttpResponse<JournalpostResponse> httpResponse, ObjectMapper objectMapper) {
+      var responseEntity = httpResponse.getResponseEntity();
+      var headers = new HttpHeaders();
+      responseEntity.getHeaders().forEach((navn, verdier) -> headers.put(navn, List.copyOf(verdier)));
+
+      try {
+        return new CachetJournalpost(
+            responseEntity.getStatusCode(), HttpHeaders.readOnlyHttpHeaders(headers), objectMapper.writeValueAsBytes(responseEntity.getBody())
+        );
+      } catch (JsonProcessingException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    HttpResponse<JournalpostResponse> tilHttpResponse(ObjectMapper objectMapper) {
+      var kopiAvHeaders = new HttpHeaders();
+      headers.forEach((navn, verdier) -> kopiAvHeaders.put(navn, new ArrayList<>(verdier)));
+
+      try {
+        return new HttpResponse<>(new ResponseEntity<>(objectMapper.readValue(journalpostJson, JournalpostResponse.class), kopiAvHeaders, status));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -2,13 +2,21 @@ package no.nav.bidrag.dokument.service;
 
 import static no.nav.bidrag.commons.KildesystemIdenfikator.Kildesystem.BIDRAG;
 import static no.nav.bidrag.dokument.BidragDokumentConfig.ARKIV_QUALIFIER;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST;
 import static no.nav.bidrag.dokument.BidragDokumentConfig.MIDL_BREVLAGER_QUALIFIER;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import no.nav.bidrag.commons.KildesystemIdenfikator;
 import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.concurrent.FanOut;
+import no.nav.bidrag.dokument.concurrent.FanOut.AsynkrontKall;
+import no.nav.bidrag.dokument.concurrent.FanOut.Kall;
 import no.nav.bidrag.dokument.consumer.BidragDokumentConsumer;
+import no.nav.bidrag.dokument.consumer.ReaktivBidragDokumentConsumer;
 import no.nav.bidrag.dokument.dto.AvvikType;
 import no.nav.bidrag.dokument.dto.Avvikshendelse;
 import no.nav.bidrag.dokument.dto.BehandleAvvikshendelseResponse;
@@ -18,71 +26,195 @@ import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
 import no.nav.bidrag.dokument.dto.JournalpostDto;
 import no.nav.bidrag.dokument.dto.JournalpostResponse;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 @Component
 public class JournalpostService {
 
   private final BidragDokumentConsumer bidragJournalpostConsumer;
   private final BidragDokumentConsumer bidragArkivConsumer;
+  private final ReaktivBidragDokumentConsumer reaktivJournalpostConsumer;
+  private final ReaktivBidragDokumentConsumer reaktivArkivConsumer;
+  private final boolean reaktiv;
+  private final FanOut fanOut;
+  private final JournalpostCache journalpostCache;
+  private final JournalForSider journalForSider;
 
   public JournalpostService(
       @Qualifier(ARKIV_QUALIFIER) BidragDokumentConsumer bidragArkivConsumer,
-      @Qualifier(MIDL_BREVLAGER_QUALIFIER) BidragDokumentConsumer bidragJournalpostConsumer
+      @Qualifier(MIDL_BREVLAGER_QUALIFIER) BidragDokumentConsumer bidragJournalpostConsumer,
+      @Qualifier(ARKIV_QUALIFIER) ReaktivBidragDokumentConsumer reaktivArkivConsumer,
+      @Qualifier(MIDL_BREVLAGER_QUALIFIER) ReaktivBidragDokumentConsumer reaktivJournalpostConsumer,
+      @Value("${reactive-consumer.enabled}") boolean reaktiv,
+      FanOut fanOut,
+      JournalpostCache journalpostCache,
+      JournalForSider journalForSider
   ) {
     this.bidragArkivConsumer = bidragArkivConsumer;
     this.bidragJournalpostConsumer = bidragJournalpostConsumer;
+    this.reaktivArkivConsumer = reaktivArkivConsumer;
+    this.reaktivJournalpostConsumer = reaktivJournalpostConsumer;
+    this.reaktiv = reaktiv;
+    this.fanOut = fanOut;
+    this.journalpostCache = journalpostCache;
+    this.journalForSider = journalForSider;
   }
 
   public HttpResponse<JournalpostResponse> hentJournalpost(String saksnummer, KildesystemIdenfikator kildesystemIdenfikator) {
-    if (kildesystemIdenfikator.erFor(BIDRAG)) {
-      return bidragJournalpostConsumer.hentJournalpost(saksnummer, kildesystemIdenfikator.getPrefiksetJournalpostId());
-    }
-    return bidragArkivConsumer.hentJournalpost(saksnummer, kildesystemIdenfikator.getPrefiksetJournalpostId());
+    return journalpostCache.hentJournalpost(
+        saksnummer, kildesystemIdenfikator, () -> hentJournalpostFraKildesystem(saksnummer, kildesystemIdenfikator)
+    );
+  }
+
+  private HttpResponse<JournalpostResponse> hentJournalpostFraKildesystem(String saksnummer, KildesystemIdenfikator kildesystemIdenfikator) {
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
+
+    return utfor(kildesystemIdenfikator,
+        consumer -> consumer.hentJournalpost(saksnummer, journalpostId),
+        consumer -> consumer.hentJournalpost(saksnummer, journalpostId)
+    );
+  }
+
+  /**
+   * Som {@link #hentJournalpost(String, KildesystemIdenfikator)}, men tråden som spør venter ikke på svaret fra backend (se
+   * async-request.enabled). Kallet starter, med token og correlation id, på tråden som spør. Krever den ikke-blokkerende consumeren.
+   */
+  public CompletableFuture<HttpResponse<JournalpostResponse>> hentJournalpostAsynkront(
+      String saksnummer, KildesystemIdenfikator kildesystemIdenfikator
+  ) {
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
+
+    return journalpostCache.hentJournalpostAsynkront(
+        saksnummer, kildesystemIdenfikator, () -> velgReaktivConsumer(kildesystemIdenfikator).hentJournalpost(saksnummer, journalpostId).toFuture()
+    );
   }
 
   public HttpResponse<List<AvvikType>> finnAvvik(String saksnummer, KildesystemIdenfikator kildesystemIdenfikator) {
-    if (kildesystemIdenfikator.erFor(BIDRAG)) {
-      return bidragJournalpostConsumer.finnAvvik(saksnummer, kildesystemIdenfikator.getPrefiksetJournalpostId());
-    }
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
 
-    return bidragArkivConsumer.finnAvvik(saksnummer, kildesystemIdenfikator.getPrefiksetJournalpostId());
+    return utfor(kildesystemIdenfikator,
+        consumer -> consumer.finnAvvik(saksnummer, journalpostId),
+        consumer -> consumer.finnAvvik(saksnummer, journalpostId)
+    );
+  }
+
+  /**
+   * Som {@link #finnAvvik(String, KildesystemIdenfikator)}, men uten å vente på svaret, se {@link #hentJournalpostAsynkront}.
+   */
+  public CompletableFuture<HttpResponse<List<AvvikType>>> finnAvvikAsynkront(String saksnummer, KildesystemIdenfikator kildesystemIdenfikator) {
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
+
+    return velgReaktivConsumer(kildesystemIdenfikator).finnAvvik(saksnummer, journalpostId).toFuture();
   }
 
   public HttpResponse<BehandleAvvikshendelseResponse> behandleAvvik(
       String enhet, KildesystemIdenfikator kildesystemIdenfikator, Avvikshendelse avvikshendelse
   ) {
-    if (kildesystemIdenfikator.erFor(BIDRAG)) {
-      return bidragJournalpostConsumer.behandleAvvik(enhet, kildesystemIdenfikator.getPrefiksetJournalpostId(), avvikshendelse);
-    }
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
 
-    return bidragArkivConsumer.behandleAvvik(enhet, kildesystemIdenfikator.getPrefiksetJournalpostId(), avvikshendelse);
+    return fjernFraCacheVedSuksess(kildesystemIdenfikator, utfor(kildesystemIdenfikator,
+        consumer -> consumer.behandleAvvik(enhet, journalpostId, avvikshendelse),
+        consumer -> consumer.behandleAvvik(enhet, journalpostId, avvikshendelse)
+    ));
   }
 
   public List<JournalpostDto> finnJournalposter(String saksnummer, String fagomrade) {
-    var sakjournal = new ArrayList<>(bidragJournalpostConsumer.finnJournalposter(saksnummer, fagomrade));
-    sakjournal.addAll(bidragArkivConsumer.finnJournalposter(saksnummer, fagomrade));
-    return sakjournal;
+    if (reaktiv) {
+      return fanOut.hentOgSammenstill(
+          new AsynkrontKall<>(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, () -> reaktivJournalpostConsumer.finnJournalposter(saksnummer, fagomrade).toFuture()),
+          new AsynkrontKall<>(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, () -> reaktivArkivConsumer.finnJournalposter(saksnummer, fagomrade).toFuture())
+      );
+    }
+
+    return fanOut.hentOgSammenstill(
+        new Kall<>(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, () -> bidragJournalpostConsumer.finnJournalposter(saksnummer, fagomrade)),
+        new Kall<>(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, () -> bidragArkivConsumer.finnJournalposter(saksnummer, fagomrade))
+    );
   }
 
-  public HttpResponse<Void> endre(String enhet, KildesystemIdenfikator kildesystemIdenfikator, EndreJournalpostCommand endreJournalpostCommand) {
-    if (kildesystemIdenfikator.erFor(BIDRAG)) {
-      return bidragJournalpostConsumer.endre(enhet, endreJournalpostCommand);
+  public JournalSide finnJournalposter(String saksnummer, String fagomrade, String etterJournalpostId, Integer limit) {
+    if (etterJournalpostId == null && limit == null) {
+      return JournalSide.fra(finnJournalposter(saksnummer, fagomrade), null, null);
     }
-    return bidragArkivConsumer.endre(enhet, endreJournalpostCommand);
+
+    var journalposter = journalForSider.hentJournal(
+        saksnummer, fagomrade, etterJournalpostId == null, () -> finnJournalposter(saksnummer, fagomrade)
+    );
+
+    return JournalSide.fra(journalposter, etterJournalpostId, limit);
+  }
+
+  /**
+   * Journalpostene gis til mottakeren etter hvert som de leses fra backend, og mottakeren kan bli kalt fra flere tråder samtidig.
+   *
+   * @return true når journalen er delvis, dvs. en backend feilet eller svarte ikke i tide (bare med fanout.delvis-resultat TILLAT)
+   */
+  public boolean finnJournalposter(String saksnummer, String fagomrade, Consumer<JournalpostDto> mottaker) {
+    return fanOut.hentOgSammenstillMedManglende(
+        new Kall<JournalpostDto>(KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, () -> {
+          bidragJournalpostConsumer.finnJournalposter(saksnummer, fagomrade, mottaker);
+          return List.of();
+        }),
+        new Kall<JournalpostDto>(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV, () -> {
+          bidragArkivConsumer.finnJournalposter(saksnummer, fagomrade, mottaker);
+          return List.of();
+        })
+    ).erDelvis();
+  }
+
+  public HttpResponse<Void> endre(String enhet, KildesystemIdenfikator kildesystemIdenfikator, EndreJournalpostCommand endreJournalpostCommand) {
+    return fjernFraCacheVedSuksess(kildesystemIdenfikator, utfor(kildesystemIdenfikator,
+        consumer -> consumer.endre(enhet, endreJournalpostCommand),
+        consumer -> consumer.endre(enhet, endreJournalpostCommand)
+    ));
   }
 
   public HttpResponse<DistribuerJournalpostResponse> distribuerJournalpost(String batchId, KildesystemIdenfikator kildesystemIdenfikator, DistribuerJournalpostRequest distribuerJournalpostRequest) {
-    if (kildesystemIdenfikator.erFor(BIDRAG)) {
-      return bidragJournalpostConsumer.distribuerJournalpost(kildesystemIdenfikator.getPrefiksetJournalpostId(), batchId, distribuerJournalpostRequest);
-    }
-    return bidragArkivConsumer.distribuerJournalpost(kildesystemIdenfikator.getPrefiksetJournalpostId(), batchId, distribuerJournalpostRequest);
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
+
+    return fjernFraCacheVedSuksess(kildesystemIdenfikator, utfor(kildesystemIdenfikator,
+        consumer -> consumer.distribuerJournalpost(journalpostId, batchId, distribuerJournalpostRequest),
+        consumer -> consumer.distribuerJournalpost(journalpostId, batchId, distribuerJournalpostRequest)
+    ));
   }
 
   public HttpResponse<Void> kanDistribuereJournalpost(KildesystemIdenfikator kildesystemIdenfikator) {
-    if (kildesystemIdenfikator.erFor(BIDRAG)) {
-      return bidragJournalpostConsumer.kanDistribuereJournalpost(kildesystemIdenfikator.getPrefiksetJournalpostId());
+    var journalpostId = kildesystemIdenfikator.getPrefiksetJournalpostId();
+
+    return utfor(kildesystemIdenfikator,
+        consumer -> consumer.kanDistribuereJournalpost(journalpostId),
+        consumer -> consumer.kanDistribuereJournalpost(journalpostId)
+    );
+  }
+
+  /**
+   * Velger consumer for kildesystemet, og den ikke-blokkerende consumeren når den er slått på (reactive-consumer.enabled). Request-tråden
+   * venter her på svaret også med den ikke-blokkerende consumeren. Det er bare sak journal (fanout), og lesing av journalpost og avvik
+   * med async-request.enabled, som da ikke holder en tråd per kall mot backend.
+   */
+  private <T> T utfor(
+      KildesystemIdenfikator kildesystemIdenfikator,
+      Function<BidragDokumentConsumer, T> kall,
+      Function<ReaktivBidragDokumentConsumer, Mono<T>> reaktivtKall
+  ) {
+    if (reaktiv) {
+      return reaktivtKall.apply(velgReaktivConsumer(kildesystemIdenfikator)).block();
     }
-    return bidragArkivConsumer.kanDistribuereJournalpost(kildesystemIdenfikator.getPrefiksetJournalpostId());
+
+    return kall.apply(kildesystemIdenfikator.erFor(BIDRAG) ? bidragJournalpostConsumer : bidragArkivConsumer);
+  }
+
+  private ReaktivBidragDokumentConsumer velgReaktivConsumer(KildesystemIdenfikator kildesystemIdenfikator) {
+    return kildesystemIdenfikator.erFor(BIDRAG) ? reaktivJournalpostConsumer : reaktivArkivConsumer;
+  }
+
+  private <T> HttpResponse<T> fjernFraCacheVedSuksess(KildesystemIdenfikator kildesystemIdenfikator, HttpResponse<T> httpResponse) {
+    if (httpResponse.is2xxSuccessful()) {
+      journalpostCache.fjern(kildesystemIdenfikator);
+    }
+
+    return httpResponse;
   }
 }
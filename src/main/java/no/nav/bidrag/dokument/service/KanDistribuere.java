@@ -0,0 +1,13 @@
+package no.nav.bidrag.dokument.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import org.springframework.http.HttpStatus;
+
+@JsonInclude(Include.NON_NULL)
+public record KanDistribuere(boolean enabled, int status, String melding) {
+
+  static KanDistribuere fra(BatchResultat<?> batchResultat) {
+    return new KanDistribuere(batchResultat.status() == HttpStatus.OK.value(), batchResultat.status(), batchResultat.melding());
+  }
+}
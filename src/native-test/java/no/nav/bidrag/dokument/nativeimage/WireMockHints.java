@@ -0,0 +1,66 @@
+package no.nav.bidrag.dokument.nativeimage;
+
+import com.github.tomakehurst.wiremock.common.Metadata;
+import com.github.tomakehurst.wiremock.http.ChunkedDribbleDelay;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.matching.AnythingPattern;
+import com.github.tomakehurst.wiremock.matching.ContentPattern;
+import com.github.tomakehurst.wiremock.matching.EqualToPattern;
+import com.github.tomakehurst.wiremock.matching.MultiValuePattern;
+import com.github.tomakehurst.wiremock.matching.RegexPattern;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.matching.StringValuePattern;
+import com.github.tomakehurst.wiremock.matching.UrlPathPattern;
+import com.github.tomakehurst.wiremock.matching.UrlPattern;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.github.tomakehurst.wiremock.verification.VerificationResult;
+import org.springframework.nativex.hint.NativeHint;
+import org.springframework.nativex.hint.ResourceHint;
+import org.springframework.nativex.hint.TypeAccess;
+import org.springframework.nativex.hint.TypeHint;
+import org.springframework.nativex.type.NativeConfiguration;
+
+/**
+ * Det native-image trenger for å kjøre wiremock (med jetty) i testene som kjøres native: stubs og verifisering sendes som json til
+ * admin-api-et og leses med refleksjon, og jetty lager servlets, filtre og logger fra klassenavn. Brukes bare av maven-profilen native.
+ */
+@NativeHint(
+    types = {
+        // json til og fra admin-api-et (stubFor, verify og reset)
+        @TypeHint(
+            types = {
+                StubMapping.class, RequestPattern.class, ResponseDefinition.class, UrlPattern.class, UrlPathPattern.class,
+                StringValuePattern.class, ContentPattern.class, EqualToPattern.class, RegexPattern.class, AnythingPattern.class,
+                MultiValuePattern.class, HttpHeader.class, HttpHeaders.class, RequestMethod.class, Metadata.class, ChunkedDribbleDelay.class,
+                LoggedRequest.class, VerificationResult.class
+            },
+            typeNames = {
+                "com.github.tomakehurst.wiremock.matching.StringValuePatternJsonDeserializer",
+                "com.github.tomakehurst.wiremock.http.HttpHeadersJsonSerializer",
+                "com.github.tomakehurst.wiremock.http.HttpHeadersJsonDeserializer"
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.DECLARED_METHODS}
+        ),
+        // servlets og filtre jetty lager fra klassen, og loggeren jetty finner med Class.forName
+        @TypeHint(
+            typeNames = {
+                "com.github.tomakehurst.wiremock.servlet.WireMockHandlerDispatchingServlet",
+                "com.github.tomakehurst.wiremock.servlet.NotMatchedServlet",
+                "com.github.tomakehurst.wiremock.servlet.TrailingSlashFilter",
+                "com.github.tomakehurst.wiremock.servlet.ContentTypeSettingFilter",
+                "org.eclipse.jetty.servlet.DefaultServlet",
+                "org.eclipse.jetty.util.log.Slf4jLog"
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS}
+        )
+    },
+    // mime-typer, tegnsett og versjon som jetty leser fra classpath
+    resources = @ResourceHint(patterns = {"org/eclipse/jetty/http/.*\\.properties", "org/eclipse/jetty/version/build.properties"})
+)
+public class WireMockHints implements NativeConfiguration {
+
+}
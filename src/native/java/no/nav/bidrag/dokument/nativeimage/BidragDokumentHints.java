@@ -0,0 +1,165 @@
+package no.nav.bidrag.dokument.nativeimage;
+
+import java.util.concurrent.TimeoutException;
+import no.nav.bidrag.dokument.aop.AspectExceptionLogger;
+import no.nav.bidrag.dokument.concurrent.ForsokAvbruttException;
+import no.nav.bidrag.dokument.controller.DokumentController;
+import no.nav.bidrag.dokument.controller.JournalpostController;
+import no.nav.bidrag.dokument.dto.AvvikType;
+import no.nav.bidrag.dokument.dto.Avvikshendelse;
+import no.nav.bidrag.dokument.dto.BehandleAvvikshendelseResponse;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostRequest;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostResponse;
+import no.nav.bidrag.dokument.dto.DokumentTilgangResponse;
+import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import no.nav.bidrag.dokument.service.BatchResultat;
+import no.nav.bidrag.dokument.service.DistribusjonIBatch;
+import no.nav.bidrag.dokument.service.JournalSide;
+import no.nav.bidrag.dokument.service.KanDistribuere;
+import no.nav.security.token.support.client.core.ClientAuthenticationProperties;
+import no.nav.security.token.support.client.core.ClientProperties;
+import no.nav.security.token.support.client.spring.ClientConfigurationProperties;
+import no.nav.security.token.support.core.api.Protected;
+import no.nav.security.token.support.core.api.ProtectedWithClaims;
+import no.nav.security.token.support.core.api.Unprotected;
+import no.nav.security.token.support.core.configuration.IssuerProperties;
+import no.nav.security.token.support.spring.MultiIssuerProperties;
+import org.springframework.core.annotation.SynthesizedAnnotation;
+import org.springframework.nativex.hint.AotProxyHint;
+import org.springframework.nativex.hint.JdkProxyHint;
+import org.springframework.nativex.hint.NativeHint;
+import org.springframework.nativex.hint.ProxyBits;
+import org.springframework.nativex.hint.ResourceHint;
+import org.springframework.nativex.hint.TypeAccess;
+import org.springframework.nativex.hint.TypeHint;
+import org.springframework.nativex.type.NativeConfiguration;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+/**
+ * Det native-image ikke finner selv ved analyse av applikasjonen: typer som leses og skrives som json med refleksjon, konfigurasjon og
+ * annoteringer for token-support, proxyer for controllerne som {@link AspectExceptionLogger} logger feil for, klassene logback lager
+ * fra logback-spring.xml, cache-klassene caffeine genererer, konfigurasjon og actuator-endepunkter for resilience4j og kanalene
+ * reactor-netty lager. Brukes bare av maven-profilen native, hint for testene mot wiremock er i src/native-test.
+ */
+@NativeHint(
+    types = {
+        // json fra og til konsumentene av api-et og backend (bidrag-dokument-dto)
+        @TypeHint(
+            types = {
+                AvvikType.class, Avvikshendelse.class, BehandleAvvikshendelseResponse.class, DistribuerJournalpostRequest.class,
+                DistribuerJournalpostResponse.class, DokumentTilgangResponse.class, EndreJournalpostCommand.class, JournalpostDto.class,
+                JournalpostResponse.class, BatchResultat.class, DistribusjonIBatch.class, JournalSide.class, KanDistribuere.class
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.DECLARED_METHODS}
+        ),
+        // token-support: konfigurasjon som bindes fra application.yaml, og token fra azure som leses som json
+        @TypeHint(
+            types = {
+                MultiIssuerProperties.class, IssuerProperties.class, ClientConfigurationProperties.class, ClientProperties.class,
+                ClientAuthenticationProperties.class
+            },
+            typeNames = {
+                "no.nav.security.token.support.core.configuration.IssuerProperties$Validation",
+                "no.nav.security.token.support.core.configuration.IssuerProperties$JwksCache",
+                "no.nav.security.token.support.client.core.oauth2.OAuth2AccessTokenResponse"
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_METHODS}
+        ),
+        // token-support: annoteringene som avgjør om en controller-metode krever token
+        @TypeHint(types = {Protected.class, ProtectedWithClaims.class, Unprotected.class}, access = TypeAccess.PUBLIC_METHODS),
+        @TypeHint(types = AspectExceptionLogger.class, access = TypeAccess.DECLARED_METHODS),
+        // mixin med @JsonFilter for feltprojeksjon av sak journal
+        @TypeHint(typeNames = "no.nav.bidrag.dokument.controller.Feltprojeksjon$MedFeltfilter", access = TypeAccess.DECLARED_METHODS),
+        // caffeine lager cache og noder med Class.forName ut fra hva som er konfigurert (S: statistikk, MS: maximumSize, A: expireAfter,
+        // W: expireAfterWrite), se IssuerCache, OboTokenCache, JournalpostCache, JournalForSider og BatchService
+        @TypeHint(
+            typeNames = {
+                "com.github.benmanes.caffeine.cache.SSSMSA",
+                "com.github.benmanes.caffeine.cache.SSSMSW",
+                "com.github.benmanes.caffeine.cache.SSMSW",
+                "com.github.benmanes.caffeine.cache.PS",
+                "com.github.benmanes.caffeine.cache.PSA",
+                "com.github.benmanes.caffeine.cache.PSW",
+                "com.github.benmanes.caffeine.cache.PSAMS",
+                "com.github.benmanes.caffeine.cache.PSWMS"
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS}
+        ),
+        // felter caffeine oppdaterer med Unsafe
+        @TypeHint(
+            typeNames = {
+                "com.github.benmanes.caffeine.cache.BLCHeader$DrainStatusRef",
+                "com.github.benmanes.caffeine.cache.BBHeader$ReadAndWriteCounterRef",
+                "com.github.benmanes.caffeine.cache.BBHeader$ReadCounterRef",
+                "com.github.benmanes.caffeine.cache.BaseMpscLinkedArrayQueueProducerFields",
+                "com.github.benmanes.caffeine.cache.BaseMpscLinkedArrayQueueConsumerFields",
+                "com.github.benmanes.caffeine.cache.BaseMpscLinkedArrayQueueColdProducerFields",
+                "com.github.benmanes.caffeine.cache.StripedBuffer"
+            },
+            access = TypeAccess.DECLARED_FIELDS
+        ),
+        // resilience4j: konfigurasjon som bindes fra application.yaml, og exceptions i record- og ignore-exceptions som lastes med Class.forName
+        @TypeHint(
+            typeNames = {
+                "io.github.resilience4j.circuitbreaker.autoconfigure.CircuitBreakerProperties",
+                "io.github.resilience4j.common.circuitbreaker.configuration.CircuitBreakerConfigurationProperties$InstanceProperties",
+                "io.github.resilience4j.bulkhead.autoconfigure.BulkheadProperties",
+                "io.github.resilience4j.common.bulkhead.configuration.BulkheadConfigurationProperties$InstanceProperties"
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_METHODS}
+        ),
+        @TypeHint(
+            types = {
+                HttpServerErrorException.class, ResourceAccessException.class, WebClientRequestException.class, TimeoutException.class,
+                ForsokAvbruttException.class
+            },
+            access = TypeAccess.DECLARED_CONSTRUCTORS
+        ),
+        // resilience4j: svar fra /actuator/circuitbreakers og /actuator/bulkheads
+        @TypeHint(
+            typeNames = {
+                "io.github.resilience4j.common.circuitbreaker.monitoring.endpoint.CircuitBreakerEndpointResponse",
+                "io.github.resilience4j.common.circuitbreaker.monitoring.endpoint.CircuitBreakerDetails",
+                "io.github.resilience4j.common.bulkhead.monitoring.endpoint.BulkheadEndpointResponse"
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_METHODS}
+        ),
+        // reactor-netty (WebClient med reactive-consumer.enabled): kanalene lages med refleksjon, og udp brukes til dns-oppslag
+        @TypeHint(
+            typeNames = {"io.netty.channel.socket.nio.NioSocketChannel", "io.netty.channel.socket.nio.NioDatagramChannel"},
+            access = TypeAccess.PUBLIC_CONSTRUCTORS
+        ),
+        // logback-spring.xml
+        @TypeHint(
+            typeNames = {
+                "net.logstash.logback.encoder.LoggingEventCompositeJsonEncoder",
+                "net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender",
+                "net.logstash.logback.composite.loggingevent.LoggingEventJsonProviders",
+                "net.logstash.logback.composite.loggingevent.MdcJsonProvider",
+                "net.logstash.logback.composite.loggingevent.LoggingEventFormattedTimestampJsonProvider",
+                "net.logstash.logback.composite.loggingevent.MessageJsonProvider",
+                "net.logstash.logback.composite.loggingevent.LoggerNameJsonProvider",
+                "net.logstash.logback.composite.loggingevent.ThreadNameJsonProvider",
+                "net.logstash.logback.composite.loggingevent.LogLevelJsonProvider",
+                "net.logstash.logback.composite.loggingevent.CallerDataJsonProvider",
+                "net.logstash.logback.composite.loggingevent.ArgumentsJsonProvider",
+                "net.logstash.logback.composite.loggingevent.StackTraceJsonProvider"
+            },
+            access = {TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS}
+        )
+    },
+    jdkProxies = @JdkProxyHint(types = {Protected.class, SynthesizedAnnotation.class}),
+    // AspectExceptionLogger gjør controllerne til cglib-proxyer, som må lages når imaget bygges
+    aotProxies = {
+        @AotProxyHint(targetClass = JournalpostController.class, proxyFeatures = ProxyBits.IS_STATIC),
+        @AotProxyHint(targetClass = DokumentController.class, proxyFeatures = ProxyBits.IS_STATIC)
+    },
+    resources = @ResourceHint(patterns = {"logback-spring.xml", "banner.txt"})
+)
+public class BidragDokumentHints implements NativeConfiguration {
+
+}
@@ -0,0 +1,56 @@
+package no.nav.bidrag.dokument;
+
+import static no.nav.bidrag.dokument.BidragDokumentConfig.KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV;
+import static no.nav.bidrag.dokument.BidragDokumentLocal.TEST_PROFILE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker.State;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import java.util.Map;
+import no.nav.bidrag.commons.web.test.HttpHeaderTestRestTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = BidragDokumentLocal.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(TEST_PROFILE)
+@DisplayName("Helsesjekk")
+class HelsesjekkTest {
+
+  @Autowired
+  private HttpHeaderTestRestTemplate securedTestRestTemplate;
+
+  @Autowired
+  private CircuitBreakerRegistry circuitBreakerRegistry;
+
+  @LocalServerPort
+  private int port;
+
+  @AfterEach
+  void lukkCircuitBreaker() {
+    circuitBreakerRegistry.circuitBreaker(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV).transitionToClosedState();
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  @DisplayName("skal være UP når circuit breaker mot en backend er åpen, siden liveness og readiness bruker /actuator/health")
+  void skalVareUpNarCircuitBreakerErApen() {
+    var circuitBreaker = circuitBreakerRegistry.circuitBreaker(KLIENTNAVN_BIDRAG_DOKUMENT_ARKIV);
+    circuitBreaker.transitionToOpenState();
+
+    var response = securedTestRestTemplate.exchange("http://localhost:" + port + "/bidrag-dokument/actuator/health", HttpMethod.GET, null, Map.class);
+
+    assertAll(
+        () -> assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN),
+        () -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK),
+        () -> assertThat(response.getBody()).containsEntry("status", "UP")
+    );
+  }
+}
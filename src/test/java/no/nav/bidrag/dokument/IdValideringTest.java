@@ -0,0 +1,47 @@
+package no.nav.bidrag.dokument;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("IdValidering")
+class IdValideringTest {
+
+  @Test
+  @DisplayName("skal godta journalpostId med kjent prefix og bare tall etter prefix")
+  void skalGodtaGyldigJournalpostId() {
+    assertAll(
+        () -> assertThat(IdValidering.erGyldigJournalpostId("BID-37005196")).as("BID-37005196").isTrue(),
+        () -> assertThat(IdValidering.erGyldigJournalpostId("JOARK-453743013")).as("JOARK-453743013").isTrue(),
+        () -> assertThat(IdValidering.erGyldigJournalpostId("bid-1")).as("bid-1").isTrue(),
+        () -> assertThat(IdValidering.erGyldigJournalpostId("JOARK-1234567890123456789")).as("flere siffer enn i en long").isTrue(),
+        () -> assertThat(IdValidering.erForBidrag("BID-1")).as("BID-1 er for bidrag").isTrue(),
+        () -> assertThat(IdValidering.erForBidrag("JOARK-1")).as("JOARK-1 er for bidrag").isFalse()
+    );
+  }
+
+  @Test
+  @DisplayName("skal ikke godta journalpostId med ukjent prefix eller uten tall etter prefix")
+  void skalIkkeGodtaUgyldigJournalpostId() {
+    assertAll(
+        () -> assertThat(IdValidering.erGyldigJournalpostId(null)).as("null").isFalse(),
+        () -> assertThat(IdValidering.erGyldigJournalpostId("svada-1")).as("svada-1").isFalse(),
+        () -> assertThat(IdValidering.erGyldigJournalpostId("BID-abc")).as("BID-abc").isFalse(),
+        () -> assertThat(IdValidering.erGyldigJournalpostId("BID-")).as("BID-").isFalse(),
+        () -> assertThat(IdValidering.erForBidrag("BID-abc")).as("BID-abc er for bidrag").isFalse()
+    );
+  }
+
+  @Test
+  @DisplayName("skal validere saksnummer som før, ugyldig bare når det ikke har et eneste siffer")
+  void skalValidereSaksnummer() {
+    assertAll(
+        () -> assertThat(IdValidering.erUgyldigSaksnummer("xyz")).as("xyz").isTrue(),
+        () -> assertThat(IdValidering.erUgyldigSaksnummer("2020001")).as("2020001").isFalse(),
+        () -> assertThat(IdValidering.erUgyldigSaksnummer("12a")).as("12a").isFalse(),
+        () -> assertThat(IdValidering.erUgyldigSaksnummer("")).as("tomt saksnummer").isFalse()
+    );
+  }
+}
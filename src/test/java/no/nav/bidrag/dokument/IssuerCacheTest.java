@@ -0,0 +1,58 @@
+package no.nav.bidrag.dokument;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.Date;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("IssuerCache")
+class IssuerCacheTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final IssuerCache issuerCache = new IssuerCache(10, meterRegistry);
+
+  @Test
+  @DisplayName("skal bare lese tokenet første gang issuer hentes")
+  void skalCacheIssuer() {
+    var idToken = lagToken("https://login.microsoftonline.com/tenant/v2.0", Instant.now().plusSeconds(300));
+
+    assertAll(
+        () -> assertThat(issuerCache.hentIssuer(idToken)).isEqualTo("https://login.microsoftonline.com/tenant/v2.0"),
+        () -> assertThat(issuerCache.hentIssuer(idToken)).isEqualTo("https://login.microsoftonline.com/tenant/v2.0"),
+        () -> assertThat(antallOppslag("hit")).as("treff").isEqualTo(1),
+        () -> assertThat(antallOppslag("miss")).as("bom").isEqualTo(1)
+    );
+  }
+
+  @Test
+  @DisplayName("skal ikke cache issuer for token som er utløpt")
+  void skalIkkeCacheUtloptToken() {
+    var idToken = lagToken("https://isso-q.adeo.no:443/isso/oauth2", Instant.now().minusSeconds(10));
+
+    issuerCache.hentIssuer(idToken);
+    issuerCache.hentIssuer(idToken);
+
+    assertThat(antallOppslag("hit")).isZero();
+  }
+
+  @Test
+  @DisplayName("skal feile når token ikke kan leses")
+  void skalFeileNarTokenIkkeKanLeses() {
+    assertThatIllegalStateException().isThrownBy(() -> issuerCache.hentIssuer("ikke et token"));
+  }
+
+  private double antallOppslag(String resultat) {
+    return meterRegistry.get("cache.gets").tag("cache", "issuer").tag("result", resultat).functionCounter().count();
+  }
+
+  private static String lagToken(String issuer, Instant utloper) {
+    return new PlainJWT(new JWTClaimsSet.Builder().issuer(issuer).expirationTime(Date.from(utloper)).build()).serialize();
+  }
+}
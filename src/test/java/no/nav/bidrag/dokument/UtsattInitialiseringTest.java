@@ -0,0 +1,39 @@
+package no.nav.bidrag.dokument;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.mock.env.MockEnvironment;
+
+@DisplayName("UtsattInitialisering")
+class UtsattInitialiseringTest {
+
+  @Test
+  @DisplayName("skal utsette bønner fra pakkene, også når de er registrert som av Spring AOT (uten klassenavn)")
+  void skalUtsetteBonnerFraPakkene() throws NoSuchMethodException {
+    var beanFactory = new DefaultListableBeanFactory();
+    beanFactory.registerBeanDefinition("medKlasse", new RootBeanDefinition(StandardEnvironment.class));
+
+    var fraFactoryMetode = new RootBeanDefinition();
+    fraFactoryMetode.setResolvedFactoryMethod(BidragDokumentConfig.class.getMethod("utsattInitialisering"));
+    beanFactory.registerBeanDefinition("fraFactoryMetode", fraFactoryMetode);
+
+    var utenforPakkene = new RootBeanDefinition(String.class);
+    beanFactory.registerBeanDefinition("utenforPakkene", utenforPakkene);
+
+    var utsattInitialisering = new UtsattInitialisering();
+    utsattInitialisering.setEnvironment(new MockEnvironment().withProperty("startup.lazy-packages", "org.springframework.core, no.nav.bidrag"));
+    utsattInitialisering.postProcessBeanFactory(beanFactory);
+
+    assertAll(
+        () -> assertThat(beanFactory.getBeanDefinition("medKlasse").isLazyInit()).isTrue(),
+        () -> assertThat(beanFactory.getBeanDefinition("fraFactoryMetode").isLazyInit()).isTrue(),
+        () -> assertThat(beanFactory.getBeanDefinition("utenforPakkene").isLazyInit()).isFalse()
+    );
+  }
+}
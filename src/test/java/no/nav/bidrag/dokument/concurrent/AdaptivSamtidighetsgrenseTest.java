@@ -0,0 +1,122 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import no.nav.bidrag.dokument.concurrent.AdaptivSamtidighetsgrense.Innstillinger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@DisplayName("AdaptivSamtidighetsgrense")
+class AdaptivSamtidighetsgrenseTest {
+
+  private static final int SAMTIDIGE = 20;
+
+  @Test
+  @DisplayName("skal avvise når grensen er nådd og slippe til igjen når en plass blir ledig")
+  void skalAvviseNarGrensenErNadd() {
+    var grense = new AdaptivSamtidighetsgrense(new Innstillinger(2, 1, 10));
+
+    assertAll(
+        () -> assertThat(grense.taPlass()).isTrue(),
+        () -> assertThat(grense.taPlass()).isTrue(),
+        () -> assertThat(grense.taPlass()).as("over grensen").isFalse()
+    );
+
+    grense.frigi(TimeUnit.MILLISECONDS.toNanos(5));
+
+    assertThat(grense.taPlass()).isTrue();
+  }
+
+  @Test
+  @DisplayName("skal senke grensen når svartiden øker")
+  void skalSenkeGrensenNarSvartidenOker() {
+    var grense = new AdaptivSamtidighetsgrense(new Innstillinger(SAMTIDIGE, 5, 2 * SAMTIDIGE));
+
+    for (int i = 0; i < SAMTIDIGE; i++) {
+      grense.taPlass();
+    }
+
+    svar(grense, 200, 10);
+    var grenseVedNormalSvartid = grense.hentGrense();
+
+    svar(grense, 20, 200);
+
+    assertAll(
+        () -> assertThat(grenseVedNormalSvartid).as("grense ved normal svartid").isEqualTo(2 * SAMTIDIGE),
+        () -> assertThat(grense.hentGrense()).as("grense ved økt svartid").isLessThan(grenseVedNormalSvartid)
+    );
+  }
+
+  @Test
+  @DisplayName("skal avvise endringer med 503 når grensen for endringer er nådd, uten å stoppe lesinger")
+  void skalAvviseEndringerUtenAStoppeLesinger() throws Exception {
+    var lesing = new AdaptivSamtidighetsgrense(new Innstillinger(10, 1, 10));
+    var skriving = new AdaptivSamtidighetsgrense(new Innstillinger(1, 1, 1));
+    var filter = new SamtidighetsgrenseFilter(lesing, skriving, new SimpleMeterRegistry());
+    skriving.taPlass();
+
+    var endring = new MockHttpServletResponse();
+    var endringKjede = new MockFilterChain();
+    filter.doFilter(request("PATCH", "/journal/BID-1"), endring, endringKjede);
+
+    var lesingResponse = new MockHttpServletResponse();
+    var lesingKjede = new MockFilterChain();
+    filter.doFilter(request("GET", "/journal/BID-1"), lesingResponse, lesingKjede);
+
+    assertAll(
+        () -> assertThat(endring.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value()),
+        () -> assertThat(endring.getHeader(HttpHeaders.WARNING)).contains("endringer"),
+        () -> assertThat(endringKjede.getRequest()).as("endring sendt videre").isNull(),
+        () -> assertThat(lesingKjede.getRequest()).as("lesing sendt videre").isNotNull(),
+        () -> assertThat(lesing.hentPagaende()).as("plass for lesing frigitt").isZero()
+    );
+  }
+
+  @Test
+  @DisplayName("skal ikke begrense batcher og strømming av sak journal")
+  void skalIkkeBegrenseBatcherOgStromming() throws Exception {
+    var lesing = new AdaptivSamtidighetsgrense(new Innstillinger(1, 1, 1));
+    var skriving = new AdaptivSamtidighetsgrense(new Innstillinger(1, 1, 1));
+    var filter = new SamtidighetsgrenseFilter(lesing, skriving, new SimpleMeterRegistry());
+    lesing.taPlass();
+    skriving.taPlass();
+
+    var strommingRequest = request("GET", "/sak/1001/journal");
+    strommingRequest.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE);
+    var kjeder = List.of(new MockFilterChain(), new MockFilterChain(), new MockFilterChain());
+
+    filter.doFilter(strommingRequest, new MockHttpServletResponse(), kjeder.get(0));
+    filter.doFilter(request("POST", "/journal/batch"), new MockHttpServletResponse(), kjeder.get(1));
+    filter.doFilter(request("POST", "/journal/distribuer/batch/batch-1"), new MockHttpServletResponse(), kjeder.get(2));
+
+    assertAll(
+        () -> assertThat(kjeder).allSatisfy(kjede -> assertThat(kjede.getRequest()).as("sendt videre").isNotNull()),
+        () -> assertThat(lesing.hentPagaende()).as("plasser for lesing").isEqualTo(1),
+        () -> assertThat(skriving.hentPagaende()).as("plasser for endring").isEqualTo(1)
+    );
+  }
+
+  private static void svar(AdaptivSamtidighetsgrense grense, int antall, long svartidMillis) {
+    for (int i = 0; i < antall; i++) {
+      grense.frigi(TimeUnit.MILLISECONDS.toNanos(svartidMillis));
+      grense.taPlass();
+    }
+  }
+
+  private static MockHttpServletRequest request(String httpMethod, String path) {
+    var request = new MockHttpServletRequest(httpMethod, "/bidrag-dokument" + path);
+    request.setContextPath("/bidrag-dokument");
+
+    return request;
+  }
+}
@@ -0,0 +1,185 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import no.nav.bidrag.dokument.concurrent.FanOut.DelvisResultat;
+import no.nav.bidrag.dokument.concurrent.FanOut.Kall;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+@DisplayName("FanOut")
+class FanOutTest {
+
+  private static final String JOURNALPOST = "bidrag-dokument-journalpost";
+  private static final String ARKIV = "bidrag-dokument-arkiv";
+
+  private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+  @BeforeEach
+  void initExecutor() {
+    threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+    threadPoolTaskExecutor.setCorePoolSize(2);
+    threadPoolTaskExecutor.setTaskDecorator(new RequestContextTaskDecorator());
+    threadPoolTaskExecutor.initialize();
+  }
+
+  @AfterEach
+  void shutdownExecutor() {
+    threadPoolTaskExecutor.shutdown();
+    RequestContextHolder.resetRequestAttributes();
+    MDC.clear();
+  }
+
+  @Test
+  @DisplayName("skal utføre kallene samtidig og sammenstille resultatet i rekkefølgen til kallene")
+  void skalUtforeKalleneSamtidig() {
+    var fanOut = new FanOut(threadPoolTaskExecutor, Map.of(), 2000, DelvisResultat.FEIL);
+    var begge = new CountDownLatch(2);
+
+    var resultat = fanOut.hentOgSammenstill(
+        new Kall<>(JOURNALPOST, () -> ventPaBegge(begge, "BID-1")),
+        new Kall<>(ARKIV, () -> ventPaBegge(begge, "JOARK-1"))
+    );
+
+    assertThat(resultat).containsExactly("BID-1", "JOARK-1");
+  }
+
+  @Test
+  @DisplayName("skal ta med request attributes og MDC til trådene som utfører kallene")
+  void skalTaMedRequestKontekst() {
+    var fanOut = new FanOut(threadPoolTaskExecutor, Map.of(), 2000, DelvisResultat.FEIL);
+    var requestAttributes = new ServletRequestAttributes(new MockHttpServletRequest());
+    RequestContextHolder.setRequestAttributes(requestAttributes);
+    MDC.put("correlationId", "fanout-test");
+
+    var resultat = fanOut.hentOgSammenstill(
+        new Kall<>(JOURNALPOST, () -> List.of(RequestContextHolder.getRequestAttributes() == requestAttributes)),
+        new Kall<>(ARKIV, () -> List.of("fanout-test".equals(MDC.get("correlationId"))))
+    );
+
+    assertThat(resultat).containsExactly(true, true);
+  }
+
+  @Test
+  @DisplayName("skal feile når en backend feiler og delvis resultat ikke er tillatt")
+  void skalFeileNarBackendFeiler() {
+    var fanOut = new FanOut(threadPoolTaskExecutor, Map.of(), 2000, DelvisResultat.FEIL);
+
+    assertThatThrownBy(() -> fanOut.hentOgSammenstill(
+        new Kall<>(JOURNALPOST, () -> List.of("BID-1")),
+        new Kall<>(ARKIV, () -> {
+          throw new HttpClientErrorException(HttpStatus.FORBIDDEN);
+        })
+    )).isInstanceOf(HttpClientErrorException.class);
+  }
+
+  @Test
+  @DisplayName("skal returnere delvis resultat når en backend bruker lenger tid enn sin timeout og delvis resultat er tillatt")
+  void skalReturnereDelvisResultatVedTimeout() {
+    var fanOut = new FanOut(threadPoolTaskExecutor, Map.of(ARKIV, 50L), 2000, DelvisResultat.TILLAT);
+    var start = System.nanoTime();
+
+    var resultat = fanOut.hentOgSammenstill(
+        new Kall<>(JOURNALPOST, () -> List.of("BID-1")),
+        new Kall<>(ARKIV, () -> sov(5000, "JOARK-1"))
+    );
+
+    assertAll(
+        () -> assertThat(resultat).containsExactly("BID-1"),
+        () -> assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000)
+    );
+  }
+
+  @Test
+  @DisplayName("skal gi hvilke backend som mangler i et delvis resultat")
+  void skalGiHvilkeBackendSomManglerIDelvisResultat() {
+    var fanOut = new FanOut(threadPoolTaskExecutor, Map.of(), 2000, DelvisResultat.TILLAT);
+
+    var komplett = fanOut.hentOgSammenstillMedManglende(new Kall<>(JOURNALPOST, () -> List.of("BID-1")), new Kall<>(ARKIV, () -> List.of("JOARK-1")));
+    var delvis = fanOut.hentOgSammenstillMedManglende(
+        new Kall<>(JOURNALPOST, () -> List.of("BID-1")),
+        new Kall<String>(ARKIV, () -> {
+          throw new IllegalStateException("arkiv feilet");
+        })
+    );
+
+    assertAll(
+        () -> assertThat(komplett.erDelvis()).isFalse(),
+        () -> assertThat(delvis.resultat()).containsExactly("BID-1"),
+        () -> assertThat(delvis.manglerFra()).containsExactly(ARKIV),
+        () -> assertThat(delvis.erDelvis()).isTrue()
+    );
+  }
+
+  @Test
+  @DisplayName("skal feile ved timeout når delvis resultat ikke er tillatt")
+  void skalFeileVedTimeout() {
+    var fanOut = new FanOut(threadPoolTaskExecutor, Map.of(ARKIV, 50L), 2000, DelvisResultat.FEIL);
+
+    assertThatThrownBy(() -> fanOut.hentOgSammenstill(
+        new Kall<>(JOURNALPOST, () -> List.of("BID-1")),
+        new Kall<>(ARKIV, () -> sov(5000, "JOARK-1"))
+    )).isInstanceOf(IllegalStateException.class).hasMessageContaining(ARKIV);
+  }
+
+  @Test
+  @DisplayName("skal avvise kallene uten å utføre dem på request-tråden når det ikke er ledig kapasitet")
+  void skalAvviseNarDetIkkeErLedigKapasitet() {
+    var fullExecutor = new ThreadPoolTaskExecutor();
+    fullExecutor.setCorePoolSize(1);
+    fullExecutor.setMaxPoolSize(1);
+    fullExecutor.setQueueCapacity(0);
+    fullExecutor.initialize();
+    var fanOut = new FanOut(fullExecutor, Map.of(), 2000, DelvisResultat.FEIL);
+    var requestTraden = Thread.currentThread();
+
+    try {
+      assertThatThrownBy(() -> fanOut.hentOgSammenstill(
+          new Kall<>(JOURNALPOST, () -> sov(1000, "BID-1")),
+          new Kall<>(ARKIV, () -> List.of(Thread.currentThread() == requestTraden ? "på request-tråden" : "JOARK-1"))
+      )).isInstanceOf(IngenLedigKapasitetException.class).hasMessageContaining(ARKIV);
+    } finally {
+      fullExecutor.shutdown();
+    }
+  }
+
+  private static List<String> ventPaBegge(CountDownLatch begge, String journalpostId) {
+    begge.countDown();
+
+    try {
+      if (!begge.await(1, TimeUnit.SECONDS)) {
+        throw new AssertionError("Kallene ble ikke utført samtidig");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+
+    return List.of(journalpostId);
+  }
+
+  private static List<String> sov(long millis, String journalpostId) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    return List.of(journalpostId);
+  }
+}
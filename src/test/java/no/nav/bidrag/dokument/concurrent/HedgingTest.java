@@ -0,0 +1,176 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.nav.bidrag.dokument.concurrent.Hedging.Innstillinger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+@DisplayName("Hedging")
+class HedgingTest {
+
+  private static final String TARGET_APP = "bidrag-dokument-journalpost";
+  private static final int ANTALL_MALINGER = 5;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final CountDownLatch slippTregtKall = new CountDownLatch(1);
+
+  @AfterEach
+  void avsluttExecutor() {
+    slippTregtKall.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("skal utføre første kall på tråden som kaller, og avbryte det når det ekstra kallet svarer først")
+  void skalBrukeSvaretFraEkstraKall() {
+    var hedging = new Hedging(true, meterRegistry, executor, new Innstillinger(0.95, 20, ANTALL_MALINGER, 100, 1, 10));
+    var antallKall = new AtomicInteger();
+    var trad = Thread.currentThread();
+    var forsteKallPaTraden = new AtomicBoolean();
+
+    varmOpp(hedging);
+
+    var resultat = hedging.utfor(TARGET_APP, "hentJournalpost", () -> {
+      if (antallKall.incrementAndGet() == 1) {
+        forsteKallPaTraden.set(Thread.currentThread() == trad);
+        return tregtKall();
+      }
+
+      return "rask";
+    });
+
+    assertAll(
+        () -> assertThat(resultat).isEqualTo("rask"),
+        () -> assertThat(antallKall).hasValue(2),
+        () -> assertThat(forsteKallPaTraden).isTrue(),
+        () -> assertThat(slippTregtKall.getCount()).as("første kall er avbrutt").isZero(),
+        () -> assertThat(antallHedger("sent")).isEqualTo(1),
+        () -> assertThat(antallHedger("won")).isEqualTo(1)
+    );
+  }
+
+  @Test
+  @DisplayName("skal avbryte det ekstra kallet når første kall svarer først")
+  void skalAvbryteEkstraKallNarForsteKallSvarerForst() {
+    var hedging = new Hedging(true, meterRegistry, executor, new Innstillinger(0.95, 20, ANTALL_MALINGER, 100, 1, 10));
+    var antallKall = new AtomicInteger();
+
+    varmOpp(hedging);
+
+    var resultat = hedging.utfor(TARGET_APP, "hentJournalpost", () -> {
+      if (antallKall.incrementAndGet() == 1) {
+        sov(100);
+        return "forste";
+      }
+
+      return tregtKall();
+    });
+
+    assertAll(
+        () -> assertThat(resultat).isEqualTo("forste"),
+        () -> assertThat(antallKall).hasValue(2),
+        () -> assertThat(slippTregtKall.getCount()).as("ekstra kall er avbrutt").isZero(),
+        () -> assertThat(meterRegistry.find("bidrag.dokument.consumer.hedge.won").counter()).isNull()
+    );
+  }
+
+  @Test
+  @DisplayName("skal ikke sende ekstra kall når budsjettet er brukt opp")
+  void skalIkkeSendeEkstraKallUtenBudsjett() {
+    var hedging = new Hedging(true, meterRegistry, executor, new Innstillinger(0.95, 20, ANTALL_MALINGER, 100, 0, 10));
+    var antallKall = new AtomicInteger();
+
+    varmOpp(hedging);
+
+    var resultat = hedging.utfor(TARGET_APP, "hentJournalpost", () -> {
+      antallKall.incrementAndGet();
+      sov(100);
+      return "treg";
+    });
+
+    assertAll(
+        () -> assertThat(resultat).isEqualTo("treg"),
+        () -> assertThat(antallKall).hasValue(1),
+        () -> assertThat(meterRegistry.find("bidrag.dokument.consumer.hedge.sent").counter()).isNull()
+    );
+  }
+
+  @Test
+  @DisplayName("skal gi feilen videre når begge kallene feiler")
+  void skalGiFeilNarBeggeKalleneFeiler() {
+    var hedging = new Hedging(true, meterRegistry, executor, new Innstillinger(0.95, 20, ANTALL_MALINGER, 100, 1, 10));
+
+    varmOpp(hedging);
+
+    assertThatThrownBy(() -> hedging.utfor(TARGET_APP, "hentJournalpost", () -> {
+      sov(100);
+      throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+    })).isInstanceOf(HttpServerErrorException.class);
+
+    assertThat(antallHedger("sent")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("skal utføre kallet direkte når hedging ikke er skrudd på")
+  void skalUtforeKalletDirekteNarHedgingIkkeErPa() {
+    var hedging = new Hedging(false, meterRegistry, executor, new Innstillinger(0.95, 20, ANTALL_MALINGER, 100, 1, 10));
+    var trad = Thread.currentThread();
+
+    assertThat(hedging.utfor(TARGET_APP, "hentJournalpost", () -> Thread.currentThread() == trad)).isTrue();
+  }
+
+  /**
+   * Som et kall mot backend som ikke svarer før det avbrytes (se AvbrytbarHttpRequestFactory).
+   */
+  private String tregtKall() {
+    Hedging.registrerAvbrudd(slippTregtKall::countDown);
+    vent(slippTregtKall);
+
+    if (Hedging.erAvbrutt()) {
+      throw new ResourceAccessException("avbrutt");
+    }
+
+    return "treg";
+  }
+
+  private void varmOpp(Hedging hedging) {
+    for (int i = 0; i < ANTALL_MALINGER; i++) {
+      hedging.utfor(TARGET_APP, "hentJournalpost", () -> "rask");
+    }
+  }
+
+  private double antallHedger(String utfall) {
+    return meterRegistry.get("bidrag.dokument.consumer.hedge." + utfall).tag("targetApp", TARGET_APP).counter().count();
+  }
+
+  private static void vent(CountDownLatch countDownLatch) {
+    try {
+      countDownLatch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sov(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
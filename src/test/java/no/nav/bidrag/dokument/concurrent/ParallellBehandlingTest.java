@@ -0,0 +1,74 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@DisplayName("ParallellBehandling")
+class ParallellBehandlingTest {
+
+  private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+  @BeforeEach
+  void initExecutor() {
+    threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+    threadPoolTaskExecutor.setCorePoolSize(1);
+    threadPoolTaskExecutor.setMaxPoolSize(1);
+    threadPoolTaskExecutor.setQueueCapacity(0);
+    threadPoolTaskExecutor.initialize();
+  }
+
+  @AfterEach
+  void shutdownExecutor() {
+    threadPoolTaskExecutor.shutdown();
+  }
+
+  @Test
+  @DisplayName("skal behandle gruppen med færre arbeidere når det ikke er ledig kapasitet til alle")
+  void skalBehandleMedFaerreArbeidere() {
+    var parallellBehandling = new ParallellBehandling(threadPoolTaskExecutor);
+
+    var resultater = parallellBehandling.behandle(Map.of("BID", List.of("BID-1", "BID-2", "BID-3")), 3, String::toLowerCase);
+
+    assertThat(resultater).containsOnly(Map.entry("BID-1", "bid-1"), Map.entry("BID-2", "bid-2"), Map.entry("BID-3", "bid-3"));
+  }
+
+  @Test
+  @DisplayName("skal avvise behandlingen uten å utføre den på request-tråden når en gruppe ikke får noen arbeider")
+  void skalAvviseNarEnGruppeIkkeFarArbeider() {
+    var parallellBehandling = new ParallellBehandling(threadPoolTaskExecutor);
+    var requestTraden = Thread.currentThread();
+    var opptatt = new CountDownLatch(1);
+
+    try {
+      assertThatThrownBy(() -> parallellBehandling.behandle(Map.of("BID", List.of("BID-1"), "JOARK", List.of("JOARK-1")), 1, id -> {
+        if (Thread.currentThread() == requestTraden) {
+          throw new AssertionError("Behandlet på request-tråden");
+        }
+
+        return vent(opptatt, id);
+      })).isInstanceOf(IngenLedigKapasitetException.class);
+    } finally {
+      opptatt.countDown();
+    }
+  }
+
+  private static String vent(CountDownLatch opptatt, String id) {
+    try {
+      opptatt.await(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    return id;
+  }
+}
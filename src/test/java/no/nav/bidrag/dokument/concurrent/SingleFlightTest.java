@@ -0,0 +1,121 @@
+package no.nav.bidrag.dokument.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+@DisplayName("SingleFlight")
+class SingleFlightTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final SingleFlight singleFlight = new SingleFlight(true, meterRegistry, () -> "token");
+
+  @Test
+  @DisplayName("skal la samtidige og identiske lesinger dele ett kall")
+  void skalDeleSamtidigeKall() throws Exception {
+    var antallKall = new AtomicInteger();
+    var kallErStartet = new CountDownLatch(1);
+    var slippKallet = new CountDownLatch(1);
+
+    var forste = CompletableFuture.supplyAsync(() -> singleFlight.utfor("bidrag-dokument-arkiv", "hentJournalpost", "/journal/JOARK-1", () -> {
+      antallKall.incrementAndGet();
+      kallErStartet.countDown();
+      vent(slippKallet);
+      return "JOARK-1";
+    }));
+
+    vent(kallErStartet);
+
+    var andre = CompletableFuture.supplyAsync(() -> singleFlight.utfor("bidrag-dokument-arkiv", "hentJournalpost", "/journal/JOARK-1", () -> {
+      antallKall.incrementAndGet();
+      return "ikke delt";
+    }));
+
+    var frist = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    while (antallSammenslatte() < 1 && System.nanoTime() < frist) {
+      Thread.onSpinWait();
+    }
+
+    slippKallet.countDown();
+
+    assertAll(
+        () -> assertThat(forste.get(1, TimeUnit.SECONDS)).isEqualTo("JOARK-1"),
+        () -> assertThat(andre.get(1, TimeUnit.SECONDS)).isEqualTo("JOARK-1"),
+        () -> assertThat(antallKall).hasValue(1)
+    );
+  }
+
+  @Test
+  @DisplayName("skal utføre nytt kall når forrige kall er ferdig")
+  void skalUtforeNyttKallNarForrigeErFerdig() {
+    var antallKall = new AtomicInteger();
+
+    singleFlight.utfor("bidrag-dokument-journalpost", "finnAvvik", "/journal/BID-1/avvik", antallKall::incrementAndGet);
+    singleFlight.utfor("bidrag-dokument-journalpost", "finnAvvik", "/journal/BID-1/avvik", antallKall::incrementAndGet);
+
+    assertAll(
+        () -> assertThat(antallKall).hasValue(2),
+        () -> assertThat(antallSammenslatte()).isZero()
+    );
+  }
+
+  @Test
+  @DisplayName("skal kaste feilen fra kallet videre")
+  void skalKasteFeilenVidere() {
+    assertThatThrownBy(() -> singleFlight.utfor("bidrag-dokument-journalpost", "hentJournalpost", "/journal/BID-2", () -> {
+      throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+    })).isInstanceOf(HttpClientErrorException.class);
+  }
+
+  @Test
+  @DisplayName("skal la samtidige og identiske lesinger som ikke blokkerer dele ett kall uten at avbrudd påvirker de andre")
+  void skalDeleSamtidigeKallSomIkkeBlokkerer() throws Exception {
+    var antallKall = new AtomicInteger();
+    var kallet = new CompletableFuture<String>();
+
+    var forste = singleFlight.utforAsynkront("bidrag-dokument-arkiv", "hentJournalpost", "/journal/JOARK-3", () -> {
+      antallKall.incrementAndGet();
+      return kallet;
+    });
+
+    var andre = singleFlight.<String>utforAsynkront("bidrag-dokument-arkiv", "hentJournalpost", "/journal/JOARK-3", () -> {
+      antallKall.incrementAndGet();
+      return CompletableFuture.completedFuture("ikke delt");
+    });
+
+    forste.cancel(true);
+    kallet.complete("JOARK-3");
+
+    assertAll(
+        () -> assertThat(andre.get(1, TimeUnit.SECONDS)).isEqualTo("JOARK-3"),
+        () -> assertThat(antallKall).hasValue(1),
+        () -> assertThat(antallSammenslatte()).isEqualTo(1)
+    );
+  }
+
+  private double antallSammenslatte() {
+    var counter = meterRegistry.find("bidrag.dokument.consumer.coalesced").counter();
+    return counter == null ? 0 : counter.count();
+  }
+
+  private static void vent(CountDownLatch countDownLatch) {
+    try {
+      if (!countDownLatch.await(1, TimeUnit.SECONDS)) {
+        throw new AssertionError("Ventet for lenge");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
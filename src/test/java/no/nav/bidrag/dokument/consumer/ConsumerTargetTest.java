@@ -0,0 +1,199 @@
+package no.nav.bidrag.dokument.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker.State;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.concurrent.Hedging;
+import no.nav.bidrag.dokument.concurrent.Hedging.Innstillinger;
+import no.nav.bidrag.dokument.concurrent.SingleFlight;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+@DisplayName("ConsumerTarget")
+class ConsumerTargetTest {
+
+  private static final String TARGET_APP = "bidrag-dokument-arkiv";
+
+  private final CircuitBreaker circuitBreaker = CircuitBreaker.of(TARGET_APP, CircuitBreakerConfig.custom()
+      .slidingWindowSize(4)
+      .minimumNumberOfCalls(4)
+      .failureRateThreshold(50)
+      .waitDurationInOpenState(Duration.ofMinutes(1))
+      .recordExceptions(HttpServerErrorException.class)
+      .build());
+
+  private final Bulkhead bulkhead = Bulkhead.of(TARGET_APP, BulkheadConfig.custom()
+      .maxConcurrentCalls(1)
+      .maxWaitDuration(Duration.ZERO)
+      .build());
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final ConsumerTarget consumerTarget = ConsumerTarget.builder()
+      .issoRestTemplate(new RestTemplate())
+      .restTemplateProvider(ConsumerTarget::getIssoRestTemplate)
+      .singleFlight(new SingleFlight(false, new SimpleMeterRegistry(), () -> "token"))
+      .hedging(new Hedging(false, new SimpleMeterRegistry(), Runnable::run, new Innstillinger(0.95, 50, 100, 1000, 0.05, 10)))
+      .circuitBreaker(circuitBreaker)
+      .bulkhead(bulkhead)
+      .meterRegistry(meterRegistry)
+      .targetApp(TARGET_APP)
+      .build();
+
+  @Test
+  @DisplayName("skal avvise kall uten å gå til backend når circuit breaker er åpen etter serverfeil")
+  void skalAvviseKallNarCircuitBreakerErApen() {
+    var antallKall = new AtomicInteger();
+
+    for (int i = 0; i < 4; i++) {
+      assertThatThrownBy(() -> consumerTarget.utforLesing("hentJournalpost", "/journal/JOARK-1", restTemplate -> {
+        antallKall.incrementAndGet();
+        throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+      })).isInstanceOf(HttpServerErrorException.class);
+    }
+
+    assertAll(
+        () -> assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN),
+        () -> assertThatThrownBy(() -> consumerTarget.utfor("hentJournalpost", restTemplate -> antallKall.incrementAndGet()))
+            .isInstanceOf(CallNotPermittedException.class),
+        () -> assertThat(antallKall).hasValue(4)
+    );
+  }
+
+  @Test
+  @DisplayName("skal ikke åpne circuit breaker når backend svarer med klientfeil")
+  void skalIkkeApneCircuitBreakerVedKlientfeil() {
+    for (int i = 0; i < 4; i++) {
+      assertThatThrownBy(() -> consumerTarget.utfor("hentJournalpost", restTemplate -> {
+        throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+      })).isInstanceOf(HttpClientErrorException.class);
+    }
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  @DisplayName("skal avvise kall når bulkhead er full")
+  void skalAvviseKallNarBulkheadErFull() throws Exception {
+    var kallErStartet = new CountDownLatch(1);
+    var slippKallet = new CountDownLatch(1);
+
+    var forste = CompletableFuture.supplyAsync(() -> consumerTarget.utfor("hentJournalpost", restTemplate -> {
+      kallErStartet.countDown();
+      vent(slippKallet);
+      return "JOARK-1";
+    }));
+
+    vent(kallErStartet);
+
+    assertThatThrownBy(() -> consumerTarget.utfor("hentJournalpost", restTemplate -> "JOARK-2")).isInstanceOf(BulkheadFullException.class);
+
+    slippKallet.countDown();
+
+    assertAll(
+        () -> assertThat(forste.get(1, TimeUnit.SECONDS)).isEqualTo("JOARK-1"),
+        () -> assertThat(consumerTarget.utfor("hentJournalpost", restTemplate -> "JOARK-3")).isEqualTo("JOARK-3"),
+        () -> assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).as("avvist av bulkhead teller ikke som feil").isZero()
+    );
+  }
+
+  @Test
+  @DisplayName("skal måle kall mot backend med targetApp, issuer, statusklasse og utfall")
+  void skalMaleKallMotBackend() {
+    consumerTarget.utfor("hentJournalpost", restTemplate -> HttpResponse.from(HttpStatus.OK));
+    assertThatThrownBy(() -> consumerTarget.utfor("hentJournalpost", restTemplate -> {
+      throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+    })).isInstanceOf(HttpServerErrorException.class);
+    assertThatThrownBy(() -> consumerTarget.utfor("hentJournalpost", restTemplate -> {
+      throw new ResourceAccessException("timeout");
+    })).isInstanceOf(ResourceAccessException.class);
+
+    assertAll(
+        () -> assertThat(antallKall("2xx", "SUCCESS")).isEqualTo(1),
+        () -> assertThat(antallKall("5xx", "SERVER_ERROR")).isEqualTo(1),
+        () -> assertThat(antallKall("IO_ERROR", "UNKNOWN")).isEqualTo(1)
+    );
+  }
+
+  private long antallKall(String status, String outcome) {
+    return meterRegistry.get("bidrag.dokument.consumer.requests")
+        .tags("targetApp", TARGET_APP, "operation", "hentJournalpost", "issuer", "isso", "status", status, "outcome", outcome)
+        .timer().count();
+  }
+
+  private static void vent(CountDownLatch countDownLatch) {
+    try {
+      if (!countDownLatch.await(1, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("Ventet for lenge");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Test
+  @DisplayName("skal slippe plassen i bulkhead og stoppe timeren når backend har svart, mens responsen fortsatt leses")
+  void skalSlippeBulkheadNarBackendHarSvart() {
+    var mockServer = MockRestServiceServer.bindTo(consumerTarget.getIssoRestTemplate()).build();
+    mockServer.expect(requestTo("/sak/1/journal")).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+    var maltUnderLesing = new AtomicLong();
+    var ledigePlasserUnderLesing = consumerTarget.utforStrommende(
+        "finnJournalposter", "/sak/1/journal", request -> {
+        }, restTemplate -> response -> {
+          maltUnderLesing.set(meterRegistry.get("bidrag.dokument.consumer.requests").tag("operation", "finnJournalposter").timer().count());
+
+          return bulkhead.getMetrics().getAvailableConcurrentCalls();
+        }
+    );
+
+    assertAll(
+        () -> assertThat(ledigePlasserUnderLesing).isEqualTo(1),
+        () -> assertThat(maltUnderLesing).as("kallet er målt før responsen leses").hasValue(1),
+        () -> assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1),
+        mockServer::verify
+    );
+  }
+
+  @Test
+  @DisplayName("skal telle feilstatus fra backend i circuit breaker og slippe plassen i bulkhead ved strømming")
+  void skalTelleFeilstatusVedStromming() {
+    var mockServer = MockRestServiceServer.bindTo(consumerTarget.getIssoRestTemplate()).build();
+    mockServer.expect(requestTo("/sak/2/journal")).andRespond(withServerError());
+
+    assertThatThrownBy(() -> consumerTarget.utforStrommende("finnJournalposter", "/sak/2/journal", request -> {
+    }, restTemplate -> response -> 0)).isInstanceOf(HttpServerErrorException.class);
+
+    assertAll(
+        () -> assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1),
+        () -> assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(1)
+    );
+  }
+}
@@ -0,0 +1,87 @@
+package no.nav.bidrag.dokument.consumer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+@DisplayName("HttpClientPool")
+class HttpClientPoolTest {
+
+  @Test
+  @DisplayName("skal eksportere metrikker for poolen til en target app")
+  void skalEksportereMetrikkerForPoolen() throws IOException {
+    var meterRegistry = new SimpleMeterRegistry();
+    var httpClientProperties = new HttpClientProperties();
+    var pool = new HttpClientProperties.Pool();
+    pool.setMaxTotal(7);
+    httpClientProperties.getPool().put("bidrag-dokument-arkiv", pool);
+
+    try (var ignored = HttpClientPool.opprettHttpClient("bidrag-dokument-arkiv", httpClientProperties, meterRegistry)) {
+      assertAll(
+          () -> assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.max").tag("httpclient", "bidrag-dokument-arkiv").gauge().value())
+              .as("maks forbindelser").isEqualTo(7),
+          () -> assertThat(meterRegistry.get("httpcomponents.httpclient.pool.saturation").tag("targetApp", "bidrag-dokument-arkiv").gauge().value())
+              .as("metning").isZero(),
+          () -> assertThat(meterRegistry.get("httpcomponents.httpclient.pool.lease").tag("targetApp", "bidrag-dokument-arkiv").timer().count())
+              .as("antall lån").isZero()
+      );
+    }
+  }
+
+  @Test
+  @DisplayName("skal be om komprimert svar og måle bytes spart ved komprimering")
+  void skalMaleBytesSpartVedKomprimering() throws IOException {
+    var json = "[" + String.join(",", Collections.nCopies(200, "{\"innhold\":\"journalpost\"}")) + "]";
+    var komprimert = gzip(json);
+    var wireMockServer = new WireMockServer(options().dynamicPort().gzipDisabled(true));
+    wireMockServer.stubFor(get("/sak/1/journal").withHeader(HttpHeaders.ACCEPT_ENCODING, containing("gzip")).willReturn(aResponse()
+        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .withHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .withBody(komprimert)));
+    wireMockServer.start();
+
+    var meterRegistry = new SimpleMeterRegistry();
+
+    try (var httpClient = HttpClientPool.opprettHttpClient("bidrag-dokument-arkiv", new HttpClientProperties(), meterRegistry)) {
+      var journal = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient))
+          .getForObject(wireMockServer.url("/sak/1/journal"), String.class);
+
+      assertAll(
+          () -> assertThat(journal).as("dekomprimert journal").isEqualTo(json),
+          () -> assertThat(meterRegistry.get("bidrag.dokument.consumer.compression.received").tag("targetApp", "bidrag-dokument-arkiv").counter()
+              .count()).as("mottatt").isEqualTo(komprimert.length),
+          () -> assertThat(meterRegistry.get("bidrag.dokument.consumer.compression.saved").tag("targetApp", "bidrag-dokument-arkiv").counter()
+              .count()).as("spart").isEqualTo(json.length() - komprimert.length)
+      );
+    } finally {
+      wireMockServer.stop();
+    }
+  }
+
+  private static byte[] gzip(String tekst) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+
+    try (var gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(tekst.getBytes(StandardCharsets.UTF_8));
+    }
+
+    return bytes.toByteArray();
+  }
+}
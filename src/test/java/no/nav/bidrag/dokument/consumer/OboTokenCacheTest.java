@@ -0,0 +1,129 @@
+package no.nav.bidrag.dokument.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import no.nav.security.token.support.client.core.ClientProperties;
+import no.nav.security.token.support.client.core.oauth2.OAuth2AccessTokenResponse;
+import no.nav.security.token.support.client.core.oauth2.OnBehalfOfGrantRequest;
+import no.nav.security.token.support.client.core.oauth2.OnBehalfOfTokenClient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("OboTokenCache")
+class OboTokenCacheTest {
+
+  private static final String REGISTRERING = "bidrag-dokument-arkiv";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final OnBehalfOfTokenClient onBehalfOfTokenClient = mock(OnBehalfOfTokenClient.class);
+  private final ClientProperties clientProperties = mock(ClientProperties.class);
+  private final List<Runnable> fornyinger = new ArrayList<>();
+
+  @Test
+  @DisplayName("skal bare hente token fra token-endepunktet første gang for samme bruker")
+  void skalCacheTokenPerBruker() {
+    var oboTokenCache = new OboTokenCache(onBehalfOfTokenClient, meterRegistry, 10, Duration.ofMinutes(5), fornyinger::add);
+    var tokenResponse = tokenResponse("obo-1", 3600);
+    when(onBehalfOfTokenClient.getTokenResponse(any(OnBehalfOfGrantRequest.class))).thenReturn(tokenResponse);
+
+    assertAll(
+        () -> assertThat(oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a")).isEqualTo("obo-1"),
+        () -> assertThat(oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a")).isEqualTo("obo-1"),
+        () -> assertThat(antallOppslag("hit")).as("treff").isEqualTo(1),
+        () -> assertThat(antallOppslag("miss")).as("bom").isEqualTo(1),
+        () -> assertThat(fornyinger).as("fornyinger").isEmpty()
+    );
+
+    verify(onBehalfOfTokenClient).getTokenResponse(any(OnBehalfOfGrantRequest.class));
+  }
+
+  @Test
+  @DisplayName("skal hente eget token for hver bruker")
+  void skalHenteEgetTokenForHverBruker() {
+    var oboTokenCache = new OboTokenCache(onBehalfOfTokenClient, meterRegistry, 10, Duration.ofMinutes(5), fornyinger::add);
+    var tokenResponseA = tokenResponse("obo-a", 3600);
+    var tokenResponseB = tokenResponse("obo-b", 3600);
+    when(onBehalfOfTokenClient.getTokenResponse(any(OnBehalfOfGrantRequest.class))).thenReturn(tokenResponseA, tokenResponseB);
+
+    assertAll(
+        () -> assertThat(oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a")).isEqualTo("obo-a"),
+        () -> assertThat(oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-b")).isEqualTo("obo-b")
+    );
+  }
+
+  @Test
+  @DisplayName("skal gi gjeldende token og fornye i bakgrunnen når tokenet snart utløper")
+  void skalFornyeIBakgrunnen() {
+    var oboTokenCache = new OboTokenCache(onBehalfOfTokenClient, meterRegistry, 10, Duration.ofMinutes(5), fornyinger::add);
+    var snartUtlopt = tokenResponse("obo-1", 120);
+    var fornyet = tokenResponse("obo-2", 3600);
+    when(onBehalfOfTokenClient.getTokenResponse(any(OnBehalfOfGrantRequest.class))).thenReturn(snartUtlopt, fornyet);
+
+    oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a");
+
+    var tokenForFornying = oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a");
+    oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a");
+
+    assertAll(
+        () -> assertThat(tokenForFornying).as("token mens fornying pågår").isEqualTo("obo-1"),
+        () -> assertThat(fornyinger).as("bare én fornying startes").hasSize(1)
+    );
+
+    fornyinger.get(0).run();
+
+    assertAll(
+        () -> assertThat(oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a")).as("fornyet token").isEqualTo("obo-2"),
+        () -> assertThat(meterRegistry.get("bidrag.dokument.obo.token.fetch").tag("registration", REGISTRERING).tag("mode", "refresh-ahead")
+            .timer().count()).as("fornyinger målt").isEqualTo(1)
+    );
+
+    verify(onBehalfOfTokenClient, times(2)).getTokenResponse(any(OnBehalfOfGrantRequest.class));
+  }
+
+  @Test
+  @DisplayName("skal prøve å fornye på nytt når fornyingen i bakgrunnen feiler")
+  void skalForsokeFornyingPaNyttEtterFeil() {
+    var oboTokenCache = new OboTokenCache(onBehalfOfTokenClient, meterRegistry, 10, Duration.ofMinutes(5), fornyinger::add);
+    var snartUtlopt = tokenResponse("obo-1", 120);
+    var fornyet = tokenResponse("obo-2", 3600);
+    when(onBehalfOfTokenClient.getTokenResponse(any(OnBehalfOfGrantRequest.class)))
+        .thenReturn(snartUtlopt)
+        .thenThrow(new IllegalStateException("token-endepunktet svarer ikke"))
+        .thenReturn(fornyet);
+
+    oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a");
+    oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a");
+    fornyinger.get(0).run();
+
+    var tokenEtterFeil = oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a");
+    fornyinger.get(1).run();
+
+    assertAll(
+        () -> assertThat(tokenEtterFeil).as("gjeldende token etter feil").isEqualTo("obo-1"),
+        () -> assertThat(fornyinger).as("ny fornying etter feil").hasSize(2),
+        () -> assertThat(oboTokenCache.hentToken(REGISTRERING, clientProperties, "bruker-a")).as("fornyet token").isEqualTo("obo-2")
+    );
+  }
+
+  private double antallOppslag(String resultat) {
+    return meterRegistry.get("bidrag.dokument.obo.token.cache").tag("registration", REGISTRERING).tag("result", resultat).counter().count();
+  }
+
+  private static OAuth2AccessTokenResponse tokenResponse(String accessToken, int expiresIn) {
+    var tokenResponse = mock(OAuth2AccessTokenResponse.class);
+    when(tokenResponse.getAccessToken()).thenReturn(accessToken);
+    when(tokenResponse.getExpiresIn()).thenReturn(expiresIn);
+
+    return tokenResponse;
+  }
+}
@@ -0,0 +1,135 @@
+package no.nav.bidrag.dokument.consumer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.ARKIV_QUALIFIER;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST;
+import static no.nav.bidrag.dokument.BidragDokumentConfig.MIDL_BREVLAGER_QUALIFIER;
+import static no.nav.bidrag.dokument.BidragDokumentLocal.TEST_PROFILE;
+import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_JOURNALPOST_UTEN_SAK;
+import static no.nav.bidrag.dokument.consumer.stub.RestConsumerStub.generereJournalpostrespons;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.Map;
+import no.nav.bidrag.dokument.BidragDokumentConfig.OidcTokenManager;
+import no.nav.bidrag.dokument.BidragDokumentLocal;
+import no.nav.bidrag.dokument.consumer.stub.RestConsumerStub;
+import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+import no.nav.security.token.support.test.jersey.TestTokenGeneratorResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.HttpClientErrorException;
+
+@SpringBootTest(classes = {BidragDokumentLocal.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(TEST_PROFILE)
+@DisplayName("ReaktivBidragDokumentConsumer")
+@AutoConfigureWireMock(port = 0)
+class ReaktivBidragDokumentConsumerTest {
+
+  @Autowired
+  @Qualifier(MIDL_BREVLAGER_QUALIFIER)
+  private ReaktivBidragDokumentConsumer reaktivJournalpostConsumer;
+
+  @Autowired
+  @Qualifier(ARKIV_QUALIFIER)
+  private ReaktivBidragDokumentConsumer reaktivArkivConsumer;
+
+  @Autowired
+  private RestConsumerStub restConsumerStub;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @MockBean
+  private OidcTokenManager oidcTokenManager;
+
+  @BeforeEach
+  void mockToken() {
+    when(oidcTokenManager.fetchToken()).thenReturn(new TestTokenGeneratorResource().issueToken("localhost-idtoken"));
+  }
+
+  @Test
+  @DisplayName("skal hente journalpost til en sak")
+  void skalHenteJournalpostTilSak() throws IOException {
+    var saksnr = "1900000";
+
+    restConsumerStub.runHenteJournalpostForSak(saksnr);
+
+    var respons = reaktivJournalpostConsumer.finnJournalposter(saksnr, "BID").block();
+
+    assertThat(respons).hasSize(2);
+  }
+
+  @Test
+  @DisplayName("skal endre journalpost")
+  void skalEndreJournalpost() throws IOException {
+    var endreJournalpostCommand = new EndreJournalpostCommand();
+    endreJournalpostCommand.setJournalpostId("BID-101");
+
+    restConsumerStub.runEndreJournalpost(endreJournalpostCommand.getJournalpostId(), HttpStatus.OK);
+
+    var respons = reaktivJournalpostConsumer.endre("4802", endreJournalpostCommand).block();
+
+    assertThat(respons).isNotNull().satisfies(httpResponse -> assertThat(httpResponse.is2xxSuccessful()).isTrue());
+  }
+
+  @Test
+  @DisplayName("skal måle kallet mot backend med samme timer og tags som fra RestTemplate")
+  void skalMaleKalletMotBackend() throws IOException {
+    var endreJournalpostCommand = new EndreJournalpostCommand();
+    endreJournalpostCommand.setJournalpostId("BID-102");
+
+    restConsumerStub.runEndreJournalpost(endreJournalpostCommand.getJournalpostId(), HttpStatus.OK);
+    reaktivJournalpostConsumer.endre("4802", endreJournalpostCommand).block();
+
+    var timer = meterRegistry.find("bidrag.dokument.consumer.requests")
+        .tags("targetApp", KLIENTNAVN_BIDRAG_DOKUMENT_JOURNALPOST, "operation", "endre", "issuer", "isso", "status", "2xx", "outcome", "SUCCESS")
+        .timer();
+
+    assertThat(timer).isNotNull().satisfies(endre -> assertThat(endre.count()).isPositive());
+  }
+
+  @Test
+  @DisplayName("skal hente en journalpost fra bidrag-dokument-arkiv")
+  void skalHenteJournalpostFraArkiv() {
+    var jpId = "BID-101";
+    var saksnr = "69";
+
+    restConsumerStub.runGetArkiv(
+        String.format(PATH_JOURNALPOST_UTEN_SAK, jpId), Map.of("saksnummer", equalTo(saksnr)), HttpStatus.OK,
+        generereJournalpostrespons(Map.of("innhold", "ENDELIG"))
+    );
+
+    var httpResponse = reaktivArkivConsumer.hentJournalpost(saksnr, jpId).block();
+    var journalpostResponse = httpResponse.fetchBody().orElseThrow(() -> new AssertionError("ReaktivBidragDokumentConsumer kunne ikke finne journalpost!"));
+
+    assertThat(journalpostResponse.getJournalpost()).extracting(JournalpostDto::getInnhold).isEqualTo("ENDELIG");
+  }
+
+  @Test
+  @DisplayName("skal gi samme exception som RestTemplate når backend svarer med feilstatus")
+  void skalGiHttpClientErrorExceptionVedFeilstatus() {
+    var jpId = "BID-404";
+
+    restConsumerStub.runGet(String.format(PATH_JOURNALPOST_UTEN_SAK, jpId), HttpStatus.NOT_FOUND, "");
+
+    var hentJournalpost = reaktivJournalpostConsumer.hentJournalpost(null, jpId);
+
+    assertThatThrownBy(hentJournalpost::block).isInstanceOfSatisfying(
+        HttpClientErrorException.class, httpClientErrorException -> assertEquals(HttpStatus.NOT_FOUND, httpClientErrorException.getStatusCode())
+    );
+  }
+}
@@ -0,0 +1,53 @@
+package no.nav.bidrag.dokument.consumer;
+
+import static no.nav.bidrag.dokument.BidragDokumentLocal.TEST_PROFILE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.BidragDokumentConfig.OidcTokenManager;
+import no.nav.bidrag.dokument.BidragDokumentLocal;
+import no.nav.bidrag.dokument.consumer.stub.RestConsumerStub;
+import no.nav.bidrag.dokument.dto.DokumentTilgangResponse;
+import no.nav.security.token.support.test.jersey.TestTokenGeneratorResource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = {BidragDokumentLocal.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(TEST_PROFILE)
+@DisplayName("ReaktivDokumentConsumer")
+@AutoConfigureWireMock(port = 0)
+class ReaktivDokumentConsumerTest {
+
+  @Autowired
+  private ReaktivDokumentConsumer reaktivDokumentConsumer;
+
+  @Autowired
+  private RestConsumerStub restConsumerStub;
+
+  @MockBean
+  private OidcTokenManager oidcTokenManager;
+
+  @Test
+  @DisplayName("skal spørre brevserver om tilgang til dokument")
+  void skalHenteTilgangTilDokument() {
+    var journalpostId = "BID-12312312";
+    var dokumentReferanse = "1234";
+    var dokumentUrl = "https://dokument-url.no/";
+    var type = "BREVLAGER";
+
+    when(oidcTokenManager.fetchToken()).thenReturn(new TestTokenGeneratorResource().issueToken("localhost-idtoken"));
+    restConsumerStub.runGiTilgangTilDokument(journalpostId, dokumentReferanse, dokumentUrl, type, HttpStatus.OK.value());
+
+    var respons = reaktivDokumentConsumer.hentTilgangUrl(journalpostId, dokumentReferanse).block();
+
+    assertThat(respons).isNotNull().extracting(HttpResponse::fetchBody)
+        .satisfies(body -> assertThat(body).contains(new DokumentTilgangResponse(dokumentUrl, type)));
+  }
+}
@@ -71,6 +71,12 @@ public class RestConsumerStub {
         .willReturn(aResponse().withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE).withStatus(status.value()).withBody(respons)));
   }
 
+  public void runHenteJournalpostMedEtag(String jpId, String etag, String respons) {
+    stubFor(get(urlPathMatching(String.format(PATH_JOURNALPOST_UTEN_SAK, jpId)))
+        .willReturn(aResponse().withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE).withHeader("ETag", etag)
+            .withStatus(HttpStatus.OK.value()).withBody(respons)));
+  }
+
   public void runEndreJournalpost(String journalpostId, HttpStatus status) throws IOException {
     stubFor(patch(urlPathMatching(String.format(PATH_JOURNALPOST_UTEN_SAK, journalpostId))).willReturn(
         aResponse().withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE).withStatus(status.value())
@@ -1,9 +1,13 @@
 package no.nav.bidrag.dokument.controller;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.reset;
 import static com.github.tomakehurst.wiremock.client.WireMock.resetAllScenarios;
 import static com.github.tomakehurst.wiremock.client.WireMock.resetToDefault;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static no.nav.bidrag.commons.web.EnhetFilter.X_ENHET_HEADER;
 import static no.nav.bidrag.dokument.BidragDokumentLocal.TEST_PROFILE;
 import static no.nav.bidrag.dokument.consumer.BidragDokumentConsumer.PATH_AVVIK_PA_JOURNALPOST;
@@ -33,6 +37,7 @@ import no.nav.bidrag.dokument.dto.BehandleAvvikshendelseResponse;
 import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
 import no.nav.bidrag.dokument.dto.JournalpostDto;
 import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import no.nav.bidrag.dokument.service.BatchResultat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
@@ -49,6 +54,7 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -178,6 +184,96 @@ class JournalpostControllerTest {
               () -> assertThat(response.getBody()).as("JournalpostResponse").extracting(JournalpostResponse::getJournalpost).as("journalpost")
                   .extracting(JournalpostDto::getAvsenderNavn).isEqualTo("Grev Still E. Ben")));
     }
+
+    @Test
+    @DisplayName("skal svare 304 uten body når journalposten ikke er endret siden forrige henting")
+    void skalSvare304NarJournalpostenIkkeErEndret() {
+      var queryParams = new HashMap<String, StringValuePattern>();
+      queryParams.put("saksnummer", equalTo("007"));
+
+      restConsumerStub.runHenteJournalpost("BID-5", queryParams, HttpStatus.OK, generereJournalpostrespons(Map.of("avsenderNavn", "Grev Still E. Ben")));
+
+      var url = initEndpointUrl("/journal/BID-5?saksnummer=007");
+      var forsteHenting = httpHeaderTestRestTemplate.exchange(url, HttpMethod.GET, null, JournalpostResponse.class);
+      var etag = forsteHenting.getHeaders().getETag();
+      var andreHenting = httpHeaderTestRestTemplate.exchange(
+          url, HttpMethod.GET, initHttpEntity(null, new CustomHeader(HttpHeaders.IF_NONE_MATCH, etag)), JournalpostResponse.class
+      );
+
+      assertAll(
+          () -> assertThat(forsteHenting.getStatusCode()).as("første henting").isEqualTo(HttpStatus.OK),
+          () -> assertThat(etag).as("etag").isNotBlank().doesNotStartWith("W/"),
+          () -> assertThat(forsteHenting.getHeaders().getCacheControl()).as("cache-control").isEqualTo(EtagFilter.CACHE_CONTROL),
+          () -> assertThat(andreHenting.getStatusCode()).as("andre henting").isEqualTo(HttpStatus.NOT_MODIFIED),
+          () -> assertThat(andreHenting.getBody()).as("body ved 304").isNull()
+      );
+    }
+
+    @Test
+    @DisplayName("skal ikke sende If-None-Match til backend, men svare 304 når klienten har ETag fra backend")
+    void skalIkkeSendeIfNoneMatchTilBackend() {
+      restConsumerStub.runHenteJournalpostMedEtag("BID-6", "\"v1\"", generereJournalpostrespons(Map.of("avsenderNavn", "Grev Still E. Ben")));
+
+      var responseEntity = httpHeaderTestRestTemplate.exchange(
+          initEndpointUrl("/journal/BID-6"), HttpMethod.GET, initHttpEntity(null, new CustomHeader(HttpHeaders.IF_NONE_MATCH, "\"v1\"")),
+          JournalpostResponse.class
+      );
+
+      assertAll(
+          () -> assertThat(responseEntity.getStatusCode()).as("status").isEqualTo(HttpStatus.NOT_MODIFIED),
+          () -> assertThat(responseEntity.getHeaders().getETag()).as("etag fra backend").isEqualTo("\"v1\""),
+          () -> verify(getRequestedFor(urlPathMatching("/journal/BID-6")).withHeader(HttpHeaders.IF_NONE_MATCH, absent()))
+      );
+    }
+  }
+
+  @Nested
+  @DisplayName("hent journalposter i batch")
+  class HentBatch {
+
+    @Test
+    @DisplayName("skal hente journalposter fra begge kildesystem og gi status per journalpost")
+    void skalHenteJournalposterFraBeggeKildesystem() throws IOException {
+      var queryParams = new HashMap<String, StringValuePattern>();
+      queryParams.put("saksnummer", equalTo("007"));
+      Map<String, String> journalpostelementer = new HashMap<>();
+      journalpostelementer.put("avsenderNavn", "Grev Still E. Ben");
+
+      restConsumerStub.runHenteJournalpost("BID-71", queryParams, HttpStatus.OK, generereJournalpostrespons(journalpostelementer));
+      restConsumerStub.runHenteJournalpostArkiv("JOARK-72", queryParams, HttpStatus.OK, lesResponsfilSomStreng("journalpostInnholdMidlertidig.json"));
+
+      var responseEntity = httpHeaderTestRestTemplate.exchange(
+          initEndpointUrl("/journal/batch?saksnummer=007"), HttpMethod.POST, initHttpEntity(List.of("BID-71", "JOARK-72", "svada-73")),
+          responseTypeErListeMedBatchResultat()
+      );
+
+      assertAll(
+          () -> assertThat(responseEntity.getStatusCode()).as("status").isEqualTo(HttpStatus.OK),
+          () -> assertThat(responseEntity.getBody()).as("resultat").extracting(BatchResultat::journalpostId)
+              .containsExactly("BID-71", "JOARK-72", "svada-73"),
+          () -> assertThat(responseEntity.getBody()).as("status per journalpost").extracting(BatchResultat::status)
+              .containsExactly(200, 200, 400),
+          () -> assertThat(responseEntity.getBody().get(0).resultat()).extracting(JournalpostResponse::getJournalpost)
+              .extracting(JournalpostDto::getAvsenderNavn).isEqualTo("Grev Still E. Ben"),
+          () -> assertThat(responseEntity.getBody().get(1).resultat()).extracting(JournalpostResponse::getJournalpost)
+              .extracting(JournalpostDto::getInnhold).isEqualTo("MIDLERTIDIG")
+      );
+    }
+
+    @Test
+    @DisplayName("skal få BAD_REQUEST når batch er tom")
+    void skalFaBadRequestNarBatchErTom() {
+      var responseEntity = httpHeaderTestRestTemplate.exchange(
+          initEndpointUrl("/journal/batch"), HttpMethod.POST, initHttpEntity(List.<String>of()), responseTypeErListeMedBatchResultat()
+      );
+
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private ParameterizedTypeReference<List<BatchResultat<JournalpostResponse>>> responseTypeErListeMedBatchResultat() {
+      return new ParameterizedTypeReference<>() {
+      };
+    }
   }
 
   @Nested
@@ -399,6 +495,19 @@ class JournalpostControllerTest {
       assertThat(journalpostResponseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    @DisplayName("skal gi samme Warning-header som før for ugyldig prefix, med id for distribusjon")
+    void skalGiWarningForEndepunktetVedFeilPrefixPaId() {
+      var hentJournalpost = httpHeaderTestRestTemplate.exchange(PATH_JOURNALPOST_UTEN_SAK + "ugyldig-id", HttpMethod.GET, null, String.class);
+      var kanDistribuere = httpHeaderTestRestTemplate.exchange("/journal/distribuer/ugyldig-id/enabled", HttpMethod.GET, null, String.class);
+
+      assertAll(
+          () -> assertThat(hentJournalpost.getHeaders().getFirst(HttpHeaders.WARNING)).isEqualTo("Ugyldig prefix på journalpostId"),
+          () -> assertThat(kanDistribuere.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST),
+          () -> assertThat(kanDistribuere.getHeaders().getFirst(HttpHeaders.WARNING)).isEqualTo("Id har ikke riktig prefix: ugyldig-id")
+      );
+    }
+
     @Test
     @DisplayName("skal hente journalpost uten sakstilknytning")
     void skalHenteJournalpostUtenSakstilknytning() {
@@ -505,6 +614,67 @@ class JournalpostControllerTest {
               () -> assertThat(response.getBody()).as("body").hasSize(4)));
     }
 
+    @Test
+    @DisplayName("skal hente journalen side for side med bare de oppgitte feltene")
+    void skalHenteJournalenSideForSide() throws IOException {
+      final var path = String.format(PATH_SAK_JOURNAL, "1003");
+
+      restConsumerStub.runGetArkiv(path, HttpStatus.OK, lesResponsfilSomStreng("bda-respons.json"));
+      restConsumerStub.runGet(path, HttpStatus.OK, lesResponsfilSomStreng("bdj-respons.json"));
+
+      var forsteSide = httpHeaderTestRestTemplate.exchange(
+          lagUrlForFagomradeBid(path) + "&limit=3&fields=journalpostId,innhold", HttpMethod.GET, null, responseTypeErListeMedFelter()
+      );
+
+      var nesteCursor = forsteSide.getHeaders().getFirst(JournalpostController.X_NESTE_CURSOR_HEADER);
+
+      var andreSide = httpHeaderTestRestTemplate.exchange(
+          lagUrlForFagomradeBid(path) + "&limit=3&cursor=" + nesteCursor, HttpMethod.GET, null, responseTypeErListeMedFelter()
+      );
+
+      assertAll(
+          () -> assertThat(forsteSide.getStatusCode()).as("status første side").isEqualTo(HttpStatus.OK),
+          () -> assertThat(forsteSide.getBody()).as("første side").hasSize(3)
+              .allSatisfy(journalpost -> assertThat(journalpost).containsOnlyKeys("journalpostId", "innhold")),
+          () -> assertThat(nesteCursor).as("cursor").isNotNull(),
+          () -> assertThat(forsteSide.getBody()).extracting(journalpost -> journalpost.get("journalpostId"))
+              .as("sortert på journalpostId").containsExactly("BID-37005196", "BID-37007542", "JOARK-37005196"),
+          () -> assertThat(andreSide.getBody()).as("andre side").hasSize(1),
+          () -> assertThat(andreSide.getHeaders().containsKey(JournalpostController.X_NESTE_CURSOR_HEADER)).as("flere sider").isFalse()
+      );
+    }
+
+    @Test
+    @DisplayName("skal få BAD_REQUEST(400) når cursor er ugyldig")
+    void skalFaBadRequestNarCursorErUgyldig() {
+      var journalposterResponse = httpHeaderTestRestTemplate
+          .exchange(lagUrlForFagomradeBid("/sak/1004/journal") + "&cursor=svada", HttpMethod.GET, null, responseTypeErListeMedJournalposter());
+
+      assertThat(journalposterResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @DisplayName("skal strømme journalposter som ndjson når klienten ber om det")
+    void skalStrommeJournalposterSomNdjson() throws IOException {
+      final var path = String.format(PATH_SAK_JOURNAL, "1002");
+      final var navnResponsfil = "bdj-respons.json";
+
+      restConsumerStub.runGetArkiv(path, HttpStatus.OK, lesResponsfilSomStreng(navnResponsfil));
+      restConsumerStub.runGet(path, HttpStatus.OK, lesResponsfilSomStreng(navnResponsfil));
+
+      var ndjsonResponse = httpHeaderTestRestTemplate.exchange(
+          lagUrlForFagomradeBid(path), HttpMethod.GET, initHttpEntity(null, new CustomHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE)),
+          String.class
+      );
+
+      assertThat(optional(ndjsonResponse)).hasValueSatisfying(response -> assertAll(
+          () -> assertThat(response.getStatusCode()).as("status").isEqualTo(HttpStatus.OK),
+          () -> assertThat(response.getHeaders().getContentType()).as("content type").isEqualTo(MediaType.APPLICATION_NDJSON),
+          // to journalposter fra journalpost og to fra arkiv (samme respons), én per linje
+          () -> assertThat(response.getBody()).as("body").isNotNull().satisfies(body -> assertThat(body.lines()).hasSize(4))
+      ));
+    }
+
     @Test
     @DisplayName("skal få BAD_REQUEST(400) som statuskode når saksnummer ikke er et heltall")
     void skalFaBadRequestNarSaksnummerIkkeErHeltall() {
@@ -545,5 +715,10 @@ class JournalpostControllerTest {
       return new ParameterizedTypeReference<>() {
       };
     }
+
+    private ParameterizedTypeReference<List<Map<String, Object>>> responseTypeErListeMedFelter() {
+      return new ParameterizedTypeReference<>() {
+      };
+    }
   }
 }
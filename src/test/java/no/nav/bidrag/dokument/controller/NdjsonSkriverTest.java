@@ -0,0 +1,46 @@
+package no.nav.bidrag.dokument.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("NdjsonSkriver")
+class NdjsonSkriverTest {
+
+  @Test
+  @DisplayName("skal skrive feilen som siste linje og ignorere det som skrives etterpå")
+  void skalSkriveFeilenSomSisteLinje() throws IOException {
+    var outputStream = new ByteArrayOutputStream();
+
+    try (var ndjsonSkriver = new NdjsonSkriver<Map<String, String>>(new ObjectMapper(), outputStream)) {
+      ndjsonSkriver.accept(Map.of("journalpostId", "BID-1"));
+      ndjsonSkriver.avsluttMedFeil("bidrag-dokument-arkiv feilet");
+      ndjsonSkriver.accept(Map.of("journalpostId", "JOARK-1"));
+    }
+
+    assertThat(outputStream.toString(StandardCharsets.UTF_8).lines()).containsExactly(
+        "{\"journalpostId\":\"BID-1\"}",
+        "{\"feil\":\"bidrag-dokument-arkiv feilet\"}"
+    );
+  }
+
+  @Test
+  @DisplayName("skal avslutte en delvis strøm med {\"delvis\":true}")
+  void skalAvslutteDelvisStrom() throws IOException {
+    var outputStream = new ByteArrayOutputStream();
+
+    try (var ndjsonSkriver = new NdjsonSkriver<Map<String, String>>(new ObjectMapper(), outputStream)) {
+      ndjsonSkriver.accept(Map.of("journalpostId", "BID-1"));
+      ndjsonSkriver.avsluttSomDelvis();
+      ndjsonSkriver.accept(Map.of("journalpostId", "JOARK-1"));
+    }
+
+    assertThat(outputStream.toString(StandardCharsets.UTF_8).lines()).containsExactly("{\"journalpostId\":\"BID-1\"}", "{\"delvis\":true}");
+  }
+}
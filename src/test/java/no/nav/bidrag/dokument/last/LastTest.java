@@ -0,0 +1,197 @@
+package no.nav.bidrag.dokument.last;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static no.nav.bidrag.dokument.BidragDokumentLocal.TEST_PROFILE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Stream;
+import no.nav.bidrag.dokument.BidragDokumentLocal;
+import no.nav.bidrag.dokument.last.Lastgenerator.Kall;
+import no.nav.security.token.support.test.jersey.TestTokenGeneratorResource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lasttest mot applikasjonen med test-profilen og wiremock som backends. Applikasjonen startes i en egen jvm for hvert scenario (som i
+ * OppstartTest), slik at heap og gc som rapporteres (fra /actuator/metrics) er applikasjonens alene, og ikke også wiremock og
+ * lastgeneratoren sine. Kjøres ikke sammen med de andre testene, men med<br>
+ * <code>mvn test -Dtest=LastTest -Dlasttest=true</code><br>
+ * og eventuelt <code>-Dlasttest.varighet-sekunder=60 -Dlasttest.oppvarming-sekunder=15 -Dlasttest.klienter=64</code>, og
+ * <code>-Dlasttest.jvm-argumenter="-Xmx512m -XX:+UseG1GC"</code> for applikasjonens jvm. Resultatet for hvert scenario logges og
+ * skrives til target/lasttest/&lt;scenario&gt;.json, og loggen fra applikasjonen til target/lasttest/&lt;scenario&gt;.log. Lesinger med og
+ * uten async-request.enabled sammenlignes med færre tråder i tomcat enn klienter.
+ */
+@EnabledIfSystemProperty(named = "lasttest", matches = "true")
+@DisplayName("Lasttest")
+class LastTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LastTest.class);
+  private static final Path RESULTATMAPPE = Path.of("target", "lasttest");
+  private static final int ANTALL_KLIENTER = Integer.getInteger("lasttest.klienter", 32);
+  private static final String CONTEXT_PATH = "/bidrag-dokument";
+  private static final Duration MAKS_OPPSTARTSTID = Duration.ofMinutes(2);
+  private static final int TOMCAT_TRADER = 16;
+
+  private static String authorization;
+  private static WireMockServer wireMockServer;
+
+  private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @BeforeAll
+  static void startBackendsOgLagToken() {
+    // wiremock har få tråder som standard, og skal ikke være flaskehalsen når backendene svarer tregt
+    wireMockServer = new WireMockServer(options().dynamicPort()
+        .containerThreads(ANTALL_KLIENTER * 4)
+        .asynchronousResponseEnabled(true)
+        .asynchronousResponseThreads(ANTALL_KLIENTER * 2));
+    wireMockServer.start();
+    WireMock.configureFor(wireMockServer.port());
+
+    // samme token brukes for alle requester, slik at signering av token ikke blir en del av det som måles
+    authorization = "Bearer " + new TestTokenGeneratorResource().issueToken("localhost-idtoken");
+  }
+
+  @AfterAll
+  static void stoppBackends() {
+    wireMockServer.stop();
+  }
+
+  static Stream<Scenario> scenarioer() {
+    return Stream.of(
+        new Scenario("normal", ANTALL_KLIENTER, 20, 0.3, 0),
+        new Scenario("treg-backend", ANTALL_KLIENTER, 200, 0.5, 0),
+        new Scenario("ustabil-backend", ANTALL_KLIENTER, 20, 0.3, 0.05)
+    );
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("scenarioer")
+  @DisplayName("skal belaste applikasjonen og rapportere throughput, svartider og heap/gc")
+  void skalBelasteApplikasjonen(Scenario scenario) throws IOException, InterruptedException {
+    var lastrapport = kjor(scenario);
+
+    assertThat(lastrapport.antallKall()).as("antall kall").isPositive();
+  }
+
+  @Test
+  @DisplayName("skal gi flere samtidige lesinger med async-request.enabled når tomcat har færre tråder enn klienter")
+  void skalGiFlereSamtidigeLesingerMedAsynkroneLesinger() throws IOException, InterruptedException {
+    var lesinger = EnumSet.of(Kall.JOURNALPOST, Kall.AVVIK);
+    var faTrader = List.of("--server.tomcat.threads.max=" + TOMCAT_TRADER, "--reactive-consumer.enabled=true");
+    var asynkroneLesinger = Stream.concat(faTrader.stream(), Stream.of("--async-request.enabled=true")).toList();
+
+    var blokkerende = kjor(new Scenario("lesing-blokkerende", ANTALL_KLIENTER * 2, 200, 0, 0, lesinger, faTrader));
+    var asynkron = kjor(new Scenario("lesing-asynkron", ANTALL_KLIENTER * 2, 200, 0, 0, lesinger, asynkroneLesinger));
+
+    // blokkerende er begrenset til TOMCAT_TRADER samtidige kall, asynkron av antall klienter (og bulkhead mot hver backend)
+    assertAll(
+        () -> assertThat(asynkron.kallPerSekund()).as("kall/s asynkron mot blokkerende").isGreaterThan(2 * blokkerende.kallPerSekund()),
+        () -> assertThat(asynkron.endepunkter()).as("feil med asynkrone lesinger")
+            .allSatisfy(endepunkt -> assertThat(endepunkt.antallFeil()).isZero())
+    );
+  }
+
+  private Lastrapport kjor(Scenario scenario) throws IOException, InterruptedException {
+    new LasttestStub(scenario).stubBackends();
+    Files.createDirectories(RESULTATMAPPE);
+
+    var port = finnLedigPort();
+    var prosess = startApplikasjonen(port, scenario, RESULTATMAPPE.resolve(scenario.navn() + ".log"));
+
+    try {
+      var baseUrl = "http://localhost:" + port + CONTEXT_PATH;
+      ventTilKlar(prosess, baseUrl, RESULTATMAPPE.resolve(scenario.navn() + ".log"));
+
+      var lastgenerator = new Lastgenerator(baseUrl, authorization);
+      var lastrapport = lastgenerator.kjor(
+          scenario,
+          Duration.ofSeconds(Long.getLong("lasttest.oppvarming-sekunder", 10)),
+          Duration.ofSeconds(Long.getLong("lasttest.varighet-sekunder", 30))
+      );
+
+      LOGGER.info(lastrapport.oppsummering());
+      objectMapper.writerWithDefaultPrettyPrinter().writeValue(RESULTATMAPPE.resolve(scenario.navn() + ".json").toFile(), lastrapport);
+
+      return lastrapport;
+    } finally {
+      prosess.destroy();
+      prosess.waitFor();
+    }
+  }
+
+  private static Process startApplikasjonen(int port, Scenario scenario, Path logg) throws IOException {
+    var kommando = new ArrayList<String>();
+
+    // samme jvm og klassesti som testen (test-profilen trenger TokenGeneratorConfiguration fra testklassene for å validere tokenet)
+    kommando.add(ProcessHandle.current().info().command().orElse("java"));
+    kommando.addAll(jvmArgumenter());
+    kommando.addAll(List.of("-cp", System.getProperty("java.class.path"), BidragDokumentLocal.class.getName(), TEST_PROFILE));
+    kommando.addAll(List.of("--server.port=" + port, "--wiremock.server.port=" + wireMockServer.port()));
+    kommando.addAll(scenario.applikasjonsargumenter());
+
+    return new ProcessBuilder(kommando).redirectErrorStream(true).redirectOutput(logg.toFile()).start();
+  }
+
+  private void ventTilKlar(Process prosess, String baseUrl, Path logg) throws InterruptedException {
+    var health = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).timeout(Duration.ofSeconds(1)).build();
+    var start = System.nanoTime();
+
+    while (System.nanoTime() - start < MAKS_OPPSTARTSTID.toNanos()) {
+      assertThat(prosess.isAlive()).as("applikasjonen kjører, se " + logg).isTrue();
+
+      if (erKlar(health)) {
+        return;
+      }
+
+      Thread.sleep(100);
+    }
+
+    throw new AssertionError("applikasjonen var ikke klar etter " + MAKS_OPPSTARTSTID + ", se " + logg);
+  }
+
+  private boolean erKlar(HttpRequest health) throws InterruptedException {
+    try {
+      return httpClient.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    } catch (IOException e) {
+      // tomcat har ikke startet ennå
+      return false;
+    }
+  }
+
+  private static List<String> jvmArgumenter() {
+    var jvmArgumenter = System.getProperty("lasttest.jvm-argumenter", "").trim();
+
+    return jvmArgumenter.isEmpty() ? List.of() : Arrays.asList(jvmArgumenter.split("\\s+"));
+  }
+
+  private static int finnLedigPort() throws IOException {
+    try (var serverSocket = new ServerSocket(0)) {
+      return serverSocket.getLocalPort();
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package no.nav.bidrag.dokument.last;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * Sender en blanding av requester mot applikasjonen fra et fast antall klienter (hver klient venter på svar før neste request), og måler
+ * throughput, svartider per endepunkt og applikasjonens heap/gc i perioden scenarioet kjører.
+ */
+class Lastgenerator {
+
+  static final int FEILENDE_NUMMER = 9_000_000;
+  private static final int NUMMER = 1_000_000;
+  private static final double[] PERSENTILER = {0.5, 0.95, 0.99};
+
+  private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+  private final String baseUrl;
+  private final String authorization;
+
+  Lastgenerator(String baseUrl, String authorization) {
+    this.baseUrl = baseUrl;
+    this.authorization = authorization;
+  }
+
+  Lastrapport kjor(Scenario scenario, Duration oppvarming, Duration varighet) throws InterruptedException {
+    send(scenario, oppvarming, new SimpleMeterRegistry());
+
+    var meterRegistry = new SimpleMeterRegistry();
+    var heapMaling = Heap.start(new Actuator(httpClient, baseUrl));
+    var start = System.nanoTime();
+
+    send(scenario, varighet, meterRegistry);
+
+    var sekunder = (System.nanoTime() - start) / 1e9;
+    var heap = heapMaling.stopp();
+    var endepunkter = scenario.kall().stream()
+        .map(kall -> Lastrapport.Endepunkt.fra(kall.name(), timer(meterRegistry, kall), meterRegistry.counter("lasttest.feil", "kall", kall.name()).count()))
+        .toList();
+    var antallKall = endepunkter.stream().mapToLong(Lastrapport.Endepunkt::antall).sum();
+
+    return new Lastrapport(scenario, antallKall, antallKall / sekunder, endepunkter, heap);
+  }
+
+  private void send(Scenario scenario, Duration varighet, SimpleMeterRegistry meterRegistry) throws InterruptedException {
+    var slutt = System.nanoTime() + varighet.toNanos();
+    ExecutorService klienter = Executors.newFixedThreadPool(scenario.antallKlienter());
+
+    for (int i = 0; i < scenario.antallKlienter(); i++) {
+      klienter.execute(() -> {
+        while (System.nanoTime() < slutt) {
+          var kall = Kall.trekk(scenario.kall());
+          var start = System.nanoTime();
+          var status = send(kall.request.apply(baseUrl, nummer(scenario)));
+
+          timer(meterRegistry, kall).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+          if (status >= 500) {
+            meterRegistry.counter("lasttest.feil", "kall", kall.name()).increment();
+          }
+        }
+      });
+    }
+
+    klienter.shutdown();
+    klienter.awaitTermination(varighet.toSeconds() + 60, TimeUnit.SECONDS);
+  }
+
+  private int send(HttpRequest.Builder request) {
+    try {
+      return httpClient.send(request.header(HttpHeaders.AUTHORIZATION, authorization).build(), BodyHandlers.discarding()).statusCode();
+    } catch (IOException e) {
+      return 599;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 599;
+    }
+  }
+
+  private static Timer timer(SimpleMeterRegistry meterRegistry, Kall kall) {
+    return Timer.builder("lasttest.kall").tag("kall", kall.name()).publishPercentiles(PERSENTILER).register(meterRegistry);
+  }
+
+  private static int nummer(Scenario scenario) {
+    var random = ThreadLocalRandom.current();
+
+    return (random.nextDouble() < scenario.feilrate() ? FEILENDE_NUMMER : NUMMER) + random.nextInt(NUMMER);
+  }
+
+  /**
+   * Blandingen av endepunkter som belastes, vektet omtrent slik trafikken er i produksjon: mest lesing av journal og journalposter.
+   */
+  enum Kall {
+    SAK_JOURNAL(35, (baseUrl, nummer) -> get(baseUrl + "/sak/" + nummer + "/journal?fagomrade=BID")),
+    JOURNALPOST(30, (baseUrl, nummer) -> get(baseUrl + "/journal/" + prefiks(nummer) + nummer + "?saksnummer=" + nummer)),
+    AVVIK(10, (baseUrl, nummer) -> get(baseUrl + "/journal/" + prefiks(nummer) + nummer + "/avvik?saksnummer=" + nummer)),
+    BEHANDLE_AVVIK(5, (baseUrl, nummer) -> post(baseUrl + "/journal/BID-" + nummer + "/avvik", "{\"avvikType\": \"BESTILL_ORIGINAL\"}")
+        .header("X-Enhet", "4806")),
+    DISTRIBUER(5, (baseUrl, nummer) -> post(baseUrl + "/journal/distribuer/JOARK-" + nummer, "{}")),
+    TILGANG(15, (baseUrl, nummer) -> get(baseUrl + "/tilgang/" + prefiks(nummer) + nummer + "/1234"));
+
+    private final int vekt;
+    private final BiFunction<String, Integer, HttpRequest.Builder> request;
+
+    Kall(int vekt, BiFunction<String, Integer, HttpRequest.Builder> request) {
+      this.vekt = vekt;
+      this.request = request;
+    }
+
+    static Kall trekk(Set<Kall> kallSomBelastes) {
+      var trekk = ThreadLocalRandom.current().nextInt(kallSomBelastes.stream().mapToInt(kall -> kall.vekt).sum());
+
+      for (Kall kall : kallSomBelastes) {
+        trekk -= kall.vekt;
+
+        if (trekk < 0) {
+          return kall;
+        }
+      }
+
+      throw new IllegalStateException("Ingen kall for trekk");
+    }
+
+    private static String prefiks(int nummer) {
+      return nummer % 2 == 0 ? "BID-" : "JOARK-";
+    }
+
+    private static HttpRequest.Builder get(String url) {
+      return HttpRequest.newBuilder(URI.create(url)).GET();
+    }
+
+    private static HttpRequest.Builder post(String url, String json) {
+      return HttpRequest.newBuilder(URI.create(url)).header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .POST(BodyPublishers.ofString(json));
+    }
+  }
+
+  /**
+   * Heap og gc for applikasjonen, fra /actuator/metrics. Applikasjonen kjører i en egen jvm (se LastTest), så tallene gjelder ikke
+   * wiremock og lastgeneratoren. Toppen er den høyeste av målingene som gjøres mens scenarioet kjører, og ikke nødvendigvis den eksakte
+   * toppen mellom to målinger.
+   */
+  private static final class Heap {
+
+    private static final long MB = 1024 * 1024;
+    private static final Duration MALEINTERVALL = Duration.ofMillis(250);
+
+    private final Actuator actuator;
+    private final ScheduledExecutorService maling = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicLong heapTopp = new AtomicLong();
+    private final Gc gcFor;
+
+    private Heap(Actuator actuator) {
+      this.actuator = actuator;
+      this.gcFor = actuator.gc();
+    }
+
+    static Heap start(Actuator actuator) {
+      var heap = new Heap(actuator);
+      heap.maling.scheduleAtFixedRate(heap::malHeap, 0, MALEINTERVALL.toMillis(), TimeUnit.MILLISECONDS);
+
+      return heap;
+    }
+
+    Lastrapport.Heap stopp() throws InterruptedException {
+      maling.shutdown();
+      maling.awaitTermination(MALEINTERVALL.toSeconds() + 5, TimeUnit.SECONDS);
+
+      var gcEtter = actuator.gc();
+      var heapBrukt = actuator.heapBrukt();
+
+      return new Lastrapport.Heap(
+          gcEtter.antall() - gcFor.antall(), gcEtter.millis() - gcFor.millis(), Math.max(heapTopp.get(), heapBrukt) / MB, heapBrukt / MB
+      );
+    }
+
+    private void malHeap() {
+      heapTopp.accumulateAndGet(actuator.heapBrukt(), Math::max);
+    }
+  }
+
+  private record Gc(long antall, long millis) {
+
+  }
+
+  /**
+   * Leser målinger fra applikasjonens /actuator/metrics.
+   */
+  private record Actuator(HttpClient httpClient, String baseUrl) {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    Gc gc() {
+      // jvm.gc.pause finnes ikke før første gc
+      var gcPause = hent("jvm.gc.pause");
+
+      return gcPause == null ? new Gc(0, 0) : new Gc((long) maling(gcPause, "COUNT"), Math.round(maling(gcPause, "TOTAL_TIME") * 1000));
+    }
+
+    long heapBrukt() {
+      var heapBrukt = hent("jvm.memory.used?tag=area:heap");
+
+      return heapBrukt == null ? 0 : (long) maling(heapBrukt, "VALUE");
+    }
+
+    private JsonNode hent(String metrikk) {
+      var request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + metrikk)).timeout(Duration.ofSeconds(5)).GET().build();
+
+      try {
+        var response = httpClient.send(request, BodyHandlers.ofString());
+
+        return response.statusCode() == 200 ? OBJECT_MAPPER.readTree(response.body()) : null;
+      } catch (IOException e) {
+        throw new UncheckedIOException("Kunne ikke lese " + metrikk + " fra applikasjonen", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Avbrutt under lesing av " + metrikk, e);
+      }
+    }
+
+    private static double maling(JsonNode metrikk, String statistikk) {
+      for (var maling : metrikk.path("measurements")) {
+        if (statistikk.equals(maling.path("statistic").asText())) {
+          return maling.path("value").asDouble();
+        }
+      }
+
+      return 0;
+    }
+  }
+}
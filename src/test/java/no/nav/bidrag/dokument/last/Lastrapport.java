@@ -0,0 +1,45 @@
+package no.nav.bidrag.dokument.last;
+
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resultatet av et lasttest-scenario. Svartider er i millisekunder, heap i MB.
+ */
+record Lastrapport(Scenario scenario, long antallKall, double kallPerSekund, List<Endepunkt> endepunkter, Heap heap) {
+
+  String oppsummering() {
+    var oppsummering = new StringBuilder(String.format(
+        "%n%s: %d kall, %.1f kall/s, gc: %d (%d ms), heap: topp %d MB, etter %d MB%n",
+        scenario.navn(), antallKall, kallPerSekund, heap.antallGc(), heap.gcMillis(), heap.toppMb(), heap.etterMb()
+    ));
+
+    endepunkter.forEach(endepunkt -> oppsummering.append(String.format(
+        "  %-15s %7d kall, %5d feil, p50 %7.1f ms, p95 %7.1f ms, p99 %7.1f ms, maks %7.1f ms%n",
+        endepunkt.kall(), endepunkt.antall(), endepunkt.antallFeil(), endepunkt.persentiler().get("p50"), endepunkt.persentiler().get("p95"),
+        endepunkt.persentiler().get("p99"), endepunkt.maks()
+    )));
+
+    return oppsummering.toString();
+  }
+
+  record Endepunkt(String kall, long antall, long antallFeil, Map<String, Double> persentiler, double maks) {
+
+    static Endepunkt fra(String kall, Timer timer, double antallFeil) {
+      var snapshot = timer.takeSnapshot();
+      var persentiler = Arrays.stream(snapshot.percentileValues()).collect(Collectors.toMap(
+          persentil -> "p" + Math.round(persentil.percentile() * 100), persentil -> persentil.value(TimeUnit.MILLISECONDS)
+      ));
+
+      return new Endepunkt(kall, snapshot.count(), (long) antallFeil, persentiler, snapshot.max(TimeUnit.MILLISECONDS));
+    }
+  }
+
+  record Heap(long antallGc, long gcMillis, long toppMb, long etterMb) {
+
+  }
+}
@@ -0,0 +1,63 @@
+package no.nav.bidrag.dokument.last;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.resetToDefault;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static no.nav.bidrag.dokument.consumer.stub.RestConsumerStub.lesResponsfilSomStreng;
+
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import java.io.IOException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+/**
+ * Backends for lasttesten: samme wiremock-instans svarer for både bidrag-dokument-journalpost og bidrag-dokument-arkiv (se test-profilen
+ * i application.yaml), med forsinkelse fra en log-normal fordeling. Journalpostnummer og saksnummer som begynner med 9 (se
+ * {@link Lastgenerator#FEILENDE_NUMMER}) gir 503, slik at feilraten styres av lastgeneratoren.
+ */
+class LasttestStub {
+
+  private static final String FEILENDE = ".*[/-]9\\d{6}(/.*)?";
+  private static final String SAK_JOURNAL = ".*/sak/\\d+/journal";
+  private static final String JOURNALPOST = ".*/journal/(BID|JOARK)-\\d+";
+  private static final String AVVIK = ".*/journal/(BID|JOARK)-\\d+/avvik";
+  private static final String DISTRIBUER = ".*/journal/distribuer/(BID|JOARK)-\\d+";
+  private static final String TILGANG = ".*/tilgang/(BID|JOARK)-\\d+/.+";
+
+  private final double medianForsinkelseMillis;
+  private final double sigma;
+
+  LasttestStub(Scenario scenario) {
+    this.medianForsinkelseMillis = scenario.medianForsinkelseMillis();
+    this.sigma = scenario.sigma();
+  }
+
+  void stubBackends() throws IOException {
+    resetToDefault();
+
+    stub(get(urlPathMatching(SAK_JOURNAL)), HttpStatus.OK, lesResponsfilSomStreng("bdj-respons.json"));
+    stub(get(urlPathMatching(JOURNALPOST)), HttpStatus.OK, lesResponsfilSomStreng("journalpostInnholdMidlertidig.json"));
+    stub(get(urlPathMatching(AVVIK)), HttpStatus.OK, "[\"BESTILL_ORIGINAL\", \"ENDRE_FAGOMRADE\"]");
+    stub(post(urlPathMatching(AVVIK)), HttpStatus.OK, "{}");
+    stub(post(urlPathMatching(DISTRIBUER)), HttpStatus.OK, "{\"journalpostId\": \"JOARK-1\", \"bestillingsId\": \"1\"}");
+    stub(get(urlPathMatching(TILGANG)), HttpStatus.OK, "{\"dokumentUrl\": \"https://dokument-url.no/\", \"type\": \"BREVLAGER\"}");
+
+    stubFor(any(urlPathMatching(FEILENDE)).atPriority(1).willReturn(medForsinkelse(aResponse().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value()))));
+  }
+
+  private void stub(MappingBuilder mappingBuilder, HttpStatus status, String respons) {
+    stubFor(mappingBuilder.atPriority(5).willReturn(medForsinkelse(
+        aResponse().withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withStatus(status.value()).withBody(respons)
+    )));
+  }
+
+  private ResponseDefinitionBuilder medForsinkelse(ResponseDefinitionBuilder responseDefinitionBuilder) {
+    return medianForsinkelseMillis > 0 ? responseDefinitionBuilder.withLogNormalRandomDelay(medianForsinkelseMillis, sigma) : responseDefinitionBuilder;
+  }
+}
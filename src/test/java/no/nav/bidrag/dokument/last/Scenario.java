@@ -0,0 +1,30 @@
+package no.nav.bidrag.dokument.last;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import no.nav.bidrag.dokument.last.Lastgenerator.Kall;
+
+/**
+ * Et lasttest-scenario: hvor raskt og hvor ofte backendene feiler, og hvor mange klienter som sender requester samtidig.
+ *
+ * @param medianForsinkelseMillis median svartid fra backendene
+ * @param sigma spredning i svartid (log-normal), 0 gir fast svartid
+ * @param feilrate andelen kall mot backend som gir 503
+ * @param kall endepunktene som belastes, med samme innbyrdes vekt som i {@link Kall}
+ * @param applikasjonsargumenter ekstra argumenter til applikasjonen, f.eks. <code>--server.tomcat.threads.max=16</code>
+ */
+record Scenario(
+    String navn, int antallKlienter, double medianForsinkelseMillis, double sigma, double feilrate, Set<Kall> kall,
+    List<String> applikasjonsargumenter
+) {
+
+  Scenario(String navn, int antallKlienter, double medianForsinkelseMillis, double sigma, double feilrate) {
+    this(navn, antallKlienter, medianForsinkelseMillis, sigma, feilrate, EnumSet.allOf(Kall.class), List.of());
+  }
+
+  @Override
+  public String toString() {
+    return navn;
+  }
+}
@@ -0,0 +1,154 @@
+package no.nav.bidrag.dokument.oppstart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Måler tiden fra jvm-en startes til applikasjonen er klar (svarer på /actuator/health) for den pakkede applikasjonen, startet med
+ * appcds-profilen slik at den ikke trenger nettverk. Variantene er oppstart uten utsatt initialisering (alle bønner opprettes under
+ * oppstarten), med utsatt initialisering og med utsatt initialisering og AppCDS-arkiv. Alle variantene eksponerer actuator-endepunktene
+ * fra application.yaml, og det sjekkes at endepunktene som brukes finnes når applikasjonen er klar. Kjøres ikke sammen med de andre
+ * testene, men med<br>
+ * <code>mvn -Pappcds package -DskipTests && mvn test -Dtest=OppstartTest -Doppstarttest=true</code><br>
+ * og eventuelt <code>-Doppstarttest.antall=10</code>. Resultatet for hver variant logges og skrives til target/oppstart/&lt;variant&gt;.json.
+ */
+@EnabledIfSystemProperty(named = "oppstarttest", matches = "true")
+@DisplayName("Oppstarttest")
+class OppstartTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OppstartTest.class);
+  private static final Path TARGET = Path.of("target");
+  private static final Path RESULTATMAPPE = TARGET.resolve("oppstart");
+  private static final String APP_JAR = "app-exec.jar";
+  private static final String APPCDS_ARKIV = "app-cds.jsa";
+  private static final int ANTALL_OPPSTARTER = Integer.getInteger("oppstarttest.antall", 5);
+  private static final Duration MAKS_OPPSTARTSTID = Duration.ofMinutes(2);
+  private static final List<String> ACTUATOR_ENDEPUNKTER = List.of("info", "prometheus", "metrics", "loggers", "circuitbreakers", "bulkheads");
+
+  private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  static Stream<Variant> varianter() {
+    return Stream.of(
+        new Variant("standard", List.of(), List.of("--startup.lazy-packages=", "--spring.mvc.servlet.load-on-startup=-1")),
+        new Variant("utsatt-initialisering", List.of(), List.of()),
+        // -Xshare:on: feiler i stedet for å starte uten arkivet når det ikke kan brukes
+        new Variant("appcds", List.of("-XX:SharedArchiveFile=" + APPCDS_ARKIV, "-Xshare:on"), List.of())
+    );
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("varianter")
+  @DisplayName("skal starte applikasjonen og rapportere tiden til den er klar")
+  void skalMaleOppstart(Variant variant) throws IOException, InterruptedException {
+    assumeTrue(Files.exists(TARGET.resolve(APP_JAR)), "mangler target/" + APP_JAR + ", kjør mvn package først");
+    assumeTrue(variant.jvmArgumenter().isEmpty() || Files.exists(TARGET.resolve(APPCDS_ARKIV)), "mangler target/" + APPCDS_ARKIV + ", kjør mvn -Pappcds package");
+
+    Files.createDirectories(RESULTATMAPPE);
+    var malinger = new ArrayList<Long>();
+
+    for (var i = 0; i < ANTALL_OPPSTARTER; i++) {
+      malinger.add(malOppstart(variant, RESULTATMAPPE.resolve(variant.navn() + "-" + i + ".log")));
+    }
+
+    var oppstartsrapport = Oppstartsrapport.fra(variant, malinger);
+
+    LOGGER.info(oppstartsrapport.oppsummering());
+    objectMapper.writerWithDefaultPrettyPrinter().writeValue(RESULTATMAPPE.resolve(variant.navn() + ".json").toFile(), oppstartsrapport);
+
+    assertThat(oppstartsrapport.min()).as("oppstartstid").isPositive();
+  }
+
+  private long malOppstart(Variant variant, Path logg) throws IOException, InterruptedException {
+    var port = finnLedigPort();
+    var kommando = new ArrayList<String>();
+
+    // samme jvm som testen, og samme klassesti som når arkivet ble laget (-jar app-exec.jar fra target)
+    kommando.add(ProcessHandle.current().info().command().orElse("java"));
+    kommando.addAll(variant.jvmArgumenter());
+    kommando.addAll(List.of("-jar", APP_JAR, "appcds", "--appcds.trening=false", "--server.port=" + port));
+    kommando.addAll(variant.appArgumenter());
+
+    var health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bidrag-dokument/actuator/health"))
+        .timeout(Duration.ofSeconds(1))
+        .build();
+
+    var start = System.nanoTime();
+    var prosess = new ProcessBuilder(kommando).directory(TARGET.toFile()).redirectErrorStream(true).redirectOutput(logg.toFile()).start();
+
+    try {
+      while (System.nanoTime() - start < MAKS_OPPSTARTSTID.toNanos()) {
+        assertThat(prosess.isAlive()).as("applikasjonen kjører, se " + logg).isTrue();
+
+        if (erKlar(health)) {
+          var oppstartstid = Duration.ofNanos(System.nanoTime() - start).toMillis();
+          sjekkActuatorEndepunkter(port, logg);
+
+          return oppstartstid;
+        }
+
+        Thread.sleep(20);
+      }
+
+      throw new AssertionError("applikasjonen var ikke klar etter " + MAKS_OPPSTARTSTID + ", se " + logg);
+    } finally {
+      prosess.destroy();
+      prosess.waitFor();
+    }
+  }
+
+  private void sjekkActuatorEndepunkter(int port, Path logg) throws IOException, InterruptedException {
+    for (var endepunkt : ACTUATOR_ENDEPUNKTER) {
+      var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bidrag-dokument/actuator/" + endepunkt))
+          .timeout(Duration.ofSeconds(5))
+          .build();
+
+      assertThat(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode())
+          .as("/actuator/" + endepunkt + " er eksponert, se " + logg)
+          .isEqualTo(200);
+    }
+  }
+
+  private boolean erKlar(HttpRequest health) throws InterruptedException {
+    try {
+      return httpClient.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    } catch (IOException e) {
+      // tomcat har ikke startet ennå
+      return false;
+    }
+  }
+
+  private static int finnLedigPort() throws IOException {
+    try (var serverSocket = new ServerSocket(0)) {
+      return serverSocket.getLocalPort();
+    }
+  }
+
+  record Variant(String navn, List<String> jvmArgumenter, List<String> appArgumenter) {
+
+    @Override
+    public String toString() {
+      return navn;
+    }
+  }
+}
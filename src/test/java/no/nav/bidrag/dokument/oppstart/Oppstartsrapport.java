@@ -0,0 +1,23 @@
+package no.nav.bidrag.dokument.oppstart;
+
+import java.util.List;
+
+/**
+ * Tiden fra jvm-en startes til applikasjonen svarer på /actuator/health, for hver oppstart av en variant. Tider er i millisekunder.
+ */
+record Oppstartsrapport(String variant, List<String> jvmArgumenter, List<String> appArgumenter, List<Long> malinger, long min, long median,
+                        long maks) {
+
+  static Oppstartsrapport fra(OppstartTest.Variant variant, List<Long> malinger) {
+    var sortert = malinger.stream().sorted().toList();
+
+    return new Oppstartsrapport(
+        variant.navn(), variant.jvmArgumenter(), variant.appArgumenter(), malinger, sortert.get(0), sortert.get(sortert.size() / 2),
+        sortert.get(sortert.size() - 1)
+    );
+  }
+
+  String oppsummering() {
+    return String.format("%n%s: %d oppstarter, min %d ms, median %d ms, maks %d ms%n", variant, malinger.size(), min, median, maks);
+  }
+}
@@ -0,0 +1,150 @@
+package no.nav.bidrag.dokument.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import no.nav.bidrag.commons.KildesystemIdenfikator;
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.concurrent.ParallellBehandling;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostRequest;
+import no.nav.bidrag.dokument.dto.DistribuerJournalpostResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+@DisplayName("BatchService")
+@ExtendWith(MockitoExtension.class)
+class BatchServiceTest {
+
+  private static final String BATCH_ID = "batch-1";
+
+  @Mock
+  private JournalpostService journalpostServiceMock;
+  private BatchService batchService;
+
+  @BeforeEach
+  void opprettBatchService() {
+    batchService = new BatchService(journalpostServiceMock, new ParallellBehandling(new SimpleAsyncTaskExecutor()), 1, 2, 60000, 100);
+  }
+
+  @Test
+  @DisplayName("skal gi resultat for hver journalpost som distribueres")
+  void skalGiResultatForHverJournalpost() {
+    when(journalpostServiceMock.distribuerJournalpost(eq(BATCH_ID), any(KildesystemIdenfikator.class), any()))
+        .thenReturn(HttpResponse.from(HttpStatus.OK, new DistribuerJournalpostResponse()))
+        .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+    var resultater = distribuer(List.of("JOARK-1", "JOARK-2", "svada-3"));
+
+    assertAll(
+        () -> assertThat(resultater).extracting(BatchResultat::journalpostId).containsExactlyInAnyOrder("JOARK-1", "JOARK-2", "svada-3"),
+        () -> assertThat(resultater).extracting(BatchResultat::status).containsExactlyInAnyOrder(200, 404, 400)
+    );
+  }
+
+  @Test
+  @DisplayName("skal ikke distribuere journalposter på nytt når batchen prøves igjen")
+  void skalIkkeDistribuerePaNyttNarBatchenProvesIgjen() {
+    var distribuertForst = new DistribuerJournalpostResponse();
+    when(journalpostServiceMock.distribuerJournalpost(eq(BATCH_ID), any(KildesystemIdenfikator.class), any()))
+        .thenReturn(HttpResponse.from(HttpStatus.OK, distribuertForst))
+        .thenThrow(new HttpClientErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+        .thenReturn(HttpResponse.from(HttpStatus.OK, new DistribuerJournalpostResponse()));
+
+    var forsteForsok = distribuer(List.of("JOARK-1", "JOARK-2"));
+    var andreForsok = distribuer(List.of("JOARK-1", "JOARK-2"));
+
+    assertAll(
+        () -> assertThat(forsteForsok).extracting(BatchResultat::status).containsExactly(200, 503),
+        () -> assertThat(andreForsok).extracting(BatchResultat::status).containsExactly(200, 200),
+        () -> assertThat(andreForsok.get(0).melding()).isEqualTo(BatchService.DISTRIBUERT_TIDLIGERE),
+        () -> assertThat(andreForsok.get(0).resultat()).isSameAs(distribuertForst),
+        () -> verify(journalpostServiceMock, times(3)).distribuerJournalpost(eq(BATCH_ID), any(KildesystemIdenfikator.class), any())
+    );
+  }
+
+  @Test
+  @DisplayName("skal avvise batch med samme journalpost flere ganger uten å distribuere noe")
+  void skalAvviseBatchMedDuplikater() {
+    assertAll(
+        () -> assertThat(BatchService.finnDuplikat(List.of(new DistribusjonIBatch("JOARK-1", null)))).isEmpty(),
+        () -> assertThatIllegalArgumentException().isThrownBy(() -> distribuer(List.of("JOARK-1", "JOARK-2", "JOARK-1")))
+            .withMessage("Journalpost JOARK-1 finnes flere ganger i batchen"),
+        () -> verify(journalpostServiceMock, never()).distribuerJournalpost(any(), any(), any())
+    );
+  }
+
+  @Test
+  @DisplayName("skal gi status 503 når backend ikke har ledig kapasitet")
+  void skalGiStatus503NarBackendIkkeHarLedigKapasitet() {
+    when(journalpostServiceMock.distribuerJournalpost(eq(BATCH_ID), any(KildesystemIdenfikator.class), any()))
+        .thenThrow(BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("bidrag-dokument-arkiv")));
+
+    var resultater = distribuer(List.of("JOARK-1"));
+
+    assertThat(resultater).extracting(BatchResultat::status).containsExactly(503);
+  }
+
+  @Test
+  @DisplayName("skal gi om hver journalpost kan distribueres, med status fra backend")
+  void skalGiOmHverJournalpostKanDistribueres() {
+    when(journalpostServiceMock.kanDistribuereJournalpost(any(KildesystemIdenfikator.class))).thenAnswer(
+        invocation -> invocation.<KildesystemIdenfikator>getArgument(0).getPrefiksetJournalpostId().equals("JOARK-1")
+            ? HttpResponse.from(HttpStatus.OK)
+            : HttpResponse.from(HttpStatus.NOT_ACCEPTABLE)
+    );
+
+    var kanDistribuere = batchService.kanDistribuere(List.of("JOARK-1", "BID-2", "svada-3"));
+
+    assertAll(
+        () -> assertThat(kanDistribuere).containsOnlyKeys("JOARK-1", "BID-2", "svada-3"),
+        () -> assertThat(kanDistribuere.get("JOARK-1")).isEqualTo(new KanDistribuere(true, 200, null)),
+        () -> assertThat(kanDistribuere.get("BID-2")).isEqualTo(new KanDistribuere(false, 406, null)),
+        () -> assertThat(kanDistribuere.get("svada-3")).isEqualTo(new KanDistribuere(false, 400, BatchService.UGYLDIG_PREFIX))
+    );
+  }
+
+  @Test
+  @DisplayName("skal gi status 503 for journalposter som ikke kan sjekkes fordi backend er utilgjengelig")
+  void skalGiStatus503NarBackendErUtilgjengelig() {
+    when(journalpostServiceMock.kanDistribuereJournalpost(any(KildesystemIdenfikator.class)))
+        .thenThrow(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("bidrag-dokument-arkiv")));
+
+    var kanDistribuere = batchService.kanDistribuere(List.of("JOARK-1"));
+
+    assertAll(
+        () -> assertThat(kanDistribuere.get("JOARK-1").enabled()).isFalse(),
+        () -> assertThat(kanDistribuere.get("JOARK-1").status()).isEqualTo(503)
+    );
+  }
+
+  private List<BatchResultat<DistribuerJournalpostResponse>> distribuer(List<String> journalpostIder) {
+    var resultater = new CopyOnWriteArrayList<BatchResultat<DistribuerJournalpostResponse>>();
+    var distribusjoner = journalpostIder.stream()
+        .map(journalpostId -> new DistribusjonIBatch(journalpostId, new DistribuerJournalpostRequest()))
+        .toList();
+
+    batchService.distribuer(BATCH_ID, distribusjoner, resultater::add);
+
+    return resultater;
+  }
+}
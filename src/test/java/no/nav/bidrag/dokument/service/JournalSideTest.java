@@ -0,0 +1,91 @@
+package no.nav.bidrag.dokument.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import no.nav.bidrag.dokument.dto.JournalpostDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("JournalSide")
+class JournalSideTest {
+
+  private final List<JournalpostDto> journalposter = Stream.of("BID-10", "BID-9", "JOARK-2", "BID-11", "JOARK-1")
+      .map(JournalSideTest::journalpost)
+      .toList();
+
+  @Test
+  @DisplayName("skal gi hele journalen i rekkefølgen fra backend uten limit og cursor")
+  void skalGiAlleJournalposterUtenLimit() {
+    var journalSide = JournalSide.fra(journalposter, null, null);
+
+    assertAll(
+        () -> assertThat(journalSide.journalposter()).containsExactlyElementsOf(journalposter),
+        () -> assertThat(journalSide.nesteCursor()).isNull()
+    );
+  }
+
+  @Test
+  @DisplayName("skal gi sider sortert på journalpostId med cursor som peker på neste side")
+  void skalGiCursorTilNesteSide() {
+    var forsteSide = JournalSide.fra(journalposter, null, 2);
+    var andreSide = JournalSide.fra(journalposter, JournalSide.lesCursor(forsteSide.nesteCursor()), 2);
+    var sisteSide = JournalSide.fra(journalposter, JournalSide.lesCursor(andreSide.nesteCursor()), 2);
+
+    assertAll(
+        () -> assertThat(journalpostIder(forsteSide)).containsExactly("BID-9", "BID-10"),
+        () -> assertThat(journalpostIder(andreSide)).containsExactly("BID-11", "JOARK-1"),
+        () -> assertThat(journalpostIder(sisteSide)).containsExactly("JOARK-2"),
+        () -> assertThat(sisteSide.nesteCursor()).isNull()
+    );
+  }
+
+  @Test
+  @DisplayName("skal verken hoppe over eller gjenta journalposter når journalen endres mellom sidene")
+  void skalTaleEndringerMellomSidene() {
+    var forsteSide = JournalSide.fra(journalposter, null, 2);
+
+    var endretJournal = new ArrayList<>(journalposter);
+    endretJournal.add(journalpost("BID-1"));
+    endretJournal.removeIf(journalpostDto -> journalpostDto.getJournalpostId().equals("BID-9"));
+
+    var andreSide = JournalSide.fra(endretJournal, JournalSide.lesCursor(forsteSide.nesteCursor()), 2);
+
+    assertThat(journalpostIder(andreSide)).containsExactly("BID-11", "JOARK-1");
+  }
+
+  @Test
+  @DisplayName("skal gi samme journalpost fra begge backender bare én gang")
+  void skalGiSammeJournalpostBareEnGang() {
+    var journalSide = JournalSide.fra(List.of(journalpost("BID-1"), journalpost("BID-1"), journalpost("BID-2")), null, 10);
+
+    assertThat(journalpostIder(journalSide)).containsExactly("BID-1", "BID-2");
+  }
+
+  @Test
+  @DisplayName("skal gi tom side når cursor peker forbi journalen")
+  void skalGiTomSideNarCursorPekerForbiJournalen() {
+    assertThat(JournalSide.fra(journalposter, "JOARK-3", 2).journalposter()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("skal feile når cursor ikke er laget av tjenesten")
+  void skalFeileVedUgyldigCursor() {
+    assertThatIllegalArgumentException().isThrownBy(() -> JournalSide.lesCursor("svada"));
+  }
+
+  private static List<String> journalpostIder(JournalSide journalSide) {
+    return journalSide.journalposter().stream().map(JournalpostDto::getJournalpostId).toList();
+  }
+
+  private static JournalpostDto journalpost(String journalpostId) {
+    var journalpostDto = new JournalpostDto();
+    journalpostDto.setJournalpostId(journalpostId);
+
+    return journalpostDto;
+  }
+}
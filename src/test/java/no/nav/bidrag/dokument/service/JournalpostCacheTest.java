@@ -0,0 +1,73 @@
+package no.nav.bidrag.dokument.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.nav.bidrag.commons.KildesystemIdenfikator;
+import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.dto.JournalpostResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+@DisplayName("JournalpostCache")
+class JournalpostCacheTest {
+
+  private final JournalpostCache journalpostCache = new JournalpostCache(60000, 100, () -> "token", new ObjectMapper(), new SimpleMeterRegistry());
+  private final AtomicInteger antallHentinger = new AtomicInteger();
+
+  @Test
+  @DisplayName("skal ikke cache journalpost som endres under hentingen, men fortsatt cache andre journalposter som hentes samtidig")
+  void skalBareHindreCachingAvJournalpostenSomEndres() {
+    var endret = new KildesystemIdenfikator("BID-1");
+    var annen = new KildesystemIdenfikator("BID-2");
+
+    journalpostCache.hentJournalpost("69", endret, () -> {
+      journalpostCache.hentJournalpost("69", annen, this::hent);
+      journalpostCache.fjern(endret);
+
+      return hent();
+    });
+
+    journalpostCache.hentJournalpost("69", endret, this::hent);
+    journalpostCache.hentJournalpost("69", annen, this::hent);
+
+    // BID-1 to ganger (endret under første henting), BID-2 én gang
+    assertThat(antallHentinger).hasValue(3);
+  }
+
+  @Test
+  @DisplayName("skal gi en ny respons for hver henting fra cachen, slik at endringer av en respons ikke påvirker de andre")
+  void skalGiNyResponsForHverHenting() {
+    var kildesystemIdenfikator = new KildesystemIdenfikator("JOARK-3");
+    journalpostCache.hentJournalpost("69", kildesystemIdenfikator, this::hent);
+
+    var forste = journalpostCache.hentJournalpost("69", kildesystemIdenfikator, this::hent);
+    forste.clearContentHeaders();
+    var andre = journalpostCache.hentJournalpost("69", kildesystemIdenfikator, this::hent);
+
+    assertAll(
+        () -> assertThat(antallHentinger).hasValue(1),
+        () -> assertThat(andre).isNotSameAs(forste),
+        () -> assertThat(andre.getResponseEntity().getBody()).isNotSameAs(forste.getResponseEntity().getBody()),
+        () -> assertThat(andre.getResponseEntity().getBody()).usingRecursiveComparison().isEqualTo(forste.getResponseEntity().getBody()),
+        () -> assertThat(andre.getResponseEntity().getHeaders().getETag()).isEqualTo("\"1\""),
+        () -> assertThat(andre.getResponseEntity().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON)
+    );
+  }
+
+  private HttpResponse<JournalpostResponse> hent() {
+    antallHentinger.incrementAndGet();
+    var headers = new HttpHeaders();
+    headers.setETag("\"1\"");
+    headers.setContentType(MediaType.APPLICATION_JSON);
+
+    return new HttpResponse<>(new ResponseEntity<>(new JournalpostResponse(), headers, HttpStatus.OK));
+  }
+}
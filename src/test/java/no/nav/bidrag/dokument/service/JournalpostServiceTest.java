@@ -3,15 +3,30 @@ package no.nav.bidrag.dokument.service;
 import static no.nav.bidrag.dokument.BidragDokumentConfig.ARKIV_QUALIFIER;
 import static no.nav.bidrag.dokument.BidragDokumentConfig.MIDL_BREVLAGER_QUALIFIER;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import no.nav.bidrag.commons.KildesystemIdenfikator;
 import no.nav.bidrag.commons.web.HttpResponse;
+import no.nav.bidrag.dokument.concurrent.FanOut;
+import no.nav.bidrag.dokument.concurrent.FanOut.DelvisResultat;
 import no.nav.bidrag.dokument.consumer.BidragDokumentConsumer;
+import no.nav.bidrag.dokument.consumer.ReaktivBidragDokumentConsumer;
+import no.nav.bidrag.dokument.dto.EndreJournalpostCommand;
 import no.nav.bidrag.dokument.dto.JournalpostDto;
 import no.nav.bidrag.dokument.dto.JournalpostResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,7 +35,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import reactor.core.publisher.Mono;
 
 @DisplayName("JournalpostService")
 @ExtendWith(MockitoExtension.class)
@@ -30,11 +48,28 @@ class JournalpostServiceTest {
   private BidragDokumentConsumer bidragArkivConsumerMock;
   @Mock(name=MIDL_BREVLAGER_QUALIFIER)
   private BidragDokumentConsumer bidragJournalpostConsumerMock;
+  @Mock
+  private ReaktivBidragDokumentConsumer reaktivArkivConsumerMock;
+  @Mock
+  private ReaktivBidragDokumentConsumer reaktivJournalpostConsumerMock;
   private JournalpostService journalpostService;
+  private JournalpostService reaktivJournalpostService;
 
   @BeforeEach
   void createServiceWithMocks(){
-    journalpostService = new JournalpostService(bidragArkivConsumerMock, bidragJournalpostConsumerMock);
+    journalpostService = opprettJournalpostService(false);
+    reaktivJournalpostService = opprettJournalpostService(true);
+  }
+
+  private JournalpostService opprettJournalpostService(boolean reaktiv) {
+    var fanOut = new FanOut(new SimpleAsyncTaskExecutor(), Map.of(), 1000, DelvisResultat.FEIL);
+    var journalpostCache = new JournalpostCache(60000, 100, () -> "token", new ObjectMapper(), new SimpleMeterRegistry());
+    var journalForSider = new JournalForSider(60000, 100, () -> "token", new SimpleMeterRegistry());
+
+    return new JournalpostService(
+        bidragArkivConsumerMock, bidragJournalpostConsumerMock, reaktivArkivConsumerMock, reaktivJournalpostConsumerMock, reaktiv, fanOut,
+        journalpostCache, journalForSider
+    );
   }
 
   @Test
@@ -65,7 +100,111 @@ class JournalpostServiceTest {
 
     assertAll(
         () -> assertThat(journalposter).hasSize(1),
-        () -> verify(bidragJournalpostConsumerMock).finnJournalposter("1", "FAG")
+        () -> verify(bidragJournalpostConsumerMock).finnJournalposter("1", "FAG"),
+        () -> verify(bidragArkivConsumerMock).finnJournalposter("1", "FAG")
+    );
+  }
+
+  @Test
+  @DisplayName("skal hente journalpost fra cache når den er hentet tidligere")
+  void skalHenteJournalpostFraCache() {
+    when(bidragArkivConsumerMock.hentJournalpost(anyString(), anyString())).thenReturn(HttpResponse.from(HttpStatus.OK, new JournalpostResponse()));
+
+    journalpostService.hentJournalpost("69", new KildesystemIdenfikator("JOARK-4"));
+    var httpStatusResponse = journalpostService.hentJournalpost("69", new KildesystemIdenfikator("joark-4"));
+
+    assertAll(
+        () -> assertThat(httpStatusResponse.fetchBody()).isPresent(),
+        () -> verify(bidragArkivConsumerMock).hentJournalpost(anyString(), anyString())
+    );
+  }
+
+  @Test
+  @DisplayName("skal hente journalpost på nytt etter at den er endret")
+  void skalHenteJournalpostPaNyttEtterEndring() {
+    var kildesystemIdenfikator = new KildesystemIdenfikator("BID-5");
+    when(bidragJournalpostConsumerMock.hentJournalpost(anyString(), anyString())).thenReturn(HttpResponse.from(HttpStatus.OK, new JournalpostResponse()));
+    when(bidragJournalpostConsumerMock.endre(eq("4802"), any(EndreJournalpostCommand.class)))
+        .thenReturn(HttpResponse.from(HttpStatus.OK));
+
+    journalpostService.hentJournalpost("69", kildesystemIdenfikator);
+    journalpostService.endre("4802", kildesystemIdenfikator, new EndreJournalpostCommand());
+    journalpostService.hentJournalpost("69", kildesystemIdenfikator);
+
+    verify(bidragJournalpostConsumerMock, times(2)).hentJournalpost(anyString(), anyString());
+  }
+
+  @Test
+  @DisplayName("skal beholde journalpost i cache når distribusjon feiler")
+  void skalBeholdeJournalpostICacheNarDistribusjonFeiler() {
+    var kildesystemIdenfikator = new KildesystemIdenfikator("JOARK-6");
+    when(bidragArkivConsumerMock.hentJournalpost(anyString(), anyString())).thenReturn(HttpResponse.from(HttpStatus.OK, new JournalpostResponse()));
+    when(bidragArkivConsumerMock.distribuerJournalpost(anyString(), isNull(), isNull()))
+        .thenReturn(HttpResponse.from(HttpStatus.BAD_REQUEST));
+
+    journalpostService.hentJournalpost("69", kildesystemIdenfikator);
+    journalpostService.distribuerJournalpost(null, kildesystemIdenfikator, null);
+    journalpostService.hentJournalpost("69", kildesystemIdenfikator);
+
+    verify(bidragArkivConsumerMock).hentJournalpost(anyString(), anyString());
+  }
+
+  @Test
+  @DisplayName("skal hente journalpost med ikke-blokkerende consumer, og fra cache når den er hentet tidligere")
+  void skalHenteJournalpostMedIkkeBlokkerendeConsumer() {
+    when(reaktivArkivConsumerMock.hentJournalpost(anyString(), anyString()))
+        .thenReturn(Mono.just(HttpResponse.from(HttpStatus.OK, new JournalpostResponse())));
+
+    reaktivJournalpostService.hentJournalpost("69", new KildesystemIdenfikator("JOARK-7"));
+    var httpStatusResponse = reaktivJournalpostService.hentJournalpost("69", new KildesystemIdenfikator("JOARK-7"));
+
+    assertAll(
+        () -> assertThat(httpStatusResponse.fetchBody()).isPresent(),
+        () -> verify(reaktivArkivConsumerMock).hentJournalpost("69", "JOARK-7"),
+        () -> verifyNoInteractions(bidragArkivConsumerMock)
+    );
+  }
+
+  @Test
+  @DisplayName("skal hente journalpost uten å vente på svaret, og fra cache når den er hentet tidligere")
+  void skalHenteJournalpostAsynkront() {
+    var svar = new CompletableFuture<HttpResponse<JournalpostResponse>>();
+    when(reaktivArkivConsumerMock.hentJournalpost(anyString(), anyString())).thenReturn(Mono.fromFuture(svar));
+
+    var forste = reaktivJournalpostService.hentJournalpostAsynkront("69", new KildesystemIdenfikator("JOARK-9"));
+    var ferdigForSvar = forste.isDone();
+    svar.complete(HttpResponse.from(HttpStatus.OK, new JournalpostResponse()));
+    var andre = reaktivJournalpostService.hentJournalpostAsynkront("69", new KildesystemIdenfikator("JOARK-9"));
+
+    assertAll(
+        () -> assertThat(ferdigForSvar).as("ferdig før backend svarte").isFalse(),
+        () -> assertThat(forste.join().fetchBody()).isPresent(),
+        () -> assertThat(andre).isDone(),
+        () -> assertThat(andre.join().fetchBody()).isPresent(),
+        () -> verify(reaktivArkivConsumerMock).hentJournalpost("69", "JOARK-9")
+    );
+  }
+
+  @Test
+  @DisplayName("skal kombinere resultat fra ikke-blokkerende consumere for journalpost og arkiv")
+  void skalKombinereResultaterFraIkkeBlokkerendeConsumere() {
+    when(reaktivJournalpostConsumerMock.finnJournalposter("1", "FAG")).thenReturn(Mono.just(List.of(new JournalpostDto())));
+    when(reaktivArkivConsumerMock.finnJournalposter("1", "FAG")).thenReturn(Mono.just(List.of(new JournalpostDto())));
+
+    var journalposter = reaktivJournalpostService.finnJournalposter("1", "FAG");
+
+    assertAll(
+        () -> assertThat(journalposter).hasSize(2),
+        () -> verifyNoInteractions(bidragJournalpostConsumerMock, bidragArkivConsumerMock)
     );
   }
+
+  @Test
+  @DisplayName("skal kaste feilen fra ikke-blokkerende consumer videre")
+  void skalKasteFeilenFraIkkeBlokkerendeConsumerVidere() {
+    when(reaktivJournalpostConsumerMock.kanDistribuereJournalpost("BID-8")).thenReturn(Mono.error(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+
+    assertThatThrownBy(() -> reaktivJournalpostService.kanDistribuereJournalpost(new KildesystemIdenfikator("BID-8")))
+        .isInstanceOf(HttpClientErrorException.class);
+  }
 }